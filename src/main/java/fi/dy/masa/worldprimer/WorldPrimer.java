@@ -14,13 +14,17 @@ import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLServerAboutToStartEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartedEvent;
 import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppedEvent;
 import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 import fi.dy.masa.worldprimer.command.CommandWorldPrimer;
 import fi.dy.masa.worldprimer.command.handler.CommandHandler;
+import fi.dy.masa.worldprimer.command.util.CommandExecutionQueue;
+import fi.dy.masa.worldprimer.command.util.WallClockScheduler;
 import fi.dy.masa.worldprimer.config.Configs;
 import fi.dy.masa.worldprimer.proxy.IProxy;
 import fi.dy.masa.worldprimer.reference.Reference;
 import fi.dy.masa.worldprimer.util.DataTracker;
+import fi.dy.masa.worldprimer.util.SpreadCandidatePool;
 
 @Mod(modid = Reference.MOD_ID, name = Reference.MOD_NAME, version = Reference.MOD_VERSION, certificateFingerprint = Reference.FINGERPRINT,
     guiFactory = "fi.dy.masa.worldprimer.config.WorldPrimerGuiFactory",
@@ -106,6 +110,8 @@ public class WorldPrimer
         // Increment the server start count
         DataTracker.INSTANCE.incrementServerStartCount();
 
+        WallClockScheduler.INSTANCE.start();
+
         if (Configs.enablePostWorldLoadingCommands)
         {
             WorldPrimer.logInfo("FMLServerStartedEvent - running postWorldLoadingCommands");
@@ -118,6 +124,18 @@ public class WorldPrimer
     public void onServerStopped(FMLServerStoppingEvent event)
     {
         logInfo("FMLServerStoppingEvent");
+        CommandExecutionQueue.INSTANCE.clear();
+        WallClockScheduler.INSTANCE.stop();
+        SpreadCandidatePool.INSTANCE.clear();
+    }
+
+    @Mod.EventHandler
+    public void onServerFullyStopped(FMLServerStoppedEvent event)
+    {
+        logInfo("FMLServerStoppedEvent");
+        // The final world saves happen after the FMLServerStoppingEvent,
+        // so compact the data journal and wait for the resulting data writes here
+        DataTracker.INSTANCE.onServerStopped();
     }
 
     public static void logInfo(String message, Object... params)
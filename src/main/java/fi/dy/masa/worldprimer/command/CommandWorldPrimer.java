@@ -31,6 +31,7 @@ public class CommandWorldPrimer extends CommandBase
         this.registerSubCommand(new SubCommandPlaceStructure(this));
         this.registerSubCommand(new SubCommandReloadConfigs(this));
         this.registerSubCommand(new SubCommandSpreadPlayer(this));
+        this.registerSubCommand(new SubCommandStatus(this));
         this.registerSubCommand(new SubCommandTestExecutors(this));
     }
 
@@ -86,10 +87,11 @@ public class CommandWorldPrimer extends CommandBase
         }
 
         String cmd = args[0];
+        ISubCommand subCommand = this.subCommands.get(cmd);
 
-        if (this.subCommands.containsKey(cmd))
+        if (subCommand != null)
         {
-            this.subCommands.get(cmd).execute(server, sender, dropFirstStrings(args, 1));
+            subCommand.execute(server, sender, dropFirstStrings(args, 1));
         }
         else if (cmd.equals("help"))
         {
@@ -127,6 +129,12 @@ public class CommandWorldPrimer extends CommandBase
         }
     }
 
+    @Nullable
+    public ISubCommand getSubCommand(String name)
+    {
+        return this.subCommands.get(name);
+    }
+
     public Collection<String> getSubCommandNames()
     {
         return this.subCommands.keySet();
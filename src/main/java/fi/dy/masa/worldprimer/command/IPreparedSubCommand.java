@@ -0,0 +1,18 @@
+package fi.dy.masa.worldprimer.command;
+
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * A sub command bound to the constant arguments of a command string that were pre-parsed when the command was built.
+ */
+@FunctionalInterface
+public interface IPreparedSubCommand
+{
+    /**
+     * Processes the command. The arguments are the full argument array of the sub command,
+     * including the arguments that were pre-parsed.
+     */
+    void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException;
+}
@@ -26,4 +26,15 @@ public interface ISubCommand
 
     /** Sends the sub command's in-depth, possibly argument-dependent list of help strings to the user */
     void printFullHelp(ICommandSender sender, String[] args);
+
+    /**
+     * Pre-parses the constant arguments of a command built from the configs,
+     * so that they don't need to be parsed again on every execution.
+     * @param args the arguments, where the arguments that are only known at execution time are null
+     * @return the command bound to the pre-parsed arguments
+     */
+    default IPreparedSubCommand prepare(String[] args)
+    {
+        return this::execute;
+    }
 }
@@ -46,10 +46,69 @@ public class SubCommandDelay extends SubCommand
         }
 
         int delay = CommandWorldPrimer.parseInt(args[0]);
-        args = dropFirstStrings(args, 1);
-        String commandStr = String.join(" ", args);
+        String commandStr = String.join(" ", dropFirstStrings(args, 1));
         ParsedCommand command = CommandHandler.INSTANCE.buildCommand("Scheduled Command", commandStr);
 
+        this.scheduleCommand(sender, delay, commandStr, command);
+    }
+
+    @Override
+    public IPreparedSubCommand prepare(String[] args)
+    {
+        if (args.length < 2 || args[0] == null)
+        {
+            return this::execute;
+        }
+
+        final int delay;
+
+        try
+        {
+            delay = CommandWorldPrimer.parseInt(args[0]);
+        }
+        catch (CommandException e)
+        {
+            return this::execute;
+        }
+
+        for (int i = 1; i < args.length; ++i)
+        {
+            if (args[i] == null)
+            {
+                return (server, sender, argsIn) -> this.executeWithDelay(sender, delay, argsIn);
+            }
+        }
+
+        // The scheduled command is fully constant, so it only needs to be built once
+        final String commandStr = String.join(" ", dropFirstStrings(args, 1));
+        final ParsedCommand[] command = new ParsedCommand[1];
+
+        return (server, sender, argsIn) -> {
+            if (command[0] == null)
+            {
+                command[0] = CommandHandler.INSTANCE.buildCommand("Scheduled Command", commandStr);
+            }
+
+            this.scheduleCommand(sender, delay, commandStr, command[0]);
+        };
+    }
+
+    private void executeWithDelay(ICommandSender sender, int delay, String[] args) throws CommandException
+    {
+        if (args.length < 2)
+        {
+            throwUsage(this.getUsageStringCommon() + " <delay> <actual command and args>");
+        }
+
+        String commandStr = String.join(" ", dropFirstStrings(args, 1));
+        ParsedCommand command = CommandHandler.INSTANCE.buildCommand("Scheduled Command", commandStr);
+
+        this.scheduleCommand(sender, delay, commandStr, command);
+    }
+
+    private void scheduleCommand(ICommandSender sender, int delay, String commandStr,
+                                 @Nullable ParsedCommand command) throws CommandException
+    {
         if (command != null)
         {
             World world = sender.getEntityWorld();
@@ -60,7 +119,6 @@ public class SubCommandDelay extends SubCommand
                 int dimension = world.provider.getDimension();
 
                 CommandScheduler.INSTANCE.addScheduleCommand(command, currentTime + delay, 0, false, dimension);
-                CommandScheduler.INSTANCE.updateAllScheduledCommands(false);
             }
             else
             {
@@ -92,14 +92,34 @@ public class SubCommandPlaceStructure extends SubCommand
 
     @Override
     public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        this.execute(server, sender, args, null, null);
+    }
+
+    @Override
+    public IPreparedSubCommand prepare(String[] args)
+    {
+        Rotation rotation = args.length >= 5 && args[4] != null ? this.getRotationOrNull(args[4]) : null;
+        Mirror mirror     = args.length >= 6 && args[5] != null ? this.getMirrorOrNull(args[5]) : null;
+
+        if (rotation == null && mirror == null)
+        {
+            return this::execute;
+        }
+
+        return (server, sender, argsIn) -> this.execute(server, sender, argsIn, rotation, mirror);
+    }
+
+    private void execute(MinecraftServer server, ICommandSender sender, String[] args,
+                         @Nullable Rotation preParsedRotation, @Nullable Mirror preParsedMirror) throws CommandException
     {
         if (args.length >= 4 && args.length <= 8)
         {
             try
             {
                 BlockPos pos = CommandBase.parseBlockPos(sender, args, 0, false);
-                Rotation rotation = args.length >= 5 ? this.getRotation(args[4]) : Rotation.NONE;
-                Mirror mirror     = args.length >= 6 ? this.getMirror(args[5]) : Mirror.NONE;
+                Rotation rotation = args.length >= 5 ? (preParsedRotation != null ? preParsedRotation : this.getRotation(args[4])) : Rotation.NONE;
+                Mirror mirror     = args.length >= 6 ? (preParsedMirror != null ? preParsedMirror : this.getMirror(args[5])) : Mirror.NONE;
                 boolean centered = args.length == 7 && args[6].equals("centered");
                 boolean dataFunctions = args.length == 8 && args[7].equals("data-functions");
 
@@ -296,6 +316,19 @@ public class SubCommandPlaceStructure extends SubCommand
     }
 
     private Rotation getRotation(String arg) throws CommandException
+    {
+        Rotation rotation = this.getRotationOrNull(arg);
+
+        if (rotation == null)
+        {
+            throwCommand("worldprimer.commands.error.invalid.argument.rotation", arg);
+        }
+
+        return rotation;
+    }
+
+    @Nullable
+    private Rotation getRotationOrNull(String arg)
     {
         if (arg.equals("cw_90"))
         {
@@ -314,12 +347,23 @@ public class SubCommandPlaceStructure extends SubCommand
             return Rotation.NONE;
         }
 
-        throwCommand("worldprimer.commands.error.invalid.argument.rotation", arg);
-
-        return Rotation.NONE; // dummy
+        return null;
     }
 
     private Mirror getMirror(String arg) throws CommandException
+    {
+        Mirror mirror = this.getMirrorOrNull(arg);
+
+        if (mirror == null)
+        {
+            throwCommand("worldprimer.commands.error.invalid.argument.mirror", arg);
+        }
+
+        return mirror;
+    }
+
+    @Nullable
+    private Mirror getMirrorOrNull(String arg)
     {
         if (arg.equals("front_back"))
         {
@@ -334,9 +378,7 @@ public class SubCommandPlaceStructure extends SubCommand
             return Mirror.NONE;
         }
 
-        throwCommand("worldprimer.commands.error.invalid.argument.mirror", arg);
-
-        return Mirror.NONE; // dummy
+        return null;
     }
 
     protected void loadChunks(World world, BlockPos pos, BlockPos size)
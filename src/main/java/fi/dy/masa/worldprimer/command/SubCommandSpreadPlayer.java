@@ -2,9 +2,15 @@ package fi.dy.masa.worldprimer.command;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import javax.annotation.Nullable;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.CommandException;
@@ -12,9 +18,20 @@ import net.minecraft.command.ICommandSender;
 import net.minecraft.command.WrongUsageException;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.fml.common.registry.ForgeRegistries;
 import fi.dy.masa.worldprimer.util.DataTracker;
+import fi.dy.masa.worldprimer.util.GridOccupancy;
+import fi.dy.masa.worldprimer.util.PoissonDiskSampler;
+import fi.dy.masa.worldprimer.util.PoissonDiskSampler.IPositionFilter;
+import fi.dy.masa.worldprimer.util.PositionUtils;
+import fi.dy.masa.worldprimer.util.SpatialGrid;
+import fi.dy.masa.worldprimer.util.SpreadCandidatePool;
+import fi.dy.masa.worldprimer.util.SpreadPositionFilter;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 
 public class SubCommandSpreadPlayer extends SubCommand
 {
@@ -43,6 +60,9 @@ public class SubCommandSpreadPlayer extends SubCommand
         List<String> list = new ArrayList<>();
 
         list.addAll(CommandBase.getListOfStringsMatchingLastWord(args,
+                "--avoid-liquid",
+                "--batch",
+                "--biome=",
                 "--find-surface=",
                 "--grid=",
                 "--max-radius=",
@@ -67,70 +87,68 @@ public class SubCommandSpreadPlayer extends SubCommand
 
     @Override
     public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        this.execute(server, sender, args, null);
+    }
+
+    @Override
+    public IPreparedSubCommand prepare(String[] args)
+    {
+        IOption[] preParsedOptions = new IOption[args.length];
+        boolean hasPreParsedOptions = false;
+
+        for (int i = 0; i < args.length; ++i)
+        {
+            String arg = args[i];
+
+            if (arg != null && arg.startsWith("--"))
+            {
+                try
+                {
+                    preParsedOptions[i] = parseOption(arg);
+                    hasPreParsedOptions = true;
+                }
+                catch (CommandException e)
+                {
+                    // Leave the invalid option to be reported on execution
+                }
+            }
+        }
+
+        if (hasPreParsedOptions == false)
+        {
+            return this::execute;
+        }
+
+        return (server, sender, argsIn) -> this.execute(server, sender, argsIn, preParsedOptions);
+    }
+
+    /**
+     * @param preParsedOptions the options pre-parsed from the constant arguments, at the same indices as in the argument array
+     */
+    private void execute(MinecraftServer server, ICommandSender sender, String[] args,
+                         @Nullable IOption[] preParsedOptions) throws CommandException
     {
         if (args.length == 0)
         {
             throwUsage(this.getUsageStringCommon());
         }
 
-        boolean findSurface = true;
-        boolean updatePosition = false;
-        int maxRadius = 10000;
-        int minSeparation = 500;
-        int y = -1;
-        int yOffset = 0;
-        int yMin = -1;
-        int yMax = -1;
-        int gridSize = -1;
+        SpreadOptions options = new SpreadOptions();
         List<String> onlinePlayers = Arrays.asList(server.getOnlinePlayerNames());
         List<String> playerNames = new ArrayList<>();
 
-        for (String arg : args)
+        for (int i = 0; i < args.length; ++i)
         {
-            // TODO these are not really nice & clean...
+            String arg = args[i];
 
-            if (arg.startsWith("--"))
+            if (preParsedOptions != null && i < preParsedOptions.length && preParsedOptions[i] != null)
             {
-                if (arg.startsWith("--find-surface="))
-                {
-                    findSurface = getBooleanValue(arg.substring(15));
-                }
-                else if (arg.startsWith("--grid="))
-                {
-                    gridSize = CommandBase.parseInt(arg.substring(7));
-                }
-                else if (arg.startsWith("--max-radius="))
-                {
-                    maxRadius = CommandBase.parseInt(arg.substring(13));
-                }
-                else if (arg.startsWith("--min-separation="))
-                {
-                    minSeparation = CommandBase.parseInt(arg.substring(17));
-                }
-                else if (arg.startsWith("--new"))
-                {
-                    updatePosition = true;
-                }
-                else if (arg.startsWith("--y="))
-                {
-                    y = CommandBase.parseInt(arg.substring(4));
-                }
-                else if (arg.startsWith("--y-offset="))
-                {
-                    yOffset = CommandBase.parseInt(arg.substring(11));
-                }
-                else if (arg.startsWith("--y-max="))
-                {
-                    yMax = CommandBase.parseInt(arg.substring(8));
-                }
-                else if (arg.startsWith("--y-min="))
-                {
-                    yMin = CommandBase.parseInt(arg.substring(8));
-                }
-                else
-                {
-                    throw new WrongUsageException("Unknown argument: ", arg);
-                }
+                preParsedOptions[i].apply(options);
+            }
+            else if (arg.startsWith("--"))
+            {
+                parseOption(arg).apply(options);
             }
             else if (onlinePlayers.contains(arg))
             {
@@ -147,6 +165,11 @@ public class SubCommandSpreadPlayer extends SubCommand
             throw new WrongUsageException("No players given");
         }
 
+        if (options.biomes != null || options.avoidLiquid)
+        {
+            options.positionFilter = new SpreadPositionFilter(options.biomes, options.avoidLiquid);
+        }
+
         List<EntityPlayer> players = new ArrayList<>();
 
         for (String playerName : playerNames)
@@ -163,53 +186,295 @@ public class SubCommandSpreadPlayer extends SubCommand
             }
         }
 
+        if (options.batch && options.gridSize <= 0)
+        {
+            this.spreadPlayersInBatch(sender, players, options);
+            return;
+        }
+
         for (EntityPlayer player : players)
         {
-            int dimension = player.getEntityWorld().provider.getDimension();
+            World world = player.getEntityWorld();
+            int dimension = world.provider.getDimension();
             BlockPos pos = DataTracker.INSTANCE.getLastPlayerSpreadPosition(player);
-            List<BlockPos> existingPositions = new ArrayList<>(DataTracker.INSTANCE.getPlayerSpreadPositions(dimension));
+            SpatialGrid spreadPositions = DataTracker.INSTANCE.getPlayerSpreadPositionGrid(dimension, options.minSeparation);
+            SpatialGrid playerPositions = new SpatialGrid(options.minSeparation);
 
-            player.getEntityWorld().playerEntities.forEach((p) -> existingPositions.add(new BlockPos(p)));
+            world.playerEntities.forEach((p) -> playerPositions.add(new BlockPos(p).toLong()));
 
-            if (updatePosition || pos == null)
+            if (options.updatePosition || pos == null)
             {
-                if (gridSize > 0)
+                BlockPos pooledPos = null;
+
+                // Use a pre-validated position with an already probed surface, if there is one ready
+                if (options.gridSize <= 0 && options.findSurface && options.y == -1)
+                {
+                    pooledPos = SpreadCandidatePool.INSTANCE.pollCandidate(dimension, options.maxRadius, options.minSeparation,
+                                                                           options.positionFilter, spreadPositions, playerPositions);
+                }
+
+                if (pooledPos != null)
                 {
-                    pos = this.findFreeGridPositionXZ(gridSize, minSeparation, maxRadius, existingPositions);
+                    int y = this.getAdjustedSurfaceY(pooledPos.getY(), options.yMin, options.yMax, options.yOffset);
+                    pos = new BlockPos(pooledPos.getX(), y, pooledPos.getZ());
                 }
                 else
                 {
-                    pos = this.findFreeRandomPositionXZ(minSeparation, maxRadius, existingPositions);
+                    if (options.gridSize > 0)
+                    {
+                        GridOccupancy occupancy = DataTracker.INSTANCE.getSpreadGridOccupancy(dimension, options.gridSize);
+                        pos = this.findFreeGridPositionXZ(world, occupancy, options, spreadPositions, playerPositions);
+                    }
+                    else
+                    {
+                        IPositionFilter filter = this.getPositionFilter(world, options, spreadPositions, playerPositions);
+                        pos = this.findFreeRandomPositionXZ(options.maxRadius, filter);
+                    }
+
+                    if (pos != null)
+                    {
+                        pos = this.updatePositionY(world, pos, options.findSurface,
+                                                   options.y, options.yMin, options.yMax, options.yOffset);
+                    }
                 }
+            }
+
+            if (pos != null)
+            {
+                this.spreadPlayerTo(sender, player, pos);
+            }
+        }
+    }
+
+    /**
+     * Places all the players that need a new position in one pass per dimension, using Poisson-disk sampling.
+     * If not all the players fit in the area, then that is reported before moving anyone,
+     * and the players that don't fit are not moved.
+     */
+    private void spreadPlayersInBatch(ICommandSender sender, List<EntityPlayer> players, SpreadOptions options)
+    {
+        Map<Integer, List<EntityPlayer>> playersByDimension = new LinkedHashMap<>();
+
+        for (EntityPlayer player : players)
+        {
+            int dimension = player.getEntityWorld().provider.getDimension();
+            playersByDimension.computeIfAbsent(dimension, (dim) -> new ArrayList<>()).add(player);
+        }
+
+        for (Map.Entry<Integer, List<EntityPlayer>> entry : playersByDimension.entrySet())
+        {
+            final int dimension = entry.getKey();
+            List<EntityPlayer> playersToPlace = new ArrayList<>();
+            World world = entry.getValue().get(0).getEntityWorld();
+
+            for (EntityPlayer player : entry.getValue())
+            {
+                BlockPos pos = DataTracker.INSTANCE.getLastPlayerSpreadPosition(player);
 
-                if (pos != null)
+                if (options.updatePosition || pos == null)
+                {
+                    playersToPlace.add(player);
+                }
+                else
                 {
-                    pos = this.updatePositionY(player.getEntityWorld(), pos, findSurface, y, yMin, yMax, yOffset);
+                    this.spreadPlayerTo(sender, player, pos);
                 }
             }
 
-            if (pos != null)
+            if (playersToPlace.isEmpty())
+            {
+                continue;
+            }
+
+            SpatialGrid spreadPositions = DataTracker.INSTANCE.getPlayerSpreadPositionGrid(dimension, options.minSeparation);
+            SpatialGrid playerPositions = new SpatialGrid(options.minSeparation);
+            LongArrayList seedPositions = new LongArrayList();
+
+            // The players being placed will be moved away, so their current positions don't block anything
+            world.playerEntities.stream().filter((p) -> playersToPlace.contains(p) == false)
+                                         .forEach((p) -> playerPositions.add(new BlockPos(p).toLong()));
+            DataTracker.INSTANCE.forEachPlayerSpreadPosition(dimension, seedPositions::add);
+
+            IPositionFilter filter = this.getPositionFilter(world, options, spreadPositions, playerPositions);
+            LongArrayList samples = PoissonDiskSampler.sample(playersToPlace.size(), options.minSeparation, options.maxRadius,
+                                                              RAND, seedPositions, filter);
+
+            final int count = samples.size();
+
+            if (count < playersToPlace.size())
             {
-                String str = String.format("Spreading player '%s' to [%d, %d, %d]", player.getName(), pos.getX(), pos.getY(), pos.getZ());
-                this.sendMessage(sender, str);
+                this.sendMessage(sender, String.format("/worldprimer spread-player: Only %d of the %d players fit in dimension %d " +
+                                                       "with the given radius and separation, %d players will not be moved",
+                                                       count, playersToPlace.size(), dimension, playersToPlace.size() - count));
+            }
+
+            BlockPos[] positions = this.getPositionsWithY(world, samples, options);
+
+            for (int i = 0; i < count; ++i)
+            {
+                this.spreadPlayerTo(sender, playersToPlace.get(i), positions[i]);
+            }
+        }
+    }
+
+    /**
+     * Sets the y-coordinates of the given XZ-positions. The positions are processed
+     * grouped by their chunk, so that each chunk only gets loaded or generated once, all in one go.
+     */
+    private BlockPos[] getPositionsWithY(World world, LongArrayList packedPositions, SpreadOptions options)
+    {
+        final int count = packedPositions.size();
+        BlockPos[] positions = new BlockPos[count];
+        Integer[] order = new Integer[count];
+
+        for (int i = 0; i < count; ++i)
+        {
+            order[i] = i;
+        }
 
-                player.setLocationAndAngles(pos.getX(), pos.getY(), pos.getZ(), player.prevRotationYaw, player.prevRotationPitch);
-                player.setPositionAndUpdate(pos.getX(), pos.getY(), pos.getZ());
+        Arrays.sort(order, Comparator.comparingLong((i) -> getChunkKey(packedPositions.getLong(i))));
 
-                DataTracker.INSTANCE.addPlayerSpreadPosition(player, pos);
+        for (int index : order)
+        {
+            BlockPos pos = BlockPos.fromLong(packedPositions.getLong(index));
+            positions[index] = this.updatePositionY(world, pos, options.findSurface,
+                                                    options.y, options.yMin, options.yMax, options.yOffset);
+        }
+
+        return positions;
+    }
+
+    private static long getChunkKey(long packedPos)
+    {
+        return ((long) (PositionUtils.getPackedX(packedPos) >> 4) << 32) | ((PositionUtils.getPackedZ(packedPos) >> 4) & 0xFFFFFFFFL);
+    }
+
+    private void spreadPlayerTo(ICommandSender sender, EntityPlayer player, BlockPos pos)
+    {
+        String str = String.format("Spreading player '%s' to [%d, %d, %d]", player.getName(), pos.getX(), pos.getY(), pos.getZ());
+        this.sendMessage(sender, str);
+
+        player.setLocationAndAngles(pos.getX(), pos.getY(), pos.getZ(), player.prevRotationYaw, player.prevRotationPitch);
+        player.setPositionAndUpdate(pos.getX(), pos.getY(), pos.getZ());
+
+        DataTracker.INSTANCE.addPlayerSpreadPosition(player, pos);
+    }
+
+    private static IOption parseOption(String arg) throws CommandException
+    {
+        // TODO these are not really nice & clean...
+
+        if (arg.equals("--avoid-liquid"))
+        {
+            return (options) -> options.avoidLiquid = true;
+        }
+        else if (arg.equals("--batch"))
+        {
+            return (options) -> options.batch = true;
+        }
+        else if (arg.startsWith("--biome="))
+        {
+            Set<Biome> biomes = parseBiomes(arg.substring(8));
+            return (options) -> options.biomes = biomes;
+        }
+        else if (arg.startsWith("--find-surface="))
+        {
+            boolean findSurface = getBooleanValue(arg.substring(15));
+            return (options) -> options.findSurface = findSurface;
+        }
+        else if (arg.startsWith("--grid="))
+        {
+            int gridSize = CommandBase.parseInt(arg.substring(7));
+            return (options) -> options.gridSize = gridSize;
+        }
+        else if (arg.startsWith("--max-radius="))
+        {
+            int maxRadius = CommandBase.parseInt(arg.substring(13));
+            return (options) -> options.maxRadius = maxRadius;
+        }
+        else if (arg.startsWith("--min-separation="))
+        {
+            int minSeparation = CommandBase.parseInt(arg.substring(17));
+            return (options) -> options.minSeparation = minSeparation;
+        }
+        else if (arg.startsWith("--new"))
+        {
+            return (options) -> options.updatePosition = true;
+        }
+        else if (arg.startsWith("--y="))
+        {
+            int y = CommandBase.parseInt(arg.substring(4));
+            return (options) -> options.y = y;
+        }
+        else if (arg.startsWith("--y-offset="))
+        {
+            int yOffset = CommandBase.parseInt(arg.substring(11));
+            return (options) -> options.yOffset = yOffset;
+        }
+        else if (arg.startsWith("--y-max="))
+        {
+            int yMax = CommandBase.parseInt(arg.substring(8));
+            return (options) -> options.yMax = yMax;
+        }
+        else if (arg.startsWith("--y-min="))
+        {
+            int yMin = CommandBase.parseInt(arg.substring(8));
+            return (options) -> options.yMin = yMin;
+        }
+
+        throw new WrongUsageException("Unknown argument: ", arg);
+    }
+
+    /**
+     * Parses a comma separated list of biome registry names
+     */
+    private static Set<Biome> parseBiomes(String str) throws CommandException
+    {
+        Set<Biome> biomes = new LinkedHashSet<>();
+
+        for (String name : str.split(","))
+        {
+            Biome biome = ForgeRegistries.BIOMES.getValue(new ResourceLocation(name));
+
+            if (biome == null)
+            {
+                throw new WrongUsageException("Unknown biome: ", name);
             }
+
+            biomes.add(biome);
         }
+
+        return biomes;
+    }
+
+    /**
+     * Creates a filter for the candidate positions. The cheap separation checks are done first,
+     * and the biome filter then rejects the remaining candidates without generating any chunks.
+     */
+    private IPositionFilter getPositionFilter(World world, SpreadOptions options,
+                                              SpatialGrid spreadPositions, SpatialGrid playerPositions)
+    {
+        final int minSeparation = options.minSeparation;
+        final SpreadPositionFilter positionFilter = options.positionFilter;
+
+        if (positionFilter != null)
+        {
+            return (x, z) -> this.isClearOfPositions(x, z, minSeparation, spreadPositions, playerPositions) &&
+                             positionFilter.isValid(world, x, z);
+        }
+
+        return (x, z) -> this.isClearOfPositions(x, z, minSeparation, spreadPositions, playerPositions);
     }
 
     @Nullable
-    private BlockPos findFreeRandomPositionXZ(int minSeparation, int maxRadius, List<BlockPos> existingPositions)
+    private BlockPos findFreeRandomPositionXZ(int maxRadius, IPositionFilter filter)
     {
         for (int i = 0; i < 10000; ++i)
         {
             int x = RAND.nextInt(maxRadius) - RAND.nextInt(maxRadius);
             int z = RAND.nextInt(maxRadius) - RAND.nextInt(maxRadius);
 
-            if (this.isClearOfPositions(x, z, minSeparation, existingPositions))
+            if (filter.isValid(x, z))
             {
                 return new BlockPos(x, 64, z);
             }
@@ -218,67 +483,54 @@ public class SubCommandSpreadPlayer extends SubCommand
         return null;
     }
 
+    /**
+     * Finds the first free grid node in the square spiral around the origin.
+     * The nodes that already have a spread position on them are skipped using the occupancy bitmap,
+     * starting from its cursor. The free nodes that are too close to a stored spread position
+     * or that are rejected by the biome filter get remembered in the occupancy, and are skipped on later searches.
+     * Only the online player positions are always checked again, as the players move around.
+     */
     @Nullable
-    private BlockPos findFreeGridPositionXZ(int gridSize, int minSeparation, int maxRadius, List<BlockPos> existingPositions)
+    private BlockPos findFreeGridPositionXZ(World world, GridOccupancy occupancy, SpreadOptions options,
+                                            SpatialGrid spreadPositions, SpatialGrid playerPositions)
     {
-        int maxR = maxRadius / gridSize;
-
-        for (int r = 1; r <= maxR; ++r)
+        final int gridSize = occupancy.getGridSize();
+        final int minSeparation = options.minSeparation;
+        final int endIndex = GridOccupancy.getNodeCountUpToRing(options.maxRadius / gridSize);
+        final SpreadPositionFilter positionFilter = options.positionFilter;
+        final BitSet blockedNodes = occupancy.getSeparationBlockedNodes(minSeparation);
+        final BitSet rejectedNodes = positionFilter != null ? occupancy.getFilterRejectedNodes(positionFilter) : null;
+
+        for (int index = occupancy.getNextFreeIndex(0); index < endIndex; index = occupancy.getNextFreeIndex(index + 1))
         {
-            // west edge
-            for (int x = -r * gridSize, z = -r * gridSize; z <= r * gridSize; z += gridSize)
+            if (blockedNodes.get(index) || (rejectedNodes != null && rejectedNodes.get(index)))
             {
-                if (this.isClearOfPositions(x, z, minSeparation, existingPositions))
-                {
-                    return new BlockPos(x, 64, z);
-                }
+                continue;
             }
 
-            // south edge
-            for (int x = -r * gridSize, z = r * gridSize; x <= r * gridSize; x += gridSize)
+            int x = GridOccupancy.getNodeX(index) * gridSize;
+            int z = GridOccupancy.getNodeZ(index) * gridSize;
+
+            if (spreadPositions.isClearOf(x, z, minSeparation) == false)
             {
-                if (this.isClearOfPositions(x, z, minSeparation, existingPositions))
-                {
-                    return new BlockPos(x, 64, z);
-                }
+                blockedNodes.set(index);
             }
-
-            // east edge
-            for (int x = r * gridSize, z = r * gridSize; z >= -r * gridSize; z -= gridSize)
+            else if (rejectedNodes != null && positionFilter.isValid(world, x, z) == false)
             {
-                if (this.isClearOfPositions(x, z, minSeparation, existingPositions))
-                {
-                    return new BlockPos(x, 64, z);
-                }
+                rejectedNodes.set(index);
             }
-
-            // north edge
-            for (int x = r * gridSize, z = -r * gridSize; x >= -r * gridSize; x -= gridSize)
+            else if (playerPositions.isClearOf(x, z, minSeparation))
             {
-                if (this.isClearOfPositions(x, z, minSeparation, existingPositions))
-                {
-                    return new BlockPos(x, 64, z);
-                }
+                return new BlockPos(x, 64, z);
             }
         }
 
         return null;
     }
 
-    private boolean isClearOfPositions(int x, int z, int minSeparation, List<BlockPos> existingPositions)
+    private boolean isClearOfPositions(int x, int z, int minSeparation, SpatialGrid spreadPositions, SpatialGrid playerPositions)
     {
-        for (BlockPos pos : existingPositions)
-        {
-            double xDiff = x - pos.getX();
-            double zDiff = z - pos.getZ();
-
-            if ((xDiff * xDiff + zDiff * zDiff) < minSeparation * minSeparation)
-            {
-                return false;
-            }
-        }
-
-        return true;
+        return spreadPositions.isClearOf(x, z, minSeparation) && playerPositions.isClearOf(x, z, minSeparation);
     }
 
     private BlockPos updatePositionY(World world, BlockPos pos, boolean findSurface, int y, int yMin, int yMax, int yOffset)
@@ -289,21 +541,49 @@ public class SubCommandSpreadPlayer extends SubCommand
         }
         else if (findSurface)
         {
-            y = world.getTopSolidOrLiquidBlock(pos).getY() + yOffset;
+            y = this.getAdjustedSurfaceY(world.getTopSolidOrLiquidBlock(pos).getY(), yMin, yMax, yOffset);
+            return new BlockPos(pos.getX(), y, pos.getZ());
+        }
 
-            if (yMin != -1)
-            {
-                y = Math.max(y, yMin);
-            }
+        return pos;
+    }
 
-            if (yMax != -1)
-            {
-                y = Math.min(y, yMax);
-            }
+    private int getAdjustedSurfaceY(int surfaceY, int yMin, int yMax, int yOffset)
+    {
+        int y = surfaceY + yOffset;
 
-            return new BlockPos(pos.getX(), y, pos.getZ());
+        if (yMin != -1)
+        {
+            y = Math.max(y, yMin);
         }
 
-        return pos;
+        if (yMax != -1)
+        {
+            y = Math.min(y, yMax);
+        }
+
+        return y;
+    }
+
+    private static class SpreadOptions
+    {
+        private boolean avoidLiquid = false;
+        private boolean batch = false;
+        private boolean findSurface = true;
+        private boolean updatePosition = false;
+        private int maxRadius = 10000;
+        private int minSeparation = 500;
+        private int y = -1;
+        private int yOffset = 0;
+        private int yMin = -1;
+        private int yMax = -1;
+        private int gridSize = -1;
+        @Nullable private Set<Biome> biomes;
+        @Nullable private SpreadPositionFilter positionFilter;
+    }
+
+    private interface IOption
+    {
+        void apply(SpreadOptions options);
     }
 }
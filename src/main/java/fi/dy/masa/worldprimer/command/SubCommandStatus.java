@@ -0,0 +1,77 @@
+package fi.dy.masa.worldprimer.command;
+
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import fi.dy.masa.worldprimer.command.util.CommandExecutionQueue;
+import fi.dy.masa.worldprimer.command.util.CommandPriority;
+import fi.dy.masa.worldprimer.command.util.CommandScheduler;
+import fi.dy.masa.worldprimer.command.util.ScheduledCommand;
+
+public class SubCommandStatus extends SubCommand
+{
+    public SubCommandStatus(CommandWorldPrimer baseCommand)
+    {
+        super(baseCommand);
+    }
+
+    @Override
+    public String getName()
+    {
+        return "status";
+    }
+
+    @Override
+    public void printHelpGeneric(ICommandSender sender)
+    {
+        this.sendMessage(sender, this.getUsageStringCommon());
+    }
+
+    @Override
+    protected List<String> getTabCompletionsSub(MinecraftServer server, ICommandSender sender, String[] args, @Nullable BlockPos targetPos)
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        if (args.length == 0)
+        {
+            CommandExecutionQueue queue = CommandExecutionQueue.INSTANCE;
+
+            this.sendMessage(sender, String.format("Deferred commands: queue depth: %d (high priority: %d, low priority: %d), " +
+                                                   "max queue depth: %d, total deferred: %d, total dropped: %d",
+                                                   queue.getQueueDepth(),
+                                                   queue.getQueueDepth(CommandPriority.HIGH),
+                                                   queue.getQueueDepth(CommandPriority.LOW),
+                                                   queue.getMaxQueueDepth(),
+                                                   queue.getTotalDeferredCount(),
+                                                   queue.getTotalDroppedCount()));
+
+            List<ScheduledCommand> scheduledCommands = CommandScheduler.INSTANCE.getAllScheduledCommands();
+            this.sendMessage(sender, String.format("Scheduled commands: %d", scheduledCommands.size()));
+
+            for (ScheduledCommand command : scheduledCommands)
+            {
+                if (command.getMissedCount() > 0 || command.getCoalescedCount() > 0)
+                {
+                    this.sendMessage(sender, String.format("  DIM %d, catch-up policy: %s, missed: %d, coalesced: %d - '%s'",
+                                                           command.getDimension(),
+                                                           command.getCatchUpPolicy().getName(),
+                                                           command.getMissedCount(),
+                                                           command.getCoalescedCount(),
+                                                           command.getCommand().getOriginalString()));
+                }
+            }
+        }
+        else
+        {
+            throwUsage(this.getUsageStringCommon());
+        }
+    }
+}
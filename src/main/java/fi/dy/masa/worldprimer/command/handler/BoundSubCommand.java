@@ -0,0 +1,77 @@
+package fi.dy.masa.worldprimer.command.handler;
+
+import javax.annotation.Nullable;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.server.MinecraftServer;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.CommandWorldPrimer;
+import fi.dy.masa.worldprimer.command.IPreparedSubCommand;
+import fi.dy.masa.worldprimer.command.ISubCommand;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+/**
+ * A /worldprimer sub command that was resolved when the command was built,
+ * along with its pre-parsed constant arguments.
+ */
+public class BoundSubCommand
+{
+    protected final ISubCommand subCommand;
+    protected final CommandTemplate argumentTemplate;
+    protected final IPreparedSubCommand preparedCommand;
+
+    protected BoundSubCommand(ISubCommand subCommand, CommandTemplate argumentTemplate)
+    {
+        this.subCommand = subCommand;
+        this.argumentTemplate = argumentTemplate;
+        this.preparedCommand = subCommand.prepare(argumentTemplate.getConstantArguments());
+    }
+
+    public String getName()
+    {
+        return this.subCommand.getName();
+    }
+
+    /**
+     * @return the sub command arguments, or null if the command needs to be executed via the full command string
+     */
+    @Nullable
+    public String[] getArguments(CommandContext ctx)
+    {
+        return this.argumentTemplate.getArguments(ctx);
+    }
+
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException
+    {
+        this.preparedCommand.execute(server, sender, args);
+    }
+
+    /**
+     * Binds the /worldprimer sub command of the given command template, if the template is a
+     * /worldprimer command with a constant and known sub command name.
+     */
+    @Nullable
+    public static BoundSubCommand of(@Nullable CommandTemplate template)
+    {
+        CommandWorldPrimer baseCommand = WorldPrimer.commandWorldPrimer;
+
+        if (template == null || baseCommand == null || template.getCommandName().equals(baseCommand.getName()) == false)
+        {
+            return null;
+        }
+
+        CommandTemplate argumentTemplate = template.getNestedCommandTemplate();
+
+        if (argumentTemplate != null)
+        {
+            ISubCommand subCommand = baseCommand.getSubCommand(argumentTemplate.getCommandName());
+
+            if (subCommand != null)
+            {
+                return new BoundSubCommand(subCommand, argumentTemplate);
+            }
+        }
+
+        return null;
+    }
+}
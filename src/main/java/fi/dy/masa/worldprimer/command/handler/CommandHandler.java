@@ -11,6 +11,8 @@ import fi.dy.masa.worldprimer.command.parser.CommandParser;
 import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
 import fi.dy.masa.worldprimer.command.parser.SubstitutionParser;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.command.util.CommandExecutionQueue;
+import fi.dy.masa.worldprimer.command.util.CommandPriority;
 import fi.dy.masa.worldprimer.config.Configs;
 
 public class CommandHandler
@@ -51,23 +53,31 @@ public class CommandHandler
         type.getCommandList(this).execute(ctx, this.expressionParser);
     }
 
-    public void executeCommand(ParsedCommand command, CommandContext ctx)
+    /**
+     * Executes the commands of the given type with the given priority, instead of the type's own priority
+     */
+    public void executeCommands(CommandType type, CommandContext ctx, CommandPriority priority)
     {
-        command.execute(ctx, this.expressionParser);
+        type.getCommandList(this).execute(ctx, this.expressionParser, priority);
+    }
+
+    public void executeCommand(ParsedCommand command, CommandContext ctx, CommandPriority priority)
+    {
+        CommandExecutionQueue.INSTANCE.execute(command, ctx, this.expressionParser, priority);
     }
 
     public void rebuildCommands()
     {
         for (CommandType type : CommandType.VALUES)
         {
-            CommandList list = this.buildCommandList(type.getName(), type.getConfig());
+            CommandList list = this.buildCommandList(type.getName(), type.getConfig(), type.getPriority());
             type.setCommandList(this, list);
         }
     }
 
-    protected CommandList buildCommandList(String name, String[] originalCommands)
+    protected CommandList buildCommandList(String name, String[] originalCommands, CommandPriority priority)
     {
-        return new CommandList(name, this.buildCommands(name, originalCommands));
+        return new CommandList(name, this.buildCommands(name, originalCommands), priority);
     }
 
     protected ImmutableList<ParsedCommand> buildCommands(String name, String[] originalCommands)
@@ -122,33 +132,36 @@ public class CommandHandler
 
     public enum CommandType
     {
-        DIM_LOADING             ("Dimension Loading Commands",              () -> Configs.dimensionLoadingCommands,            (ch) -> ch.dimensionLoadingCommands,            (ch, cl) -> ch.dimensionLoadingCommands = cl),
-        DIM_UNLOADING           ("Dimension Unloading Commands",            () -> Configs.dimensionUnloadingCommands,          (ch) -> ch.dimensionUnloadingCommands,          (ch, cl) -> ch.dimensionUnloadingCommands = cl),
-        EARLY_WORLD_CREATION    ("Early World Creation Commands",           () -> Configs.earlyWorldCreationCommands,          (ch) -> ch.earlyWorldCreationCommands,          (ch, cl) -> ch.earlyWorldCreationCommands = cl),
-        POST_WORLD_CREATION     ("Early World Loading Commands",            () -> Configs.earlyWorldLoadingCommands,           (ch) -> ch.postWorldCreationCommands,           (ch, cl) -> ch.postWorldCreationCommands = cl),
-        EARLY_WORLD_LOAD        ("Post World Creation Commands",            () -> Configs.postWorldCreationCommands,           (ch) -> ch.earlyWorldLoadingCommands,           (ch, cl) -> ch.earlyWorldLoadingCommands = cl),
-        POST_WORLD_LOAD         ("Post World Loading Commands",             () -> Configs.postWorldLoadingCommands,            (ch) -> ch.postWorldLoadingCommands,            (ch, cl) -> ch.postWorldLoadingCommands = cl),
-        TIMED                   ("Timed Commands",                          () -> Configs.timedCommands,                       (ch) -> ch.timedCommands,                       (ch, cl) -> ch.timedCommands = cl),
-        PLAYER_DIM_ENTER        ("Player Changed Dimension Enter Commands", () -> Configs.playerChangedDimensionEnterCommands, (ch) -> ch.playerChangedDimensionEnterCommands, (ch, cl) -> ch.playerChangedDimensionEnterCommands = cl),
-        PLAYER_DIM_LEAVE        ("Player Changed Dimension Leave Commands", () -> Configs.playerChangedDimensionLeaveCommands, (ch) -> ch.playerChangedDimensionLeaveCommands, (ch, cl) -> ch.playerChangedDimensionLeaveCommands = cl),
-        PLAYER_DEATH            ("Player Death Commands",                   () -> Configs.playerDeathCommands,                 (ch) -> ch.playerDeathCommands,                 (ch, cl) -> ch.playerDeathCommands = cl),
-        PLAYER_JOIN             ("Player Join Commands",                    () -> Configs.playerJoinCommands,                  (ch) -> ch.playerJoinCommands,                  (ch, cl) -> ch.playerJoinCommands = cl),
-        PLAYER_QUIT             ("Player Quit Commands",                    () -> Configs.playerQuitCommands,                  (ch) -> ch.playerQuitCommands,                  (ch, cl) -> ch.playerQuitCommands = cl),
-        PLAYER_RESPAWN          ("Player Respawn Commands",                 () -> Configs.playerRespawnCommands,               (ch) -> ch.playerRespawnCommands,               (ch, cl) -> ch.playerRespawnCommands = cl);
+        DIM_LOADING             ("Dimension Loading Commands",              CommandPriority.IMMEDIATE, () -> Configs.dimensionLoadingCommands,            (ch) -> ch.dimensionLoadingCommands,            (ch, cl) -> ch.dimensionLoadingCommands = cl),
+        DIM_UNLOADING           ("Dimension Unloading Commands",            CommandPriority.IMMEDIATE, () -> Configs.dimensionUnloadingCommands,          (ch) -> ch.dimensionUnloadingCommands,          (ch, cl) -> ch.dimensionUnloadingCommands = cl),
+        EARLY_WORLD_CREATION    ("Early World Creation Commands",           CommandPriority.IMMEDIATE, () -> Configs.earlyWorldCreationCommands,          (ch) -> ch.earlyWorldCreationCommands,          (ch, cl) -> ch.earlyWorldCreationCommands = cl),
+        POST_WORLD_CREATION     ("Early World Loading Commands",            CommandPriority.IMMEDIATE, () -> Configs.earlyWorldLoadingCommands,           (ch) -> ch.postWorldCreationCommands,           (ch, cl) -> ch.postWorldCreationCommands = cl),
+        EARLY_WORLD_LOAD        ("Post World Creation Commands",            CommandPriority.IMMEDIATE, () -> Configs.postWorldCreationCommands,           (ch) -> ch.earlyWorldLoadingCommands,           (ch, cl) -> ch.earlyWorldLoadingCommands = cl),
+        POST_WORLD_LOAD         ("Post World Loading Commands",             CommandPriority.IMMEDIATE, () -> Configs.postWorldLoadingCommands,            (ch) -> ch.postWorldLoadingCommands,            (ch, cl) -> ch.postWorldLoadingCommands = cl),
+        TIMED                   ("Timed Commands",                          CommandPriority.LOW,       () -> Configs.timedCommands,                       (ch) -> ch.timedCommands,                       (ch, cl) -> ch.timedCommands = cl),
+        PLAYER_DIM_ENTER        ("Player Changed Dimension Enter Commands", CommandPriority.HIGH,      () -> Configs.playerChangedDimensionEnterCommands, (ch) -> ch.playerChangedDimensionEnterCommands, (ch, cl) -> ch.playerChangedDimensionEnterCommands = cl),
+        PLAYER_DIM_LEAVE        ("Player Changed Dimension Leave Commands", CommandPriority.HIGH,      () -> Configs.playerChangedDimensionLeaveCommands, (ch) -> ch.playerChangedDimensionLeaveCommands, (ch, cl) -> ch.playerChangedDimensionLeaveCommands = cl),
+        PLAYER_DEATH            ("Player Death Commands",                   CommandPriority.IMMEDIATE, () -> Configs.playerDeathCommands,                 (ch) -> ch.playerDeathCommands,                 (ch, cl) -> ch.playerDeathCommands = cl),
+        PLAYER_JOIN             ("Player Join Commands",                    CommandPriority.HIGH,      () -> Configs.playerJoinCommands,                  (ch) -> ch.playerJoinCommands,                  (ch, cl) -> ch.playerJoinCommands = cl),
+        PLAYER_QUIT             ("Player Quit Commands",                    CommandPriority.IMMEDIATE, () -> Configs.playerQuitCommands,                  (ch) -> ch.playerQuitCommands,                  (ch, cl) -> ch.playerQuitCommands = cl),
+        PLAYER_RESPAWN          ("Player Respawn Commands",                 CommandPriority.HIGH,      () -> Configs.playerRespawnCommands,               (ch) -> ch.playerRespawnCommands,               (ch, cl) -> ch.playerRespawnCommands = cl);
 
         public static final ImmutableList<CommandType> VALUES = ImmutableList.copyOf(values());
 
         private final String name;
+        private final CommandPriority priority;
         private final Supplier<String[]> configSource;
         private final Function<CommandHandler, CommandList> listFetcher;
         private final BiConsumer<CommandHandler, CommandList> listSetter;
 
         CommandType(String name,
+                    CommandPriority priority,
                     Supplier<String[]> configSource,
                     Function<CommandHandler, CommandList> listFetcher,
                     BiConsumer<CommandHandler, CommandList> listSetter)
         {
             this.name = name;
+            this.priority = priority;
             this.configSource = configSource;
             this.listFetcher = listFetcher;
             this.listSetter = listSetter;
@@ -159,6 +172,11 @@ public class CommandHandler
             return this.name;
         }
 
+        public CommandPriority getPriority()
+        {
+            return this.priority;
+        }
+
         private String[] getConfig()
         {
             return this.configSource.get();
@@ -4,25 +4,36 @@ import com.google.common.collect.ImmutableList;
 import fi.dy.masa.worldprimer.WorldPrimer;
 import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.command.util.CommandExecutionQueue;
+import fi.dy.masa.worldprimer.command.util.CommandPriority;
 
 public class CommandList
 {
     protected final String name;
     protected final ImmutableList<ParsedCommand> commands;
+    protected final CommandPriority priority;
 
-    public CommandList(String name, ImmutableList<ParsedCommand> commands)
+    public CommandList(String name, ImmutableList<ParsedCommand> commands, CommandPriority priority)
     {
         this.name = name;
         this.commands = commands;
+        this.priority = priority;
     }
 
     public void execute(CommandContext ctx, ExpressionParser parser)
+    {
+        this.execute(ctx, parser, this.priority);
+    }
+
+    public void execute(CommandContext ctx, ExpressionParser parser, CommandPriority priority)
     {
         WorldPrimer.logInfo("Executing the commands for '{}' (command count: {})", this.name, this.commands.size());
 
+        ctx.clearSubstitutionCache();
+
         for (ParsedCommand cmd : this.commands)
         {
-            cmd.execute(ctx, parser);
+            CommandExecutionQueue.INSTANCE.execute(cmd, ctx, parser, priority);
         }
     }
 
@@ -0,0 +1,274 @@
+package fi.dy.masa.worldprimer.command.handler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import com.google.common.collect.ImmutableList;
+import net.minecraft.command.ICommand;
+import net.minecraft.command.ICommandManager;
+import net.minecraft.server.MinecraftServer;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.command.substitution.PlainString;
+import fi.dy.masa.worldprimer.command.substitution.StringSubstitution;
+
+/**
+ * A pre-split form of a command whose name is a static string.
+ * The static arguments are split once when the command is built, and only the arguments
+ * that contain substitutions are rendered at execution time.
+ * The target ICommand is resolved lazily on the first execution where it is available
+ * from the server's command manager, and it is then re-used as long as the command manager stays the same.
+ */
+public class CommandTemplate
+{
+    protected final String commandName;
+    protected final String[] staticArguments;
+    protected final StringSubstitution[][] dynamicArguments;
+    protected final boolean hasDynamicArguments;
+    @Nullable protected StringBuilder renderBuffer;
+    @Nullable protected ICommandManager resolvedCommandManager;
+    @Nullable protected ICommand command;
+
+    protected CommandTemplate(String commandName, String[] staticArguments, StringSubstitution[][] dynamicArguments)
+    {
+        this.commandName = commandName;
+        this.staticArguments = staticArguments;
+        this.dynamicArguments = dynamicArguments;
+        this.hasDynamicArguments = Arrays.stream(dynamicArguments).anyMatch((arg) -> arg != null);
+    }
+
+    public String getCommandName()
+    {
+        return this.commandName;
+    }
+
+    /**
+     * @return the arguments of the command, where the arguments containing substitutions are null
+     */
+    public String[] getConstantArguments()
+    {
+        return this.staticArguments.clone();
+    }
+
+    /**
+     * Creates a template for a nested command, where the first argument is the command name.
+     * @return the nested command template, or null if the first argument is missing or contains substitutions
+     */
+    @Nullable
+    public CommandTemplate getNestedCommandTemplate()
+    {
+        if (this.staticArguments.length == 0 || this.staticArguments[0] == null)
+        {
+            return null;
+        }
+
+        final int count = this.staticArguments.length;
+
+        return new CommandTemplate(this.staticArguments[0],
+                                   Arrays.copyOfRange(this.staticArguments, 1, count),
+                                   Arrays.copyOfRange(this.dynamicArguments, 1, count));
+    }
+
+    /**
+     * @return the target command, or null if there is no command by this name
+     *         registered in the server's command manager (at least yet)
+     */
+    @Nullable
+    public ICommand getCommand(MinecraftServer server)
+    {
+        ICommandManager manager = server.getCommandManager();
+
+        if (manager != this.resolvedCommandManager)
+        {
+            this.command = manager.getCommands().get(this.commandName);
+            // Don't cache a failed lookup, so that commands registered later will get resolved
+            this.resolvedCommandManager = this.command != null ? manager : null;
+        }
+
+        return this.command;
+    }
+
+    /**
+     * Returns the command arguments, split the same way as the command manager would split
+     * the full command string. If any of the substituted arguments contain a space,
+     * then null is returned, and the command needs to be executed via the full command string.
+     */
+    @Nullable
+    public String[] getArguments(CommandContext ctx)
+    {
+        if (this.hasDynamicArguments == false)
+        {
+            return this.staticArguments.clone();
+        }
+
+        final int count = this.staticArguments.length;
+        String[] args = new String[count];
+        int lastNonEmpty = -1;
+
+        for (int i = 0; i < count; ++i)
+        {
+            StringSubstitution[] parts = this.dynamicArguments[i];
+            String arg;
+
+            if (parts == null)
+            {
+                arg = this.staticArguments[i];
+            }
+            else if (parts.length == 1)
+            {
+                arg = parts[0].evaluate(ctx);
+            }
+            else
+            {
+                arg = this.renderArgument(parts, ctx);
+            }
+
+            if (parts != null && arg.indexOf(' ') != -1)
+            {
+                return null;
+            }
+
+            if (arg.isEmpty() == false)
+            {
+                lastNonEmpty = i;
+            }
+
+            args[i] = arg;
+        }
+
+        // String.split() drops the trailing empty strings
+        return lastNonEmpty == count - 1 ? args : Arrays.copyOf(args, lastNonEmpty + 1);
+    }
+
+    protected String renderArgument(StringSubstitution[] parts, CommandContext ctx)
+    {
+        if (this.renderBuffer == null)
+        {
+            this.renderBuffer = new StringBuilder(32);
+        }
+
+        StringBuilder sb = this.renderBuffer;
+
+        for (StringSubstitution part : parts)
+        {
+            sb.append(part.evaluate(ctx));
+        }
+
+        String str = sb.toString();
+        sb.setLength(0);
+
+        return str;
+    }
+
+    /**
+     * Creates a command template for the given command parts, if the command name is a static string.
+     * @return the template, or null if the command name is not fully static
+     */
+    @Nullable
+    public static CommandTemplate of(ImmutableList<StringSubstitution> commandParts)
+    {
+        if (commandParts.isEmpty() || (commandParts.get(0) instanceof PlainString) == false)
+        {
+            return null;
+        }
+
+        List<List<StringSubstitution>> arguments = new ArrayList<>();
+        List<StringSubstitution> currentArgument = new ArrayList<>();
+        StringBuilder currentStatic = new StringBuilder();
+
+        for (StringSubstitution part : commandParts)
+        {
+            if (part instanceof PlainString)
+            {
+                String str = ((PlainString) part).getString();
+                int start = 0;
+                int end;
+
+                while ((end = str.indexOf(' ', start)) != -1)
+                {
+                    currentStatic.append(str, start, end);
+                    finishArgument(arguments, currentArgument, currentStatic);
+                    currentArgument = new ArrayList<>();
+                    start = end + 1;
+                }
+
+                currentStatic.append(str, start, str.length());
+            }
+            else
+            {
+                if (currentStatic.length() > 0)
+                {
+                    currentArgument.add(new PlainString(currentStatic.toString()));
+                    currentStatic.setLength(0);
+                }
+
+                currentArgument.add(part);
+            }
+        }
+
+        finishArgument(arguments, currentArgument, currentStatic);
+
+        // The command string gets trimmed by the command manager
+        while (arguments.size() > 1 && arguments.get(arguments.size() - 1).isEmpty())
+        {
+            arguments.remove(arguments.size() - 1);
+        }
+
+        List<StringSubstitution> nameParts = arguments.get(0);
+
+        // The command name must be fully static
+        if (nameParts.size() != 1 || (nameParts.get(0) instanceof PlainString) == false)
+        {
+            return null;
+        }
+
+        String name = ((PlainString) nameParts.get(0)).getString();
+
+        if (name.startsWith("/"))
+        {
+            name = name.substring(1);
+        }
+
+        if (name.isEmpty())
+        {
+            return null;
+        }
+
+        final int count = arguments.size() - 1;
+        String[] staticArguments = new String[count];
+        StringSubstitution[][] dynamicArguments = new StringSubstitution[count][];
+
+        for (int i = 0; i < count; ++i)
+        {
+            List<StringSubstitution> parts = arguments.get(i + 1);
+
+            if (parts.isEmpty())
+            {
+                staticArguments[i] = "";
+            }
+            else if (parts.size() == 1 && parts.get(0) instanceof PlainString)
+            {
+                staticArguments[i] = ((PlainString) parts.get(0)).getString();
+            }
+            else
+            {
+                dynamicArguments[i] = parts.toArray(new StringSubstitution[0]);
+            }
+        }
+
+        return new CommandTemplate(name, staticArguments, dynamicArguments);
+    }
+
+    private static void finishArgument(List<List<StringSubstitution>> arguments,
+                                       List<StringSubstitution> currentArgument,
+                                       StringBuilder currentStatic)
+    {
+        if (currentStatic.length() > 0)
+        {
+            currentArgument.add(new PlainString(currentStatic.toString()));
+            currentStatic.setLength(0);
+        }
+
+        arguments.add(currentArgument);
+    }
+}
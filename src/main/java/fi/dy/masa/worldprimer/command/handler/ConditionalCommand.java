@@ -30,7 +30,7 @@ public class ConditionalCommand extends ParsedCommand
     {
         try
         {
-            if (this.conditionExpression.evaluateAsBoolean(ctx, parser))
+            if (this.conditionExpression.evaluateAsBoolean(ctx))
             {
                 super.execute(ctx, parser);
             }
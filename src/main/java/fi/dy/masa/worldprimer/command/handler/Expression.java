@@ -1,23 +1,20 @@
 package fi.dy.masa.worldprimer.command.handler;
 
-import java.util.List;
-import javax.annotation.Nullable;
-import net.minecraft.command.SyntaxErrorException;
-import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
-import fi.dy.masa.worldprimer.command.parser.token.Token;
-import fi.dy.masa.worldprimer.command.parser.token.TokenCategory;
-import fi.dy.masa.worldprimer.command.parser.token.TokenType;
+import fi.dy.masa.worldprimer.command.parser.node.ExpressionNode;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
 import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
 
 public class Expression
 {
-    protected final List<Token> tokens;
+    protected final ExpressionNode rootNode;
     protected final String originalString;
 
-    public Expression(List<Token> tokens, String originalString)
+    public Expression(ExpressionNode rootNode, String originalString)
     {
-        this.tokens = tokens;
+        this.rootNode = rootNode;
         this.originalString = originalString;
     }
 
@@ -26,39 +23,49 @@ public class Expression
         return this.originalString;
     }
 
-    @Nullable
-    protected Token reduceAndSubstitute(CommandContext ctx, ExpressionParser parser) throws SyntaxErrorException
+    public boolean evaluateAsBoolean(CommandContext ctx)
     {
-        List<Token> tokens = this.tokens;
+        ValueType type = this.rootNode.getValueType();
 
-        if (tokens.size() > 1)
+        try
         {
-            tokens = parser.reduceRpn(tokens, ctx);
+            if (type == ValueType.BOOLEAN)
+            {
+                return this.rootNode.evaluateAsBoolean(ctx);
+            }
+            else if (type == ValueType.UNKNOWN)
+            {
+                Value value = this.rootNode.evaluate(ctx);
+                return value instanceof BooleanValue && ((BooleanValue) value).getValue();
+            }
         }
+        catch (UnresolvedValueException ignore) {}
 
-        if (tokens.size() == 1)
-        {
-            return parser.getSubstitutedValueToken(tokens.get(0), ctx);
-        }
-
-        return null;
+        return false;
     }
 
-    public boolean evaluateAsBoolean(CommandContext ctx, ExpressionParser parser) throws SyntaxErrorException
+    public String evaluateAsString(CommandContext ctx)
     {
-        Token token = this.reduceAndSubstitute(ctx, parser);
-        return token != null && token.getType() == TokenType.CONST_BOOLEAN &&
-               ((BooleanValue) token.getValue()).getValue();
-    }
+        ValueType type = this.rootNode.getValueType();
 
-    public String evaluateAsString(CommandContext ctx, ExpressionParser parser) throws SyntaxErrorException
-    {
-        Token token = this.reduceAndSubstitute(ctx, parser);
-
-        if (token != null && token.getType().getTokenCategory() == TokenCategory.CONSTANT_VALUE)
+        try
         {
-            return token.getValue().toString();
+            if (type == ValueType.INT)
+            {
+                return String.valueOf(this.rootNode.evaluateAsInt(ctx));
+            }
+            else if (type == ValueType.DOUBLE)
+            {
+                return String.valueOf(this.rootNode.evaluateAsDouble(ctx));
+            }
+            else if (type == ValueType.BOOLEAN)
+            {
+                return String.valueOf(this.rootNode.evaluateAsBoolean(ctx));
+            }
+
+            return this.rootNode.evaluate(ctx).toString();
         }
+        catch (UnresolvedValueException ignore) {}
 
         return this.originalString;
     }
@@ -10,6 +10,7 @@ import net.minecraft.world.World;
 import fi.dy.masa.worldprimer.WorldPrimer;
 import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.command.substitution.PlainString;
 import fi.dy.masa.worldprimer.command.substitution.StringSubstitution;
 import fi.dy.masa.worldprimer.command.util.WorldPrimerCommandSender;
 
@@ -21,11 +22,18 @@ public class ParsedCommand
     @Nullable protected final Function<CommandContext, ICommandSender> senderFunction;
     @Nullable protected final Function<CommandContext, Entity> senderEntityFunction;
     @Nullable protected final Function<CommandContext, String> senderNameFunction;
+    @Nullable protected final CommandTemplate commandTemplate;
+    @Nullable protected final BoundSubCommand subCommand;
+    protected final int initialBufferSize;
+    @Nullable protected StringBuilder renderBuffer;
 
     public ParsedCommand(ImmutableList<StringSubstitution> commandParts, String originalString, Builder builder)
     {
         this.commandParts = commandParts;
         this.originalString = originalString;
+        this.initialBufferSize = getInitialBufferSize(commandParts);
+        this.commandTemplate = builder.commandTemplate;
+        this.subCommand = builder.subCommand;
         this.executionWorldFunction = builder.executionWorldFunction;
         this.senderFunction = builder.senderFunction;
         this.senderEntityFunction = builder.senderEntityFunction;
@@ -44,14 +52,39 @@ public class ParsedCommand
             return this.commandParts.get(0).evaluate(ctx);
         }
 
-        StringBuilder sb = new StringBuilder();
+        // The commands are only ever executed on the server thread, and the rendering
+        // doesn't execute any other commands, so the same buffer can be re-used for every execution.
+        if (this.renderBuffer == null)
+        {
+            this.renderBuffer = new StringBuilder(this.initialBufferSize);
+        }
+
+        StringBuilder sb = this.renderBuffer;
 
         for (StringSubstitution provider : this.commandParts)
         {
             sb.append(provider.evaluate(ctx));
         }
 
-        return sb.toString();
+        String str = sb.toString();
+        sb.setLength(0);
+
+        return str;
+    }
+
+    /**
+     * @return the total length of the plain string parts, plus an estimate for the substituted parts
+     */
+    protected static int getInitialBufferSize(ImmutableList<StringSubstitution> commandParts)
+    {
+        int size = 0;
+
+        for (StringSubstitution part : commandParts)
+        {
+            size += part instanceof PlainString ? ((PlainString) part).getString().length() : 16;
+        }
+
+        return size;
     }
 
     protected String getExecutionDebugMessage(String commandStr, String originalStr)
@@ -71,6 +104,18 @@ public class ParsedCommand
         WorldPrimer.logInfo(this.getExecutionDebugMessage(commandStr, originalStr));
     }
 
+    /**
+     * Logs the same execution debug message as for the full command strings, for the commands
+     * that are executed directly with pre-split arguments, by rendering the command string from those arguments.
+     */
+    public void logDirectExecution(String commandName, String[] args)
+    {
+        String prefix = this.originalString.startsWith("/") ? "/" : "";
+        String commandStr = args.length > 0 ? prefix + commandName + " " + String.join(" ", args) : prefix + commandName;
+
+        this.logExecutionDebugMessage(commandStr, this.getOriginalString());
+    }
+
     @Nullable
     public World getExecutionWorld(CommandContext ctx)
     {
@@ -97,6 +142,18 @@ public class ParsedCommand
 
     public void execute(CommandContext ctx, ExpressionParser parser)
     {
+        if (this.subCommand != null &&
+            WorldPrimerCommandSender.INSTANCE.executeSubCommand(this, this.subCommand, ctx))
+        {
+            return;
+        }
+
+        if (this.commandTemplate != null &&
+            WorldPrimerCommandSender.INSTANCE.executeCommand(this, this.commandTemplate, ctx))
+        {
+            return;
+        }
+
         String commandStr = this.getCommand(ctx);
         this.logExecutionDebugMessage(commandStr, this.getOriginalString());
         WorldPrimerCommandSender.INSTANCE.executeCommand(this, commandStr, ctx);
@@ -123,6 +180,8 @@ public class ParsedCommand
         @Nullable protected Function<CommandContext, ICommandSender> senderFunction;
         @Nullable protected Function<CommandContext, Entity> senderEntityFunction;
         @Nullable protected Function<CommandContext, String> senderNameFunction;
+        @Nullable protected CommandTemplate commandTemplate;
+        @Nullable protected BoundSubCommand subCommand;
 
         public Builder()
         {
@@ -152,6 +211,18 @@ public class ParsedCommand
             return this;
         }
 
+        public Builder withCommandTemplate(@Nullable CommandTemplate commandTemplate)
+        {
+            this.commandTemplate = commandTemplate;
+            return this;
+        }
+
+        public Builder withSubCommand(@Nullable BoundSubCommand subCommand)
+        {
+            this.subCommand = subCommand;
+            return this;
+        }
+
         public ParsedCommand build(ImmutableList<StringSubstitution> commandParts, String originalString)
         {
             return new ParsedCommand(commandParts, originalString, this);
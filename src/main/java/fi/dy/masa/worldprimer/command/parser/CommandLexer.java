@@ -0,0 +1,256 @@
+package fi.dy.masa.worldprimer.command.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.handler.Expression;
+import fi.dy.masa.worldprimer.command.substitution.BaseSubstitution;
+
+/**
+ * Splits a command string into plain string, substitution and arithmetic expression segments.
+ * The matching curly braces and parentheses are first resolved with one pass over the string,
+ * after which the segments are read in a second pass, without ever re-scanning any part of the string.
+ * The escape sequences in the plain string segments are unescaped while reading them:
+ * <pre>
+ * \{   => {
+ * $\(  => $(
+ * $\\( => $\(
+ * </pre>
+ */
+public class CommandLexer
+{
+    protected final SubstitutionParser substitutionParser;
+    protected final ExpressionParser expressionParser;
+
+    public CommandLexer(SubstitutionParser substitutionParser, ExpressionParser expressionParser)
+    {
+        this.substitutionParser = substitutionParser;
+        this.expressionParser = expressionParser;
+    }
+
+    /**
+     * Reads all the segments from the current position of the reader to the end of the string.
+     * The reader position is moved to the end of the string.
+     */
+    public List<Segment> readSegments(StringReader reader)
+    {
+        final int startPos = reader.getPos();
+        final int length = reader.getLength();
+        final int count = length - startPos;
+        List<Segment> segments = new ArrayList<>();
+
+        if (count <= 0)
+        {
+            return segments;
+        }
+
+        // The end positions of valid substitution regions and parenthesis pairs, indexed by their start position
+        int[] substitutionEnds = new int[count];
+        int[] parenthesisEnds = new int[count];
+        final int lastSubstitutionStart = this.findRegions(reader, startPos, substitutionEnds, parenthesisEnds);
+
+        StringBuilder plain = new StringBuilder();
+        int plainStart = startPos;
+        int pos = startPos;
+
+        while (pos < length)
+        {
+            final char c = reader.peekAt(pos);
+            final int index = pos - startPos;
+
+            // Arithmetic expressions are only recognized if there are substitutions at or after their start
+            if (c == '$' && reader.peekAt(pos + 1) == '(' &&
+                parenthesisEnds[index + 1] != -1 && pos <= lastSubstitutionStart)
+            {
+                int end = parenthesisEnds[index + 1];
+                Expression expression = this.readExpression(reader, pos + 2, end - 1);
+
+                if (expression != null)
+                {
+                    this.addPlainSegment(segments, plain, plainStart, pos - 1);
+                    segments.add(Segment.expression(new Region(pos, end), expression));
+                    pos = end + 1;
+                    plainStart = pos;
+                    continue;
+                }
+            }
+            else if (c == '{' && substitutionEnds[index] != -1)
+            {
+                int end = substitutionEnds[index];
+                String nameAndArgs = reader.subString(pos + 1, end - 1);
+                BaseSubstitution substitution = this.substitutionParser.getSubstitutionFor(nameAndArgs, true);
+
+                if (substitution != null)
+                {
+                    this.addPlainSegment(segments, plain, plainStart, pos - 1);
+                    segments.add(Segment.substitution(new Region(pos, end), substitution));
+                    pos = end + 1;
+                    plainStart = pos;
+                    continue;
+                }
+            }
+            else if (c == '\\' && reader.peekAt(pos + 1) == '{')
+            {
+                plain.append('{');
+                pos += 2;
+                continue;
+            }
+            else if (c == '$' && reader.peekAt(pos + 1) == '\\')
+            {
+                if (reader.peekAt(pos + 2) == '(')
+                {
+                    plain.append("$(");
+                    pos += 3;
+                    continue;
+                }
+                else if (reader.peekAt(pos + 2) == '\\' && reader.peekAt(pos + 3) == '(')
+                {
+                    plain.append("$\\(");
+                    pos += 4;
+                    continue;
+                }
+            }
+
+            plain.append(c);
+            ++pos;
+        }
+
+        this.addPlainSegment(segments, plain, plainStart, length - 1);
+        reader.setPosToEnd();
+
+        return segments;
+    }
+
+    /**
+     * Finds the matching pairs of non-escaped curly braces and parentheses.
+     * The end positions of the valid substitution regions and of the parenthesis pairs
+     * are stored in the given arrays, indexed by their start position relative to startPos.
+     * Unmatched or invalid start positions will have the value -1.
+     * @return the start position of the last valid substitution region, or -1 if there are none
+     */
+    protected int findRegions(StringReader reader, int startPos, int[] substitutionEnds, int[] parenthesisEnds)
+    {
+        final int count = substitutionEnds.length;
+        int[] braceStack = new int[count];
+        int[] parenthesisStack = new int[count];
+        int braceStackSize = 0;
+        int parenthesisStackSize = 0;
+        int lastSubstitutionStart = -1;
+
+        Arrays.fill(substitutionEnds, -1);
+        Arrays.fill(parenthesisEnds, -1);
+
+        for (int pos = startPos; pos < startPos + count; ++pos)
+        {
+            char c = reader.peekAt(pos);
+
+            if (c == '{' && reader.peekAt(pos - 1) != '\\')
+            {
+                braceStack[braceStackSize++] = pos;
+            }
+            else if (c == '}' && braceStackSize > 0)
+            {
+                int start = braceStack[--braceStackSize];
+
+                if (this.substitutionParser.isValidSubstitutionRegion(reader, start, pos))
+                {
+                    substitutionEnds[start - startPos] = pos;
+                    lastSubstitutionStart = Math.max(lastSubstitutionStart, start);
+                }
+            }
+            else if (c == '(')
+            {
+                parenthesisStack[parenthesisStackSize++] = pos;
+            }
+            else if (c == ')' && parenthesisStackSize > 0)
+            {
+                int start = parenthesisStack[--parenthesisStackSize];
+                parenthesisEnds[start - startPos] = pos;
+            }
+        }
+
+        return lastSubstitutionStart;
+    }
+
+    @Nullable
+    protected Expression readExpression(StringReader reader, int start, int end)
+    {
+        StringReader subReader = reader.subReader(start, end);
+
+        try
+        {
+            return this.expressionParser.parseAndReduceToExpression(subReader);
+        }
+        catch (Exception e)
+        {
+            WorldPrimer.logInfo("CommandLexer.readExpression(): Failed to parse expression '{}' " +
+                                "(this may not be an error, depending on your command string structure)",
+                                subReader.getString());
+        }
+
+        return null;
+    }
+
+    protected void addPlainSegment(List<Segment> segments, StringBuilder plain, int start, int end)
+    {
+        if (plain.length() > 0)
+        {
+            segments.add(Segment.plain(new Region(start, end), plain.toString()));
+            plain.setLength(0);
+        }
+    }
+
+    public enum SegmentType
+    {
+        PLAIN,
+        SUBSTITUTION,
+        EXPRESSION
+    }
+
+    public static class Segment
+    {
+        public final SegmentType type;
+        public final Region region;
+        @Nullable public final String string;
+        @Nullable public final BaseSubstitution substitution;
+        @Nullable public final Expression expression;
+
+        protected Segment(SegmentType type, Region region,
+                          @Nullable String string,
+                          @Nullable BaseSubstitution substitution,
+                          @Nullable Expression expression)
+        {
+            this.type = type;
+            this.region = region;
+            this.string = string;
+            this.substitution = substitution;
+            this.expression = expression;
+        }
+
+        /**
+         * @param string the already unescaped string
+         */
+        public static Segment plain(Region region, String string)
+        {
+            return new Segment(SegmentType.PLAIN, region, string, null, null);
+        }
+
+        public static Segment substitution(Region region, BaseSubstitution substitution)
+        {
+            return new Segment(SegmentType.SUBSTITUTION, region, null, substitution, null);
+        }
+
+        public static Segment expression(Region region, Expression expression)
+        {
+            return new Segment(SegmentType.EXPRESSION, region, null, null, expression);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("Segment{type=%s,region=%s}", this.type, this.region);
+        }
+    }
+}
@@ -4,16 +4,16 @@ import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
-import org.apache.commons.lang3.tuple.Pair;
 import com.google.common.collect.ImmutableList;
 import net.minecraft.command.SyntaxErrorException;
 import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.handler.BoundSubCommand;
+import fi.dy.masa.worldprimer.command.handler.CommandTemplate;
 import fi.dy.masa.worldprimer.command.handler.ConditionalCommand;
 import fi.dy.masa.worldprimer.command.handler.Expression;
 import fi.dy.masa.worldprimer.command.handler.ParsedCommand;
 import fi.dy.masa.worldprimer.command.parser.token.Token;
 import fi.dy.masa.worldprimer.command.substitution.ArithmeticExpression;
-import fi.dy.masa.worldprimer.command.substitution.BaseSubstitution;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
 import fi.dy.masa.worldprimer.command.substitution.PlainString;
 import fi.dy.masa.worldprimer.command.substitution.StringSubstitution;
@@ -79,7 +79,7 @@ public class CommandParser
                 {
                     reader.movePos(endIndex + 1);
                     reader.skipNextSpaces();
-                    return new Expression(tokens, conditionString);
+                    return new Expression(expressionParser.buildExpressionTree(tokens), conditionString);
                 }
             }
         }
@@ -95,47 +95,21 @@ public class CommandParser
     {
         ImmutableList.Builder<StringSubstitution> builder = ImmutableList.builder();
         final int startPos = reader.getPos();
-        int unconsumedStartPos = startPos;
+        CommandLexer lexer = new CommandLexer(substitutionParser, expressionParser);
 
-        while (reader.canRead())
+        for (CommandLexer.Segment segment : lexer.readSegments(reader))
         {
-            Region substitutionRegion = substitutionParser.getNextSubstitutionRegion(reader);
-
-            // No more substitutions, add the rest of the command string as-is
-            if (substitutionRegion == null)
+            if (segment.type == CommandLexer.SegmentType.SUBSTITUTION)
             {
-                if (unconsumedStartPos < reader.getLength())
-                {
-                    builder.add(this.plainString(reader, unconsumedStartPos));
-                }
-
-                break;
+                builder.add(segment.substitution);
             }
-
-            Pair<Region, Expression> pair = this.getArithmeticExpression(reader, substitutionRegion,
-                                                                         unconsumedStartPos, expressionParser);
-
-            // Found an arithmetic expression encompassing the next substitution
-            if (pair != null)
+            else if (segment.type == CommandLexer.SegmentType.EXPRESSION)
             {
-                //System.out.printf("CommandParser.getCommand(): Arithmetic Region: [%d, %d], expression: '%s'\n", pair.getLeft().start, pair.getLeft().end, pair.getRight().getOriginalString());
-                StringSubstitution substitution = new ArithmeticExpression(pair.getRight(), expressionParser);
-                unconsumedStartPos = this.addAndAdvance(pair.getLeft(), substitution, builder, reader, unconsumedStartPos);
+                builder.add(new ArithmeticExpression(segment.expression));
             }
-            // Just a plain substitution
             else
             {
-                BaseSubstitution substitution = substitutionParser.getSubstitutionForFullRegion(reader, substitutionRegion, true);
-
-                if (substitution != null)
-                {
-                    //System.out.printf("CommandParser.getCommand(): Substitution: [%d, %d], sub: '%s'\n", substitutionRegion.start, substitutionRegion.end, substitution.getOriginalFullSubstitutionString());
-                    unconsumedStartPos = this.addAndAdvance(substitutionRegion, substitution, builder, reader, unconsumedStartPos);
-                }
-                else
-                {
-                    reader.skip();
-                }
+                builder.add(new PlainString(segment.string));
             }
         }
 
@@ -143,41 +117,33 @@ public class CommandParser
 
         if (parts.isEmpty() == false)
         {
+            this.bindCommand(parts, commandBuilder);
             return new ParsedCommand(parts, reader.subString(startPos), commandBuilder);
         }
 
         return null;
     }
 
-    protected int addAndAdvance(Region region, StringSubstitution substitution,
-                                ImmutableList.Builder<StringSubstitution> builder,
-                                StringReader reader, int unconsumedStartPos)
+    /**
+     * Pre-splits the command, if the command name is constant, so that it can be executed
+     * directly without parsing the full command string again on every execution.
+     * The /worldprimer sub commands are bound directly to the sub command instances.
+     */
+    protected void bindCommand(ImmutableList<StringSubstitution> parts, ParsedCommand.Builder commandBuilder)
     {
-        // Add the part of the string before the substitution or arithmetic expression region starts
-        if (region.start > unconsumedStartPos)
+        CommandTemplate template = CommandTemplate.of(parts);
+        BoundSubCommand subCommand = BoundSubCommand.of(template);
+
+        if (subCommand != null)
         {
-            builder.add(this.plainString(reader, unconsumedStartPos, region.start - 1));
+            commandBuilder.withSubCommand(subCommand);
+        }
+        // The worldprimer commands are executed directly via the full command string,
+        // because the command isn't registered yet when the dimensions first load during server start.
+        else if (template != null && template.getCommandName().equals("worldprimer") == false)
+        {
+            commandBuilder.withCommandTemplate(template);
         }
-
-        builder.add(substitution);
-        unconsumedStartPos = region.end + 1;
-        reader.setPos(unconsumedStartPos);
-
-        return unconsumedStartPos;
-    }
-
-    protected PlainString plainString(StringReader reader, int startPos)
-    {
-        return this.plainString(reader, startPos, reader.getLength() - 1);
-    }
-
-    protected PlainString plainString(StringReader reader, int startPos, int endPos)
-    {
-        String str = reader.subString(startPos, endPos);
-        str = str.replaceAll("\\$\\\\\\(", "\\$("); // $\( => $(
-        str = str.replaceAll("\\$\\\\\\\\\\(", "\\$\\\\("); // $\\( => $\(
-        str = str.replaceAll("\\\\\\{", "{"); // \{ => {
-        return new PlainString(str);
     }
 
     protected ParsedCommand.Builder getCommandPrefixes(StringReader reader)
@@ -267,63 +233,6 @@ public class CommandParser
         return null;
     }
 
-    @Nullable
-    protected Pair<Region, Expression> getArithmeticExpression(StringReader reader, Region substitutionRegion,
-                                                               int minimumPos, ExpressionParser expressionParser)
-    {
-        final int regStartPos = reader.getString().indexOf("$(", minimumPos);
-
-        // The next arithmetic expression starts after the next/currently parsed substitution
-        if (regStartPos > substitutionRegion.start)
-        {
-            return null;
-        }
-
-        int pos = regStartPos + 2;
-        int nesting = 1;
-
-        while (reader.canPeekAt(pos))
-        {
-            char c = reader.peekAt(pos);
-
-            if (c == ')' && --nesting <= 0)
-            {
-                break;
-            }
-            else if (c == '(')
-            {
-                ++nesting;
-            }
-
-            ++pos;
-        }
-
-        // Found a matching closing parenthesis
-        if (nesting == 0)
-        {
-            final int regEndPos = pos;
-            StringReader subReader = reader.subReader(regStartPos + 2, regEndPos - 1);
-
-            try
-            {
-                Expression expression = expressionParser.parseAndReduceToExpression(subReader);
-
-                if (expression != null)
-                {
-                    return Pair.of(new Region(regStartPos, regEndPos), expression);
-                }
-            }
-            catch (Exception e)
-            {
-                WorldPrimer.logInfo("CommandParser.getArithmeticExpression(): Failed to parse expression '{}' " +
-                                    "(this may not be an error, depending on your command string structure)",
-                                    subReader.getString());
-            }
-        }
-
-        return null;
-    }
-
     protected void csn(ParsedCommand.Builder builder, String arg)
     {
         builder.withSenderNameFunction((ctx) -> arg);
@@ -9,6 +9,15 @@ import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import net.minecraft.command.SyntaxErrorException;
 import fi.dy.masa.worldprimer.command.handler.Expression;
+import fi.dy.masa.worldprimer.command.parser.node.ArithmeticNode;
+import fi.dy.masa.worldprimer.command.parser.node.BooleanOperatorNode;
+import fi.dy.masa.worldprimer.command.parser.node.ConstantNode;
+import fi.dy.masa.worldprimer.command.parser.node.EqualityNode;
+import fi.dy.masa.worldprimer.command.parser.node.ExpressionNode;
+import fi.dy.masa.worldprimer.command.parser.node.NegationNode;
+import fi.dy.masa.worldprimer.command.parser.node.NotNode;
+import fi.dy.masa.worldprimer.command.parser.node.RelationNode;
+import fi.dy.masa.worldprimer.command.parser.node.SubstitutionNode;
 import fi.dy.masa.worldprimer.command.parser.token.ArithmeticBinaryOperatorToken;
 import fi.dy.masa.worldprimer.command.parser.token.BooleanBinaryOperatorToken;
 import fi.dy.masa.worldprimer.command.parser.token.EqualityOperatorToken;
@@ -20,8 +29,8 @@ import fi.dy.masa.worldprimer.command.parser.token.ValueToken;
 import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
 import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
 import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.command.substitution.BaseSubstitution;
-import fi.dy.masa.worldprimer.command.substitution.CommandContext;
 
 public class ExpressionParser
 {
@@ -69,8 +78,8 @@ public class ExpressionParser
     public Expression parseAndReduceToExpression(StringReader reader) throws SyntaxErrorException
     {
         StringTokenizer tokenizer = new StringTokenizer(this.substitutionParser, reader);
-        List<Token> tokens = this.parseToRpn(tokenizer::readNextToken);
-        return tokens.isEmpty() == false ? new Expression(tokens, reader.getString()) : null;
+        List<Token> tokens = this.parseAndReduceToRpn(tokenizer);
+        return tokens.isEmpty() == false ? new Expression(this.buildExpressionTree(tokens), reader.getString()) : null;
     }
 
     public List<Token> parseAndReduceToRpn(StringTokenizer tokenizer) throws SyntaxErrorException
@@ -147,6 +156,12 @@ public class ExpressionParser
 
                 operatorStack.push(token);
             }
+            // The unary operators are all prefix operators with the highest precedence,
+            // they get popped by the following binary operators or the closing parenthesis
+            else if (type.getArgumentCount() == 1)
+            {
+                operatorStack.push(token);
+            }
             else if (type == TokenType.LEFT_PAREN)
             {
                 operatorStack.push(token);
@@ -189,11 +204,6 @@ public class ExpressionParser
     }
 
     public List<Token> reduceRpn(List<Token> tokenQueue) throws SyntaxErrorException
-    {
-        return this.reduceRpn(tokenQueue, null);
-    }
-
-    public List<Token> reduceRpn(List<Token> tokenQueue, @Nullable CommandContext ctx) throws SyntaxErrorException
     {
         List<Token> reducedTokens = new ArrayList<>(tokenQueue);
 
@@ -209,7 +219,7 @@ public class ExpressionParser
             if (i >= 1 && operatorTokenType.getArgumentCount() == 1)
             {
                 //System.out.printf("try unary reduce for op %s\n", operatorToken);
-                Token valueToken1 = this.getSubstitutedValueToken(reducedTokens.get(i - 1), ctx);
+                Token valueToken1 = reducedTokens.get(i - 1);
                 Token reducedToken = this.reduceUnaryValue(operatorToken, valueToken1);
 
                 if (reducedToken != null)
@@ -223,8 +233,8 @@ public class ExpressionParser
             else if (i >= 2 && operatorToken.getType().getArgumentCount() == 2)
             {
                 //System.out.printf("try binary reduce for op %s\n", operatorToken);
-                Token valueToken1 = this.getSubstitutedValueToken(reducedTokens.get(i - 2), ctx);
-                Token valueToken2 = this.getSubstitutedValueToken(reducedTokens.get(i - 1), ctx);
+                Token valueToken1 = reducedTokens.get(i - 2);
+                Token valueToken2 = reducedTokens.get(i - 1);
                 Token reducedToken = this.reduceBinaryValue(operatorToken, valueToken1, valueToken2);
 
                 if (reducedToken != null)
@@ -241,23 +251,123 @@ public class ExpressionParser
         return reducedTokens;
     }
 
-    public Token getSubstitutedValueToken(Token valueToken, @Nullable CommandContext ctx)
+    /**
+     * Builds an immutable expression tree from the given (already reduced) RPN token queue.
+     * The tree is built once when the command is parsed, and it can then be evaluated
+     * any number of times without re-processing the token queue.
+     */
+    public ExpressionNode buildExpressionTree(List<Token> tokenQueue) throws SyntaxErrorException
+    {
+        Stack<ExpressionNode> nodeStack = new Stack<>();
+
+        for (Token token : tokenQueue)
+        {
+            TokenType type = token.getType();
+            TokenCategory category = type.getTokenCategory();
+
+            if (category == TokenCategory.CONSTANT_VALUE)
+            {
+                nodeStack.push(new ConstantNode(token.getValue()));
+            }
+            else if (category == TokenCategory.VARIABLE_VALUE)
+            {
+                nodeStack.push(this.createSubstitutionNode(token));
+            }
+            else if (type.getArgumentCount() == 1 && nodeStack.size() >= 1)
+            {
+                ExpressionNode node = nodeStack.pop();
+                nodeStack.push(this.createUnaryOperatorNode(token, node));
+            }
+            else if (type.getArgumentCount() == 2 && nodeStack.size() >= 2)
+            {
+                ExpressionNode right = nodeStack.pop();
+                ExpressionNode left = nodeStack.pop();
+                nodeStack.push(this.createBinaryOperatorNode(token, left, right));
+            }
+            else
+            {
+                throw new SyntaxErrorException("Unexpected token '" + token.getOriginalString() + "' in the expression");
+            }
+        }
+
+        if (nodeStack.size() != 1)
+        {
+            throw new SyntaxErrorException("Invalid expression, " + nodeStack.size() + " values left without an operator");
+        }
+
+        return nodeStack.pop();
+    }
+
+    protected ExpressionNode createSubstitutionNode(Token token) throws SyntaxErrorException
+    {
+        String origString = token.getOriginalString();
+        String substitutionString = origString.substring(1, origString.length() - 1);
+        BaseSubstitution substitution = this.substitutionParser.getSubstitutionFor(substitutionString, true);
+
+        if (substitution == null)
+        {
+            throw new SyntaxErrorException("Invalid substitution '" + origString + "'");
+        }
+
+        return new SubstitutionNode(substitution, this.substitutionParser);
+    }
+
+    protected ExpressionNode createUnaryOperatorNode(Token operatorToken, ExpressionNode node) throws SyntaxErrorException
     {
-        if (ctx != null && valueToken.getType() == TokenType.VARIABLE)
+        TokenType operatorTokenType = operatorToken.getType();
+        ValueType valueType = node.getValueType();
+
+        if (valueType != ValueType.UNKNOWN &&
+            valueType.getValueCategory() != operatorTokenType.getValueCategory())
         {
-            String origString = valueToken.getOriginalString();
-            String substitutionString = origString.substring(1, origString.length() - 1);
-            BaseSubstitution sub = this.substitutionParser.getSubstitutionFor(substitutionString, true);
+            throw new SyntaxErrorException("The operator '" + operatorTokenType +
+                                           "' can't be applied to the argument '" + valueType + "'");
+        }
+
+        if (operatorTokenType == TokenType.OP_ARITH_UNARY_MINUS)
+        {
+            return new NegationNode(node);
+        }
+        else if (operatorTokenType == TokenType.OP_BOOLEAN_UNARY_NEG)
+        {
+            return NotNode.create(node);
+        }
+
+        // Unary plus
+        return node;
+    }
 
-            if (sub != null)
+    protected ExpressionNode createBinaryOperatorNode(Token operatorToken,
+                                                      ExpressionNode left,
+                                                      ExpressionNode right) throws SyntaxErrorException
+    {
+        TokenCategory opTokenCategory = operatorToken.getType().getTokenCategory();
+
+        try
+        {
+            if (opTokenCategory == TokenCategory.OP_BOOL_BINARY)
             {
-                String subStr = sub.evaluate(ctx);
-                Token token = StringTokenizer.readToken(new StringReader(subStr), this.substitutionParser, null);
-                return token != null ? token : valueToken;
+                return BooleanOperatorNode.create(((BooleanBinaryOperatorToken) operatorToken).getOperator(), left, right);
             }
+            else if (opTokenCategory == TokenCategory.OP_ARITH_BINARY)
+            {
+                return ArithmeticNode.create(((ArithmeticBinaryOperatorToken) operatorToken).getOperator(), left, right);
+            }
+            else if (opTokenCategory == TokenCategory.OP_NUM_RELATION)
+            {
+                return RelationNode.create(((NumericRelationOperatorToken) operatorToken).getOperator(), left, right);
+            }
+            else if (opTokenCategory == TokenCategory.OP_EQUALITY)
+            {
+                return EqualityNode.create(((EqualityOperatorToken) operatorToken).getOperator(), left, right);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new SyntaxErrorException(e.getMessage());
         }
 
-        return valueToken;
+        throw new SyntaxErrorException("Unknown binary operator '" + operatorToken.getOriginalString() + "'");
     }
 
     @Nullable
@@ -15,6 +15,7 @@ import fi.dy.masa.worldprimer.command.parser.token.Token;
 import fi.dy.masa.worldprimer.command.parser.token.TokenCategory;
 import fi.dy.masa.worldprimer.command.parser.token.TokenType;
 import fi.dy.masa.worldprimer.command.parser.token.ValueToken;
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
 import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
 import fi.dy.masa.worldprimer.command.parser.value.IntValue;
 import fi.dy.masa.worldprimer.command.parser.value.StringValue;
@@ -291,19 +292,25 @@ public class StringTokenizer
                 Value value = new StringValue(origString.substring(1, origString.length() - 1));
                 return new ValueToken(TokenType.CONST_STR, origString, value);
             }
-            else if (quoted == false && (c == ' ' || c == '\t'))
+            else if (quoted == false && (c == ' ' || c == '\t' || c == ')'))
             {
-                String origString = reader.subString(startPos, pos - 1);
-                Value value = new StringValue(origString);
-                return new ValueToken(TokenType.CONST_STR, origString, value);
+                return unquotedStringToken(reader.subString(startPos, pos - 1));
             }
 
             ++pos;
         }
 
-        String origString = reader.getString();
-        Value value = new StringValue(origString);
-        return new ValueToken(TokenType.CONST_STR, origString, value);
+        return unquotedStringToken(reader.subString(startPos));
+    }
+
+    protected static Token unquotedStringToken(String origString)
+    {
+        if (origString.equals("true") || origString.equals("false"))
+        {
+            return new ValueToken(TokenType.CONST_BOOLEAN, origString, BooleanValue.of(origString.equals("true")));
+        }
+
+        return new ValueToken(TokenType.CONST_STR, origString, new StringValue(origString));
     }
 
     protected static Token readVariable(StringReader reader, int startPos, SubstitutionParser substitutionParser)
@@ -2,6 +2,7 @@ package fi.dy.masa.worldprimer.command.parser;
 
 import javax.annotation.Nullable;
 import fi.dy.masa.worldprimer.command.substitution.BaseSubstitution;
+import fi.dy.masa.worldprimer.command.substitution.CachedSubstitution;
 import fi.dy.masa.worldprimer.command.substitution.SubstitutionRegistry;
 
 public class SubstitutionParser
@@ -15,66 +16,76 @@ public class SubstitutionParser
         this.registry = SubstitutionRegistry.INSTANCE;
     }
 
+    /**
+     * Returns the region of a valid substitution starting at the given position,
+     * ie. the region up to the matching closing curly brace.
+     */
     @Nullable
-    public Region getNextSubstitutionRegion(StringReader reader)
+    public Region getSubstitutionRegionStartingAt(StringReader reader, int startPos)
     {
-        final int origPos = reader.getPos();
-        int startPos = -1;
-        int nesting = 0;
-        Region region = null;
+        if (reader.peekAt(startPos) != '{')
+        {
+            return null;
+        }
+
+        int pos = startPos + 1;
+        int nesting = 1;
 
-        while (reader.canRead())
+        while (reader.canPeekAt(pos))
         {
-            char c = reader.peek();
+            char c = reader.peekAt(pos);
 
-            if (c == '{' && reader.peekPrevious() != '\\')
+            if (c == '{' && reader.peekAt(pos - 1) != '\\')
             {
-                if (nesting == 0)
-                {
-                    startPos = reader.getPos();
-                }
-
                 ++nesting;
             }
-            else if (c == '}' && nesting > 0 && --nesting == 0)
+            else if (c == '}' && --nesting == 0)
             {
-                String nameAndArgs = reader.subString(startPos + 1, reader.getPos() - 1);
-
-                // Check if the substitution is valid, and if not, discard it and continue the search
-                // from the next position after the current start.
-                if (this.isValidSubstitution(nameAndArgs, false))
-                {
-                    region = new Region(startPos, reader.getPos());
-                    break;
-                }
-                else
-                {
-                    reader.setPos(startPos + 1);
-                    region = null;
-                    nesting = 0;
-                    startPos = -1;
-                    continue;
-                }
+                return this.isValidSubstitutionRegion(reader, startPos, pos) ? new Region(startPos, pos) : null;
             }
 
-            reader.skip();
+            ++pos;
         }
 
-        reader.setPos(origPos);
-
-        return region;
+        return null;
     }
 
-    @Nullable
-    public Region getSubstitutionRegionStartingAt(StringReader reader, int startPos)
+    /**
+     * Checks if the given region, including the curly braces, contains a valid substitution.
+     * Only the substitution name is checked, the arguments are not validated.
+     * This does not build any substrings for regions that can't be valid based on the name characters,
+     * so calling this is cheap for example for all the curly brace pairs in JSON strings.
+     */
+    public boolean isValidSubstitutionRegion(StringReader reader, int start, int end)
     {
-        if (reader.peekAt(startPos) != '{')
+        int pos = start + 1;
+
+        while (pos < end && isSubstitutionNameCharacter(reader.peekAt(pos)))
         {
-            return null;
+            ++pos;
         }
 
-        Region region = this.getNextSubstitutionRegion(reader);
-        return region != null && region.start == startPos ? region : null;
+        if (pos == start + 1)
+        {
+            return false;
+        }
+
+        final boolean hasArgs = pos < end;
+
+        // Invalid character in the name, or an empty argument string
+        if (hasArgs && (reader.peekAt(pos) != ':' || pos == end - 1))
+        {
+            return false;
+        }
+
+        BaseSubstitution substitution = this.registry.getSubstitution(reader.subString(start + 1, pos - 1));
+
+        return substitution != null && substitution.hasArguments() == hasArgs;
+    }
+
+    protected static boolean isSubstitutionNameCharacter(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
     }
 
     @Nullable
@@ -129,12 +140,15 @@ public class SubstitutionParser
             if (hasArgs && buildFinalSubstitution)
             {
                 String arg = nameAndArgs.substring(colonIndex + 1);
-                return substitution.buildSubstitution(arg);
+                substitution = substitution.buildSubstitution(arg);
             }
-            else
+
+            if (substitution != null && buildFinalSubstitution && substitution.isCacheable())
             {
-                return substitution;
+                return new CachedSubstitution(substitution);
             }
+
+            return substitution;
         }
 
         return null;
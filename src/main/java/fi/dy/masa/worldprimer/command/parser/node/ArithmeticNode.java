@@ -0,0 +1,112 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.operator.ArithmeticBinaryOperator;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+public abstract class ArithmeticNode extends BinaryNode
+{
+    protected final ArithmeticBinaryOperator operator;
+
+    protected ArithmeticNode(ValueType valueType, ArithmeticBinaryOperator operator, ExpressionNode left, ExpressionNode right)
+    {
+        super(valueType, left, right);
+
+        this.operator = operator;
+    }
+
+    public static ArithmeticNode create(ArithmeticBinaryOperator operator,
+                                        ExpressionNode left,
+                                        ExpressionNode right) throws IllegalArgumentException
+    {
+        ValueType type1 = left.getValueType();
+        ValueType type2 = right.getValueType();
+
+        if ((type1.isNumber() == false && type1 != ValueType.UNKNOWN) ||
+            (type2.isNumber() == false && type2 != ValueType.UNKNOWN))
+        {
+            throw operandTypeError(operator, type1, type2);
+        }
+
+        if (type1 == ValueType.INT && type2 == ValueType.INT)
+        {
+            return new IntArithmeticNode(operator, left, right);
+        }
+        else if (type1.isNumber() && type2.isNumber())
+        {
+            return new DoubleArithmeticNode(operator, left, right);
+        }
+
+        return new DynamicArithmeticNode(operator, left, right);
+    }
+
+    public static class IntArithmeticNode extends ArithmeticNode
+    {
+        protected IntArithmeticNode(ArithmeticBinaryOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(ValueType.INT, operator, left, right);
+        }
+
+        @Override
+        public int evaluateAsInt(CommandContext ctx)
+        {
+            return this.operator.apply(this.left.evaluateAsInt(ctx), this.right.evaluateAsInt(ctx));
+        }
+
+        @Override
+        public Value evaluate(CommandContext ctx)
+        {
+            return new IntValue(this.evaluateAsInt(ctx));
+        }
+    }
+
+    public static class DoubleArithmeticNode extends ArithmeticNode
+    {
+        protected DoubleArithmeticNode(ArithmeticBinaryOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(ValueType.DOUBLE, operator, left, right);
+        }
+
+        @Override
+        public double evaluateAsDouble(CommandContext ctx)
+        {
+            return this.operator.apply(this.left.evaluateAsDouble(ctx), this.right.evaluateAsDouble(ctx));
+        }
+
+        @Override
+        public Value evaluate(CommandContext ctx)
+        {
+            return new DoubleValue(this.evaluateAsDouble(ctx));
+        }
+    }
+
+    /**
+     * Used when the type of at least one of the operands is only known at evaluation time.
+     * Follows the same rules as the constant reduction: two int operands give an int result,
+     * otherwise the result is a double.
+     */
+    public static class DynamicArithmeticNode extends ArithmeticNode
+    {
+        protected DynamicArithmeticNode(ArithmeticBinaryOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(ValueType.UNKNOWN, operator, left, right);
+        }
+
+        @Override
+        public Value evaluate(CommandContext ctx)
+        {
+            Value value1 = this.left.evaluate(ctx);
+            Value value2 = this.right.evaluate(ctx);
+
+            if (value1 instanceof IntValue && value2 instanceof IntValue)
+            {
+                return new IntValue(this.operator.apply(((IntValue) value1).getValue(), ((IntValue) value2).getValue()));
+            }
+
+            return new DoubleValue(this.operator.apply(toDouble(value1), toDouble(value2)));
+        }
+    }
+}
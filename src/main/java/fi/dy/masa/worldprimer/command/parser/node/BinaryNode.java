@@ -0,0 +1,33 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+
+public abstract class BinaryNode extends ExpressionNode
+{
+    protected final ExpressionNode left;
+    protected final ExpressionNode right;
+
+    protected BinaryNode(ValueType valueType, ExpressionNode left, ExpressionNode right)
+    {
+        super(valueType);
+
+        this.left = left;
+        this.right = right;
+    }
+
+    public ExpressionNode getLeft()
+    {
+        return this.left;
+    }
+
+    public ExpressionNode getRight()
+    {
+        return this.right;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s{left=%s, right=%s}", this.getClass().getSimpleName(), this.left, this.right);
+    }
+}
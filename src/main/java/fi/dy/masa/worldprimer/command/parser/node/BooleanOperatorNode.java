@@ -0,0 +1,94 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.operator.BooleanBinaryOperator;
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+/**
+ * A lazily evaluated boolean operator. The right operand is only evaluated
+ * if the value of the left operand doesn't already determine the result.
+ */
+public class BooleanOperatorNode extends BinaryNode
+{
+    protected final BooleanBinaryOperator operator;
+    protected final boolean shortCircuitValue;
+
+    protected BooleanOperatorNode(BooleanBinaryOperator operator, ExpressionNode left, ExpressionNode right)
+    {
+        super(ValueType.BOOLEAN, left, right);
+
+        this.operator = operator;
+        this.shortCircuitValue = operator.getShortCircuitValue();
+    }
+
+    @Override
+    public boolean evaluateAsBoolean(CommandContext ctx)
+    {
+        if (this.left.evaluateAsBoolean(ctx) == this.shortCircuitValue)
+        {
+            return this.shortCircuitValue;
+        }
+
+        return this.right.evaluateAsBoolean(ctx);
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        return BooleanValue.of(this.evaluateAsBoolean(ctx));
+    }
+
+    /**
+     * Creates a node for the given boolean operator.
+     * If either one of the operands is a constant, then the operator is folded away
+     * at build time. A constant with the short-circuit value of the operator
+     * replaces the entire node, and otherwise the node is replaced by the other operand.
+     */
+    public static ExpressionNode create(BooleanBinaryOperator operator,
+                                        ExpressionNode left,
+                                        ExpressionNode right) throws IllegalArgumentException
+    {
+        ValueType type1 = left.getValueType();
+        ValueType type2 = right.getValueType();
+
+        if ((type1 != ValueType.BOOLEAN && type1 != ValueType.UNKNOWN) ||
+            (type2 != ValueType.BOOLEAN && type2 != ValueType.UNKNOWN))
+        {
+            throw operandTypeError(operator, type1, type2);
+        }
+
+        if (left.isConstant())
+        {
+            return fold(operator, left.evaluateAsBoolean(null), left, right);
+        }
+        else if (right.isConstant())
+        {
+            return fold(operator, right.evaluateAsBoolean(null), left, right);
+        }
+
+        return new BooleanOperatorNode(operator, left, right);
+    }
+
+    protected static ExpressionNode fold(BooleanBinaryOperator operator,
+                                         boolean constantValue,
+                                         ExpressionNode left,
+                                         ExpressionNode right)
+    {
+        if (constantValue == operator.getShortCircuitValue())
+        {
+            return new ConstantNode(BooleanValue.of(constantValue));
+        }
+
+        ExpressionNode other = left.isConstant() ? right : left;
+
+        // An operand of an unknown type still needs the boolean type check of the operator node
+        if (other.getValueType() == ValueType.BOOLEAN)
+        {
+            return other;
+        }
+
+        return new BooleanOperatorNode(operator, left, right);
+    }
+}
@@ -0,0 +1,40 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+public class ConstantNode extends ExpressionNode
+{
+    protected final Value value;
+
+    public ConstantNode(Value value)
+    {
+        super(ValueType.of(value));
+
+        this.value = value;
+    }
+
+    public Value getValue()
+    {
+        return this.value;
+    }
+
+    @Override
+    public boolean isConstant()
+    {
+        return true;
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        return this.value;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("ConstantNode{value=%s}", this.value);
+    }
+}
@@ -0,0 +1,149 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.operator.EqualityOperator;
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.StringValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+public abstract class EqualityNode extends BinaryNode
+{
+    protected final EqualityOperator operator;
+
+    protected EqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+    {
+        super(ValueType.BOOLEAN, left, right);
+
+        this.operator = operator;
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        return BooleanValue.of(this.evaluateAsBoolean(ctx));
+    }
+
+    public static EqualityNode create(EqualityOperator operator,
+                                      ExpressionNode left,
+                                      ExpressionNode right) throws IllegalArgumentException
+    {
+        ValueType type1 = left.getValueType();
+        ValueType type2 = right.getValueType();
+
+        if (type1.isCompatibleWith(type2) == false)
+        {
+            throw operandTypeError(operator, type1, type2);
+        }
+
+        if (type1 == ValueType.UNKNOWN || type2 == ValueType.UNKNOWN)
+        {
+            return new DynamicEqualityNode(operator, left, right);
+        }
+        else if (type1 == ValueType.INT && type2 == ValueType.INT)
+        {
+            return new IntEqualityNode(operator, left, right);
+        }
+        else if (type1.isNumber())
+        {
+            return new DoubleEqualityNode(operator, left, right);
+        }
+        else if (type1 == ValueType.BOOLEAN)
+        {
+            return new BooleanEqualityNode(operator, left, right);
+        }
+
+        return new StringEqualityNode(operator, left, right);
+    }
+
+    public static class BooleanEqualityNode extends EqualityNode
+    {
+        protected BooleanEqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsBoolean(ctx), this.right.evaluateAsBoolean(ctx));
+        }
+    }
+
+    public static class IntEqualityNode extends EqualityNode
+    {
+        protected IntEqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsInt(ctx), this.right.evaluateAsInt(ctx));
+        }
+    }
+
+    public static class DoubleEqualityNode extends EqualityNode
+    {
+        protected DoubleEqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsDouble(ctx), this.right.evaluateAsDouble(ctx));
+        }
+    }
+
+    public static class StringEqualityNode extends EqualityNode
+    {
+        protected StringEqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsString(ctx), this.right.evaluateAsString(ctx));
+        }
+    }
+
+    public static class DynamicEqualityNode extends EqualityNode
+    {
+        protected DynamicEqualityNode(EqualityOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            Value value1 = this.left.evaluate(ctx);
+            Value value2 = this.right.evaluate(ctx);
+
+            if (value1 instanceof BooleanValue && value2 instanceof BooleanValue)
+            {
+                return this.operator.test(((BooleanValue) value1).getValue(), ((BooleanValue) value2).getValue());
+            }
+            else if (value1 instanceof IntValue && value2 instanceof IntValue)
+            {
+                return this.operator.test(((IntValue) value1).getValue(), ((IntValue) value2).getValue());
+            }
+            else if (value1.isNumber() && value2.isNumber())
+            {
+                return this.operator.test(toDouble(value1), toDouble(value2));
+            }
+            else if (value1 instanceof StringValue && value2 instanceof StringValue)
+            {
+                return this.operator.test(((StringValue) value1).getValue(), ((StringValue) value2).getValue());
+            }
+
+            throw operandTypeError(this.operator, ValueType.of(value1), ValueType.of(value2));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.StringValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+/**
+ * A node of a pre-built, immutable expression tree.
+ * The typed evaluate methods are used between nodes whose value types are known
+ * when the tree is built, so that evaluating those parts doesn't allocate anything.
+ * The generic {@link #evaluate(CommandContext)} is only needed for nodes of the UNKNOWN type,
+ * and at the root of the tree.
+ */
+public abstract class ExpressionNode
+{
+    protected final ValueType valueType;
+
+    protected ExpressionNode(ValueType valueType)
+    {
+        this.valueType = valueType;
+    }
+
+    public ValueType getValueType()
+    {
+        return this.valueType;
+    }
+
+    /**
+     * @return true if this node always evaluates to the same value, regardless of the context
+     */
+    public boolean isConstant()
+    {
+        return false;
+    }
+
+    /**
+     * Evaluates this node to a generic Value.
+     * @throws UnresolvedValueException if a substitution in this node can't be resolved in the given context
+     * @throws IllegalArgumentException if the operand types of an operator are not compatible
+     */
+    public abstract Value evaluate(CommandContext ctx);
+
+    public int evaluateAsInt(CommandContext ctx)
+    {
+        Value value = this.evaluate(ctx);
+
+        if (value instanceof IntValue)
+        {
+            return ((IntValue) value).getValue();
+        }
+
+        throw valueTypeError(value, ValueType.INT);
+    }
+
+    public double evaluateAsDouble(CommandContext ctx)
+    {
+        if (this.valueType == ValueType.INT)
+        {
+            return this.evaluateAsInt(ctx);
+        }
+
+        return toDouble(this.evaluate(ctx));
+    }
+
+    public boolean evaluateAsBoolean(CommandContext ctx)
+    {
+        Value value = this.evaluate(ctx);
+
+        if (value instanceof BooleanValue)
+        {
+            return ((BooleanValue) value).getValue();
+        }
+
+        throw valueTypeError(value, ValueType.BOOLEAN);
+    }
+
+    public String evaluateAsString(CommandContext ctx)
+    {
+        Value value = this.evaluate(ctx);
+
+        if (value instanceof StringValue)
+        {
+            return ((StringValue) value).getValue();
+        }
+
+        throw valueTypeError(value, ValueType.STRING);
+    }
+
+    protected static double toDouble(Value value)
+    {
+        if (value instanceof IntValue)
+        {
+            return ((IntValue) value).getValue();
+        }
+        else if (value instanceof DoubleValue)
+        {
+            return ((DoubleValue) value).getValue();
+        }
+
+        throw valueTypeError(value, ValueType.DOUBLE);
+    }
+
+    protected static IllegalArgumentException valueTypeError(Value value, ValueType expectedType)
+    {
+        String msg = String.format("Expected a value of type '%s', got '%s' (type: '%s')",
+                                   expectedType, value, ValueType.of(value));
+        return new IllegalArgumentException(msg);
+    }
+
+    protected static IllegalArgumentException operandTypeError(Object operator, ValueType type1, ValueType type2)
+    {
+        String msg = String.format("The operator '%s' can't be applied to the arguments '%s' and '%s'",
+                                   operator, type1, type2);
+        return new IllegalArgumentException(msg);
+    }
+}
@@ -0,0 +1,62 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+/**
+ * Arithmetic negation (unary minus). The value type follows the type of the negated node.
+ */
+public class NegationNode extends ExpressionNode
+{
+    protected final ExpressionNode node;
+
+    public NegationNode(ExpressionNode node)
+    {
+        super(node.getValueType());
+
+        this.node = node;
+    }
+
+    @Override
+    public int evaluateAsInt(CommandContext ctx)
+    {
+        return -this.node.evaluateAsInt(ctx);
+    }
+
+    @Override
+    public double evaluateAsDouble(CommandContext ctx)
+    {
+        return -this.node.evaluateAsDouble(ctx);
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        if (this.valueType == ValueType.INT)
+        {
+            return new IntValue(this.evaluateAsInt(ctx));
+        }
+        else if (this.valueType == ValueType.DOUBLE)
+        {
+            return new DoubleValue(this.evaluateAsDouble(ctx));
+        }
+
+        Value value = this.node.evaluate(ctx);
+
+        if (value instanceof IntValue)
+        {
+            return new IntValue(-((IntValue) value).getValue());
+        }
+
+        return new DoubleValue(-toDouble(value));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("NegationNode{node=%s}", this.node);
+    }
+}
@@ -0,0 +1,50 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+public class NotNode extends ExpressionNode
+{
+    protected final ExpressionNode node;
+
+    protected NotNode(ExpressionNode node)
+    {
+        super(ValueType.BOOLEAN);
+
+        this.node = node;
+    }
+
+    @Override
+    public boolean evaluateAsBoolean(CommandContext ctx)
+    {
+        return this.node.evaluateAsBoolean(ctx) == false;
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        return BooleanValue.of(this.evaluateAsBoolean(ctx));
+    }
+
+    /**
+     * Creates a negation of the given node. Constant boolean nodes,
+     * for example from folded boolean operators, are negated at build time.
+     */
+    public static ExpressionNode create(ExpressionNode node)
+    {
+        if (node.isConstant() && node.getValueType() == ValueType.BOOLEAN)
+        {
+            return new ConstantNode(BooleanValue.of(node.evaluateAsBoolean(null) == false));
+        }
+
+        return new NotNode(node);
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("NotNode{node=%s}", this.node);
+    }
+}
@@ -0,0 +1,101 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import fi.dy.masa.worldprimer.command.parser.operator.NumericRelationOperator;
+import fi.dy.masa.worldprimer.command.parser.value.BooleanValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+public abstract class RelationNode extends BinaryNode
+{
+    protected final NumericRelationOperator operator;
+
+    protected RelationNode(NumericRelationOperator operator, ExpressionNode left, ExpressionNode right)
+    {
+        super(ValueType.BOOLEAN, left, right);
+
+        this.operator = operator;
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        return BooleanValue.of(this.evaluateAsBoolean(ctx));
+    }
+
+    public static RelationNode create(NumericRelationOperator operator,
+                                      ExpressionNode left,
+                                      ExpressionNode right) throws IllegalArgumentException
+    {
+        ValueType type1 = left.getValueType();
+        ValueType type2 = right.getValueType();
+
+        if ((type1.isNumber() == false && type1 != ValueType.UNKNOWN) ||
+            (type2.isNumber() == false && type2 != ValueType.UNKNOWN))
+        {
+            throw operandTypeError(operator, type1, type2);
+        }
+
+        if (type1 == ValueType.INT && type2 == ValueType.INT)
+        {
+            return new IntRelationNode(operator, left, right);
+        }
+        else if (type1.isNumber() && type2.isNumber())
+        {
+            return new DoubleRelationNode(operator, left, right);
+        }
+
+        return new DynamicRelationNode(operator, left, right);
+    }
+
+    public static class IntRelationNode extends RelationNode
+    {
+        protected IntRelationNode(NumericRelationOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsInt(ctx), this.right.evaluateAsInt(ctx));
+        }
+    }
+
+    public static class DoubleRelationNode extends RelationNode
+    {
+        protected DoubleRelationNode(NumericRelationOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            return this.operator.test(this.left.evaluateAsDouble(ctx), this.right.evaluateAsDouble(ctx));
+        }
+    }
+
+    public static class DynamicRelationNode extends RelationNode
+    {
+        protected DynamicRelationNode(NumericRelationOperator operator, ExpressionNode left, ExpressionNode right)
+        {
+            super(operator, left, right);
+        }
+
+        @Override
+        public boolean evaluateAsBoolean(CommandContext ctx)
+        {
+            Value value1 = this.left.evaluate(ctx);
+            Value value2 = this.right.evaluate(ctx);
+
+            if (value1 instanceof IntValue && value2 instanceof IntValue)
+            {
+                return this.operator.test(((IntValue) value1).getValue(), ((IntValue) value2).getValue());
+            }
+
+            return this.operator.test(toDouble(value1), toDouble(value2));
+        }
+    }
+}
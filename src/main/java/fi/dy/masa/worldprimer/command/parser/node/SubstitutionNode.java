@@ -0,0 +1,118 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.StringReader;
+import fi.dy.masa.worldprimer.command.parser.StringTokenizer;
+import fi.dy.masa.worldprimer.command.parser.SubstitutionParser;
+import fi.dy.masa.worldprimer.command.parser.token.Token;
+import fi.dy.masa.worldprimer.command.parser.token.TokenCategory;
+import fi.dy.masa.worldprimer.command.parser.token.TokenType;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.substitution.BaseSubstitution;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+
+/**
+ * A substitution used as a value in an expression.
+ * If the substitution has a typed value, then it's evaluated directly
+ * via the typed methods. Otherwise the substituted String is parsed into a value.
+ */
+public class SubstitutionNode extends ExpressionNode
+{
+    protected final BaseSubstitution substitution;
+    protected final SubstitutionParser substitutionParser;
+
+    /**
+     * @param substitution the final, already built substitution
+     */
+    public SubstitutionNode(BaseSubstitution substitution, SubstitutionParser substitutionParser)
+    {
+        super(substitution.getValueType());
+
+        this.substitution = substitution;
+        this.substitutionParser = substitutionParser;
+    }
+
+    @Override
+    public Value evaluate(CommandContext ctx)
+    {
+        Value value = this.valueType.isNumber() ? this.substitution.evaluateValue(ctx) : this.parseSubstitutedString(ctx);
+
+        if (value != null)
+        {
+            return value;
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
+
+    @Override
+    public int evaluateAsInt(CommandContext ctx)
+    {
+        if (this.valueType.isNumber())
+        {
+            return this.substitution.evaluateInt(ctx);
+        }
+
+        return super.evaluateAsInt(ctx);
+    }
+
+    @Override
+    public double evaluateAsDouble(CommandContext ctx)
+    {
+        if (this.valueType.isNumber())
+        {
+            return this.substitution.evaluateDouble(ctx);
+        }
+
+        return super.evaluateAsDouble(ctx);
+    }
+
+    @Nullable
+    protected Value parseSubstitutedString(CommandContext ctx)
+    {
+        String subStr = this.substitution.evaluate(ctx);
+        StringReader reader = new StringReader(subStr);
+        Token token;
+
+        try
+        {
+            token = StringTokenizer.readToken(reader, this.substitutionParser, null);
+
+            // A negative number gets tokenized as an unary minus followed by the number
+            if (token != null && token.getType() == TokenType.OP_ARITH_UNARY_MINUS)
+            {
+                token = StringTokenizer.readToken(reader, this.substitutionParser, token);
+
+                if (token != null && token.getType() == TokenType.CONST_INT)
+                {
+                    return new IntValue(-((IntValue) token.getValue()).getValue());
+                }
+                else if (token != null && token.getType() == TokenType.CONST_DOUBLE)
+                {
+                    return new DoubleValue(-((DoubleValue) token.getValue()).getValue());
+                }
+
+                return null;
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+
+        if (token != null && token.getType().getTokenCategory() == TokenCategory.CONSTANT_VALUE)
+        {
+            return token.getValue();
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("SubstitutionNode{substitution=%s}", this.substitution.getOriginalFullSubstitutionString());
+    }
+}
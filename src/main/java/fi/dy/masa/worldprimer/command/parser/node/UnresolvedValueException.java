@@ -0,0 +1,18 @@
+package fi.dy.masa.worldprimer.command.parser.node;
+
+/**
+ * Thrown during expression evaluation when a substitution can't produce
+ * a value in the current context, for example a player substitution
+ * when there is no player in the context.
+ * A shared instance without a stack trace is used, as this is a normal
+ * control flow case and not an error.
+ */
+public class UnresolvedValueException extends RuntimeException
+{
+    public static final UnresolvedValueException INSTANCE = new UnresolvedValueException();
+
+    private UnresolvedValueException()
+    {
+        super("Unresolved substitution value", null, false, false);
+    }
+}
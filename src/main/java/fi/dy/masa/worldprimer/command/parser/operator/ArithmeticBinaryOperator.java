@@ -27,6 +27,16 @@ public enum ArithmeticBinaryOperator
         this.doubleOperator = doubleOperator;
     }
 
+    public int apply(int val1, int val2)
+    {
+        return this.intOperator.applyAsInt(val1, val2);
+    }
+
+    public double apply(double val1, double val2)
+    {
+        return this.doubleOperator.applyAsDouble(val1, val2);
+    }
+
     public ValueToken reduceTerms(Token valueToken1, Token valueToken2)
     {
         TokenType valueTokenType1 = valueToken1.getType();
@@ -8,16 +8,32 @@ import fi.dy.masa.worldprimer.command.parser.value.ValueCategory;
 
 public enum BooleanBinaryOperator
 {
-    AND  ((v1, v2) -> v1 && v2),
-    OR   ((v1, v2) -> v1 || v2);
+    AND  (false, (v1, v2) -> v1 && v2),
+    OR   (true,  (v1, v2) -> v1 || v2);
 
+    private final boolean shortCircuitValue;
     private final EqualityOperator.BooleanOp operator;
 
-    BooleanBinaryOperator(EqualityOperator.BooleanOp operator)
+    BooleanBinaryOperator(boolean shortCircuitValue, EqualityOperator.BooleanOp operator)
     {
+        this.shortCircuitValue = shortCircuitValue;
         this.operator = operator;
     }
 
+    /**
+     * @return the value of one operand that alone determines the result of this operator,
+     *         ie. the value with which the other operand doesn't need to be evaluated at all
+     */
+    public boolean getShortCircuitValue()
+    {
+        return this.shortCircuitValue;
+    }
+
+    public boolean apply(boolean val1, boolean val2)
+    {
+        return this.operator.apply(val1, val2);
+    }
+
     public ValueToken reduceTerms(Token valueToken1, Token valueToken2)
     {
         TokenType valueTokenType1 = valueToken1.getType();
@@ -27,6 +27,26 @@ public enum EqualityOperator
         this.stringOp = stringOp;
     }
 
+    public boolean test(boolean val1, boolean val2)
+    {
+        return this.booleanOp.apply(val1, val2);
+    }
+
+    public boolean test(int val1, int val2)
+    {
+        return this.intOp.apply(val1, val2);
+    }
+
+    public boolean test(double val1, double val2)
+    {
+        return this.doubleOp.apply(val1, val2);
+    }
+
+    public boolean test(String val1, String val2)
+    {
+        return this.stringOp.apply(val1, val2);
+    }
+
     public ValueToken reduceTerms(Token valueToken1, Token valueToken2)
     {
         TokenType valueTokenType1 = valueToken1.getType();
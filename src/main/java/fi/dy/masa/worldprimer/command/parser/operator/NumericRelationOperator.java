@@ -24,6 +24,16 @@ public enum NumericRelationOperator
         this.doubleOp = doubleOp;
     }
 
+    public boolean test(int val1, int val2)
+    {
+        return this.intOp.apply(val1, val2);
+    }
+
+    public boolean test(double val1, double val2)
+    {
+        return this.doubleOp.apply(val1, val2);
+    }
+
     public ValueToken reduceTerms(Token valueToken1, Token valueToken2)
     {
         TokenType valueTokenType1 = valueToken1.getType();
@@ -2,6 +2,9 @@ package fi.dy.masa.worldprimer.command.parser.value;
 
 public class BooleanValue extends Value
 {
+    public static final BooleanValue TRUE = new BooleanValue(true);
+    public static final BooleanValue FALSE = new BooleanValue(false);
+
     protected final boolean value;
 
     public BooleanValue(boolean value)
@@ -20,6 +23,11 @@ public class BooleanValue extends Value
         return this.value;
     }
 
+    public static BooleanValue of(boolean value)
+    {
+        return value ? TRUE : FALSE;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,59 @@
+package fi.dy.masa.worldprimer.command.parser.value;
+
+public enum ValueType
+{
+    BOOLEAN     (ValueCategory.BOOLEAN),
+    INT         (ValueCategory.NUMBER),
+    DOUBLE      (ValueCategory.NUMBER),
+    STRING      (ValueCategory.STRING),
+    UNKNOWN     (ValueCategory.UNKNOWN);
+
+    private final ValueCategory valueCategory;
+
+    ValueType(ValueCategory valueCategory)
+    {
+        this.valueCategory = valueCategory;
+    }
+
+    public ValueCategory getValueCategory()
+    {
+        return this.valueCategory;
+    }
+
+    public boolean isNumber()
+    {
+        return this.valueCategory == ValueCategory.NUMBER;
+    }
+
+    /**
+     * @return true if values of this type and the other type can be operands of the same
+     * operator, assuming that the operator accepts the value category in question.
+     * The UNKNOWN type is always considered compatible, as it's only resolved at evaluation time.
+     */
+    public boolean isCompatibleWith(ValueType other)
+    {
+        return this == UNKNOWN || other == UNKNOWN || this.valueCategory == other.valueCategory;
+    }
+
+    public static ValueType of(Value value)
+    {
+        if (value instanceof IntValue)
+        {
+            return INT;
+        }
+        else if (value instanceof DoubleValue)
+        {
+            return DOUBLE;
+        }
+        else if (value instanceof BooleanValue)
+        {
+            return BOOLEAN;
+        }
+        else if (value instanceof StringValue)
+        {
+            return STRING;
+        }
+
+        return UNKNOWN;
+    }
+}
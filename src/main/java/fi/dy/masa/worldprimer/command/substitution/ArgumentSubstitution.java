@@ -3,6 +3,7 @@ package fi.dy.masa.worldprimer.command.substitution;
 public abstract class ArgumentSubstitution extends BaseSubstitution
 {
     private final String argumentsString;
+    private final int hashCode;
 
     protected ArgumentSubstitution(String substitutionName,
                                    String argumentsString,
@@ -11,6 +12,7 @@ public abstract class ArgumentSubstitution extends BaseSubstitution
         super(substitutionName, hasArguments);
 
         this.argumentsString = argumentsString;
+        this.hashCode = 31 * substitutionName.hashCode() + argumentsString.hashCode();
     }
 
     @Override
@@ -18,4 +20,34 @@ public abstract class ArgumentSubstitution extends BaseSubstitution
     {
         return String.format("{%s:%s}", this.getSubstitutionName(), this.argumentsString);
     }
+
+    /**
+     * Built argument substitutions are separate instances for each occurrence in the commands,
+     * so they are considered equal if they are of the same type and were built from the same arguments.
+     * This allows cached values to be shared between the occurrences.
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+
+        if (o == null || this.getClass() != o.getClass())
+        {
+            return false;
+        }
+
+        ArgumentSubstitution other = (ArgumentSubstitution) o;
+
+        return this.getSubstitutionName().equals(other.getSubstitutionName()) &&
+               this.argumentsString.equals(other.argumentsString);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return this.hashCode;
+    }
 }
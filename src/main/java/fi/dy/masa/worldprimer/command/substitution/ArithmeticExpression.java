@@ -2,19 +2,16 @@ package fi.dy.masa.worldprimer.command.substitution;
 
 import fi.dy.masa.worldprimer.WorldPrimer;
 import fi.dy.masa.worldprimer.command.handler.Expression;
-import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
 
 public class ArithmeticExpression implements StringSubstitution
 {
-    protected final ExpressionParser expressionParser;
     protected final Expression expression;
     protected final String originalString;
 
-    public ArithmeticExpression(Expression expression, ExpressionParser expressionParser)
+    public ArithmeticExpression(Expression expression)
     {
         this.expression = expression;
         this.originalString = expression.getOriginalString();
-        this.expressionParser = expressionParser;
     }
 
     @Override
@@ -22,7 +19,7 @@ public class ArithmeticExpression implements StringSubstitution
     {
         try
         {
-            return this.expression.evaluateAsString(ctx, this.expressionParser);
+            return this.expression.evaluateAsString(ctx);
         }
         catch (Exception e)
         {
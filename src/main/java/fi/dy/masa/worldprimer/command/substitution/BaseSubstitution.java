@@ -1,6 +1,11 @@
 package fi.dy.masa.worldprimer.command.substitution;
 
 import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 
 public abstract class BaseSubstitution implements StringSubstitution
 {
@@ -28,6 +33,85 @@ public abstract class BaseSubstitution implements StringSubstitution
         return this.hasArguments;
     }
 
+    /**
+     * Returns the type of the value this substitution evaluates to.
+     * Substitutions that return UNKNOWN are only available via {@link #evaluate(CommandContext)},
+     * and their String value needs to be parsed when used in expressions.
+     * @return the static value type of this substitution
+     */
+    public ValueType getValueType()
+    {
+        return ValueType.UNKNOWN;
+    }
+
+    /**
+     * Returns whether or not the value of this substitution can be cached and re-used
+     * during one command list execution, where the command context stays the same.
+     * This should only be enabled for deterministic substitutions that are expensive to evaluate,
+     * for example because they need to load chunks, and whose value is not expected to be
+     * changed by the other commands in the same command list.
+     * Non-deterministic substitutions, such as random numbers or the current time, must not be cached.
+     * Only the value from {@link #evaluateValue(CommandContext)} gets cached, so for cacheable substitutions
+     * {@link #evaluate(CommandContext)} must return the String form of that value,
+     * or the original substitution string if the value can't be resolved.
+     */
+    public boolean isCacheable()
+    {
+        return false;
+    }
+
+    /**
+     * Evaluates the substitution directly to a typed value, without going through a String.
+     * @return the value of this substitution, or null if the substitution
+     *         can't be resolved in the given context, or if it doesn't have a typed value
+     */
+    @Nullable
+    public Value evaluateValue(CommandContext ctx)
+    {
+        return null;
+    }
+
+    /**
+     * Evaluates an INT type substitution directly to a primitive int value.
+     * @throws UnresolvedValueException if the substitution can't be resolved in the given context
+     */
+    public int evaluateInt(CommandContext ctx)
+    {
+        Value value = this.evaluateValue(ctx);
+
+        if (value instanceof IntValue)
+        {
+            return ((IntValue) value).getValue();
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
+
+    /**
+     * Evaluates an INT or DOUBLE type substitution directly to a primitive double value.
+     * @throws UnresolvedValueException if the substitution can't be resolved in the given context
+     */
+    public double evaluateDouble(CommandContext ctx)
+    {
+        if (this.getValueType() == ValueType.INT)
+        {
+            return this.evaluateInt(ctx);
+        }
+
+        Value value = this.evaluateValue(ctx);
+
+        if (value instanceof DoubleValue)
+        {
+            return ((DoubleValue) value).getValue();
+        }
+        else if (value instanceof IntValue)
+        {
+            return ((IntValue) value).getValue();
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
+
     /**
      * Builds the final substitution for a given substitution string.
      * This is meant for substitutions that take in arguments,
@@ -0,0 +1,46 @@
+package fi.dy.masa.worldprimer.command.substitution;
+
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
+
+/**
+ * Wraps a cacheable substitution, and evaluates it via the
+ * substitution cache of the command context.
+ */
+public class CachedSubstitution extends BaseSubstitution
+{
+    protected final BaseSubstitution substitution;
+
+    public CachedSubstitution(BaseSubstitution substitution)
+    {
+        super(substitution.getSubstitutionName(), substitution.hasArguments());
+
+        this.substitution = substitution;
+    }
+
+    @Override
+    public String getOriginalFullSubstitutionString()
+    {
+        return this.substitution.getOriginalFullSubstitutionString();
+    }
+
+    @Override
+    public ValueType getValueType()
+    {
+        return this.substitution.getValueType();
+    }
+
+    @Override
+    public String evaluate(CommandContext ctx)
+    {
+        return ctx.getSubstitutionCache().getString(this.substitution, ctx);
+    }
+
+    @Override
+    @Nullable
+    public Value evaluateValue(CommandContext ctx)
+    {
+        return ctx.getSubstitutionCache().getValue(this.substitution, ctx);
+    }
+}
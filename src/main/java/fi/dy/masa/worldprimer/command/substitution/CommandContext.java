@@ -6,6 +6,7 @@ import javax.annotation.Nullable;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.World;
+import net.minecraftforge.common.DimensionManager;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 
 public class CommandContext
@@ -15,6 +16,7 @@ public class CommandContext
     @Nullable protected final EntityPlayer player;
     @Nullable protected IntSupplier dimensionSource;
     protected final int count;
+    @Nullable protected SubstitutionCache substitutionCache;
 
     public CommandContext(@Nullable World world, @Nullable EntityPlayer player, int count)
     {
@@ -73,4 +75,41 @@ public class CommandContext
     {
         return this.player;
     }
+
+    /**
+     * Returns whether or not the world and the player of this context are still valid,
+     * meaning that the world is still loaded and the player is still online.
+     * This is checked before executing the commands that were deferred to a later tick.
+     */
+    public boolean isStillValid()
+    {
+        if (this.world != null && DimensionManager.getWorld(this.world.provider.getDimension()) != this.world)
+        {
+            return false;
+        }
+
+        return this.player == null || this.server.getPlayerList().getPlayerByUUID(this.player.getUniqueID()) != null;
+    }
+
+    public SubstitutionCache getSubstitutionCache()
+    {
+        if (this.substitutionCache == null)
+        {
+            this.substitutionCache = new SubstitutionCache();
+        }
+
+        return this.substitutionCache;
+    }
+
+    /**
+     * Clears any cached substitution values. This is called at the start of each
+     * command list execution, so that the cached values are only shared within one execution.
+     */
+    public void clearSubstitutionCache()
+    {
+        if (this.substitutionCache != null)
+        {
+            this.substitutionCache.clear();
+        }
+    }
 }
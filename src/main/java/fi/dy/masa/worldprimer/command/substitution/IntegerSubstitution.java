@@ -2,6 +2,11 @@ package fi.dy.masa.worldprimer.command.substitution;
 
 import java.util.OptionalInt;
 import java.util.function.Function;
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 
 public class IntegerSubstitution extends BaseSubstitution
 {
@@ -14,10 +19,37 @@ public class IntegerSubstitution extends BaseSubstitution
         this.intSource = intSource;
     }
 
+    @Override
+    public ValueType getValueType()
+    {
+        return ValueType.INT;
+    }
+
     @Override
     public String evaluate(CommandContext ctx)
     {
         OptionalInt intValue = this.intSource.apply(ctx);
         return intValue.isPresent() ? String.valueOf(intValue.getAsInt()) : this.getOriginalFullSubstitutionString();
     }
+
+    @Override
+    @Nullable
+    public Value evaluateValue(CommandContext ctx)
+    {
+        OptionalInt intValue = this.intSource.apply(ctx);
+        return intValue.isPresent() ? new IntValue(intValue.getAsInt()) : null;
+    }
+
+    @Override
+    public int evaluateInt(CommandContext ctx)
+    {
+        OptionalInt intValue = this.intSource.apply(ctx);
+
+        if (intValue.isPresent())
+        {
+            return intValue.getAsInt();
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
 }
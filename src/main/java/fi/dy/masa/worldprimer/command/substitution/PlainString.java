@@ -9,6 +9,11 @@ public class PlainString implements StringSubstitution
         this.string = string;
     }
 
+    public String getString()
+    {
+        return this.string;
+    }
+
     @Override
     public String evaluate(CommandContext context)
     {
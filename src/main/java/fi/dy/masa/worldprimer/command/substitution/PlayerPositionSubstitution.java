@@ -1,9 +1,14 @@
 package fi.dy.masa.worldprimer.command.substitution;
 
-import java.util.function.BiFunction;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.math.BlockPos;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.util.Coordinate;
 import fi.dy.masa.worldprimer.util.WorldUtils;
 
@@ -22,6 +27,20 @@ public class PlayerPositionSubstitution extends BaseSubstitution
         this.coordinate = coordinate;
     }
 
+    @Override
+    public ValueType getValueType()
+    {
+        return this.playerPositionType.valueType;
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        // The current position of the player may be changed by the commands, but the bed position isn't expected to be
+        return this.playerPositionType == PlayerPositionType.BED_POSITION ||
+               this.playerPositionType == PlayerPositionType.BED_SPAWN_POSITION;
+    }
+
     @Override
     public String evaluate(CommandContext context)
     {
@@ -29,51 +48,112 @@ public class PlayerPositionSubstitution extends BaseSubstitution
 
         if (player != null)
         {
-            String substituted = this.playerPositionType.function.apply(this.coordinate, player);
-            return substituted != null ? substituted : this.getOriginalFullSubstitutionString();
+            if (this.playerPositionType == PlayerPositionType.EXACT_POSITION)
+            {
+                return this.coordinate.getCoordinateAsDoubleString(player.getPositionVector());
+            }
+
+            BlockPos pos = this.playerPositionType.getBlockPosition(player);
+
+            if (pos != null)
+            {
+                return this.coordinate.getCoordinateAsIntString(pos);
+            }
         }
 
         return this.getOriginalFullSubstitutionString();
     }
 
+    @Override
     @Nullable
-    public static String getBedLocationCoordinate(Coordinate coordinate, EntityPlayer player)
+    public Value evaluateValue(CommandContext context)
     {
-        BlockPos bedPos = player.getBedLocation(player.dimension);
+        EntityPlayer player = context.getPlayer();
 
-        if (bedPos != null)
+        if (player != null)
         {
-            return coordinate.getCoordinateAsIntString(bedPos);
+            if (this.playerPositionType == PlayerPositionType.EXACT_POSITION)
+            {
+                return new DoubleValue(this.coordinate.getCoordinateAsDouble(player.getPositionVector()));
+            }
+
+            BlockPos pos = this.playerPositionType.getBlockPosition(player);
+
+            if (pos != null)
+            {
+                return new IntValue(this.coordinate.getCoordinateAsInt(pos));
+            }
         }
 
         return null;
     }
 
-    @Nullable
-    public static String getBedSpawnLocationCoordinate(Coordinate coordinate, EntityPlayer player)
+    @Override
+    public int evaluateInt(CommandContext context)
     {
-        BlockPos bedSpawnPos = WorldUtils.getPlayerBedSpawnLocation(player);
+        EntityPlayer player = context.getPlayer();
 
-        if (bedSpawnPos != null)
+        if (player != null && this.playerPositionType != PlayerPositionType.EXACT_POSITION)
         {
-            return coordinate.getCoordinateAsIntString(bedSpawnPos);
+            BlockPos pos = this.playerPositionType.getBlockPosition(player);
+
+            if (pos != null)
+            {
+                return this.coordinate.getCoordinateAsInt(pos);
+            }
         }
 
-        return null;
+        throw UnresolvedValueException.INSTANCE;
+    }
+
+    @Override
+    public double evaluateDouble(CommandContext context)
+    {
+        if (this.playerPositionType == PlayerPositionType.EXACT_POSITION)
+        {
+            EntityPlayer player = context.getPlayer();
+
+            if (player != null)
+            {
+                return this.coordinate.getCoordinateAsDouble(player.getPositionVector());
+            }
+
+            throw UnresolvedValueException.INSTANCE;
+        }
+
+        return this.evaluateInt(context);
+    }
+
+    @Nullable
+    public static BlockPos getBedLocation(EntityPlayer player)
+    {
+        return player.getBedLocation(player.dimension);
     }
 
     public enum PlayerPositionType
     {
-        BLOCK_POSITION      ((c, p) -> c.getCoordinateAsIntString(p.getPosition())),
-        EXACT_POSITION      ((c, p) -> c.getCoordinateAsDoubleString(p.getPositionVector())),
-        BED_POSITION        (PlayerPositionSubstitution::getBedLocationCoordinate),
-        BED_SPAWN_POSITION  (PlayerPositionSubstitution::getBedSpawnLocationCoordinate);
+        BLOCK_POSITION      (ValueType.INT,     EntityPlayer::getPosition),
+        EXACT_POSITION      (ValueType.DOUBLE,  (p) -> null),
+        BED_POSITION        (ValueType.INT,     PlayerPositionSubstitution::getBedLocation),
+        BED_SPAWN_POSITION  (ValueType.INT,     WorldUtils::getPlayerBedSpawnLocation);
+
+        public final ValueType valueType;
+        private final Function<EntityPlayer, BlockPos> blockPositionFunction;
 
-        public final BiFunction<Coordinate, EntityPlayer, String> function;
+        PlayerPositionType(ValueType valueType, Function<EntityPlayer, BlockPos> blockPositionFunction)
+        {
+            this.valueType = valueType;
+            this.blockPositionFunction = blockPositionFunction;
+        }
 
-        PlayerPositionType(BiFunction<Coordinate, EntityPlayer, String> function)
+        /**
+         * @return the block position of this type for the given player, or null if it doesn't exist.
+         *         Always null for the EXACT_POSITION type.
+         */
+        @Nullable
+        public BlockPos getBlockPosition(EntityPlayer player)
         {
-            this.function = function;
+            return this.blockPositionFunction.apply(player);
         }
     }
 }
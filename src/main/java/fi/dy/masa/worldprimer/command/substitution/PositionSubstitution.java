@@ -1,8 +1,13 @@
 package fi.dy.masa.worldprimer.command.substitution;
 
 import java.util.function.Function;
+import javax.annotation.Nullable;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.util.Coordinate;
 
 public class PositionSubstitution extends BaseSubstitution
@@ -21,20 +26,55 @@ public class PositionSubstitution extends BaseSubstitution
     }
 
     @Override
-    public String evaluate(CommandContext ctx)
+    public ValueType getValueType()
+    {
+        return ValueType.INT;
+    }
+
+    @Override
+    public boolean isCacheable()
+    {
+        return true;
+    }
+
+    @Nullable
+    protected BlockPos getPosition(CommandContext ctx)
     {
         World world = ctx.getWorld();
+        return world != null ? this.positionFetcher.apply(world) : null;
+    }
 
-        if (world != null)
-        {
-            BlockPos pos = this.positionFetcher.apply(world);
+    @Override
+    public String evaluate(CommandContext ctx)
+    {
+        BlockPos pos = this.getPosition(ctx);
 
-            if (pos != null)
-            {
-                return this.coordinate.getCoordinateAsIntString(pos);
-            }
+        if (pos != null)
+        {
+            return this.coordinate.getCoordinateAsIntString(pos);
         }
 
         return this.getOriginalFullSubstitutionString();
     }
+
+    @Override
+    @Nullable
+    public Value evaluateValue(CommandContext ctx)
+    {
+        BlockPos pos = this.getPosition(ctx);
+        return pos != null ? new IntValue(this.coordinate.getCoordinateAsInt(pos)) : null;
+    }
+
+    @Override
+    public int evaluateInt(CommandContext ctx)
+    {
+        BlockPos pos = this.getPosition(ctx);
+
+        if (pos != null)
+        {
+            return this.coordinate.getCoordinateAsInt(pos);
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
 }
@@ -4,6 +4,10 @@ import java.util.Random;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.value.DoubleValue;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 
 public class RandomNumberSubstitution extends BaseSubstitution
 {
@@ -61,10 +65,28 @@ public class RandomNumberSubstitution extends BaseSubstitution
             this.range = max - min;
         }
 
+        @Override
+        public ValueType getValueType()
+        {
+            return ValueType.INT;
+        }
+
         @Override
         public String evaluate(CommandContext context)
         {
-            return String.valueOf(this.minValue + RAND.nextInt(this.range + 1));
+            return String.valueOf(this.evaluateInt(context));
+        }
+
+        @Override
+        public Value evaluateValue(CommandContext context)
+        {
+            return new IntValue(this.evaluateInt(context));
+        }
+
+        @Override
+        public int evaluateInt(CommandContext context)
+        {
+            return this.minValue + RAND.nextInt(this.range + 1);
         }
     }
 
@@ -83,10 +105,28 @@ public class RandomNumberSubstitution extends BaseSubstitution
             this.range = max - min;
         }
 
+        @Override
+        public ValueType getValueType()
+        {
+            return ValueType.DOUBLE;
+        }
+
         @Override
         public String evaluate(CommandContext context)
         {
-            return String.valueOf(this.minValue + RAND.nextDouble() * this.range);
+            return String.valueOf(this.evaluateDouble(context));
+        }
+
+        @Override
+        public Value evaluateValue(CommandContext context)
+        {
+            return new DoubleValue(this.evaluateDouble(context));
+        }
+
+        @Override
+        public double evaluateDouble(CommandContext context)
+        {
+            return this.minValue + RAND.nextDouble() * this.range;
         }
     }
 }
@@ -0,0 +1,44 @@
+package fi.dy.masa.worldprimer.command.substitution;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+
+/**
+ * Caches the evaluated values of cacheable substitutions for the duration
+ * of one command list execution. The built substitutions are used as the keys,
+ * so that all the occurrences of the same substitution share the cached value.
+ * Only the typed value is cached, and the String form is derived from it,
+ * so that each substitution is evaluated at most once, however it's used.
+ */
+public class SubstitutionCache
+{
+    protected final Map<BaseSubstitution, Value> values = new HashMap<>();
+
+    public String getString(BaseSubstitution substitution, CommandContext ctx)
+    {
+        Value value = this.getValue(substitution, ctx);
+        return value != null ? value.toString() : substitution.getOriginalFullSubstitutionString();
+    }
+
+    @Nullable
+    public Value getValue(BaseSubstitution substitution, CommandContext ctx)
+    {
+        Value value = this.values.get(substitution);
+
+        // Also cache unresolved values, so that they aren't re-evaluated
+        if (value == null && this.values.containsKey(substitution) == false)
+        {
+            value = substitution.evaluateValue(ctx);
+            this.values.put(substitution, value);
+        }
+
+        return value;
+    }
+
+    public void clear()
+    {
+        this.values.clear();
+    }
+}
@@ -5,6 +5,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import net.minecraft.world.World;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.util.WorldUtils;
 
 public class TopBlockYRandSubstitution extends BaseSubstitution
@@ -59,6 +63,12 @@ public class TopBlockYRandSubstitution extends BaseSubstitution
             this.rangeZ = rangeZ;
         }
 
+        @Override
+        public ValueType getValueType()
+        {
+            return ValueType.INT;
+        }
+
         @Override
         public String evaluate(CommandContext ctx)
         {
@@ -66,15 +76,41 @@ public class TopBlockYRandSubstitution extends BaseSubstitution
     
             if (world != null)
             {
-                int rndX = RAND.nextInt(this.rangeX * 2 + 1);
-                int rndZ = RAND.nextInt(this.rangeZ * 2 + 1);
-                int x = this.centerX - this.rangeX + rndX;
-                int z = this.centerZ - this.rangeZ + rndZ;
-    
-                return String.valueOf(WorldUtils.getTopYAt(world, x, z));
+                return String.valueOf(this.getRandomTopY(world));
             }
     
             return this.getOriginalFullSubstitutionString();
         }
+
+        @Override
+        @Nullable
+        public Value evaluateValue(CommandContext ctx)
+        {
+            World world = ctx.getWorld();
+            return world != null ? new IntValue(this.getRandomTopY(world)) : null;
+        }
+
+        @Override
+        public int evaluateInt(CommandContext ctx)
+        {
+            World world = ctx.getWorld();
+
+            if (world != null)
+            {
+                return this.getRandomTopY(world);
+            }
+
+            throw UnresolvedValueException.INSTANCE;
+        }
+
+        protected int getRandomTopY(World world)
+        {
+            int rndX = RAND.nextInt(this.rangeX * 2 + 1);
+            int rndZ = RAND.nextInt(this.rangeZ * 2 + 1);
+            int x = this.centerX - this.rangeX + rndX;
+            int z = this.centerZ - this.rangeZ + rndZ;
+
+            return WorldUtils.getTopYAt(world, x, z);
+        }
     }
 }
@@ -4,6 +4,10 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 import net.minecraft.world.World;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 import fi.dy.masa.worldprimer.util.WorldUtils;
 
 public class TopBlockYSubstitution extends BaseSubstitution
@@ -54,6 +58,18 @@ public class TopBlockYSubstitution extends BaseSubstitution
             this.z = z;
         }
 
+        @Override
+        public ValueType getValueType()
+        {
+            return ValueType.INT;
+        }
+
+        @Override
+        public boolean isCacheable()
+        {
+            return true;
+        }
+
         @Override
         public String evaluate(CommandContext ctx)
         {
@@ -66,5 +82,26 @@ public class TopBlockYSubstitution extends BaseSubstitution
     
             return this.getOriginalFullSubstitutionString();
         }
+
+        @Override
+        @Nullable
+        public Value evaluateValue(CommandContext ctx)
+        {
+            World world = ctx.getWorld();
+            return world != null ? new IntValue(WorldUtils.getTopYAt(world, this.x, this.z)) : null;
+        }
+
+        @Override
+        public int evaluateInt(CommandContext ctx)
+        {
+            World world = ctx.getWorld();
+
+            if (world != null)
+            {
+                return WorldUtils.getTopYAt(world, this.x, this.z);
+            }
+
+            throw UnresolvedValueException.INSTANCE;
+        }
     }
 }
@@ -1,6 +1,11 @@
 package fi.dy.masa.worldprimer.command.substitution;
 
+import javax.annotation.Nullable;
 import net.minecraft.world.World;
+import fi.dy.masa.worldprimer.command.parser.node.UnresolvedValueException;
+import fi.dy.masa.worldprimer.command.parser.value.IntValue;
+import fi.dy.masa.worldprimer.command.parser.value.Value;
+import fi.dy.masa.worldprimer.command.parser.value.ValueType;
 
 public class WorldTimeSubstitution extends BaseSubstitution
 {
@@ -14,6 +19,12 @@ public class WorldTimeSubstitution extends BaseSubstitution
         this.worldTimeSource = worldTimeSource;
     }
 
+    @Override
+    public ValueType getValueType()
+    {
+        return ValueType.INT;
+    }
+
     @Override
     public String evaluate(CommandContext ctx)
     {
@@ -27,6 +38,44 @@ public class WorldTimeSubstitution extends BaseSubstitution
         return this.getOriginalFullSubstitutionString();
     }
 
+    @Override
+    @Nullable
+    public Value evaluateValue(CommandContext ctx)
+    {
+        World world = ctx.getWorld();
+
+        if (world != null)
+        {
+            long time = this.worldTimeSource.getTime(world);
+
+            if (time >= Integer.MIN_VALUE && time <= Integer.MAX_VALUE)
+            {
+                return new IntValue((int) time);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public int evaluateInt(CommandContext ctx)
+    {
+        World world = ctx.getWorld();
+
+        if (world != null)
+        {
+            long time = this.worldTimeSource.getTime(world);
+
+            // Expressions only support int values, same as when the value was parsed from a String
+            if (time >= Integer.MIN_VALUE && time <= Integer.MAX_VALUE)
+            {
+                return (int) time;
+            }
+        }
+
+        throw UnresolvedValueException.INSTANCE;
+    }
+
     public interface WorldTimeSource
     {
         long getTime(World world);
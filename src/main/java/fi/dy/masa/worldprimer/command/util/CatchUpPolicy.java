@@ -0,0 +1,43 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import javax.annotation.Nullable;
+
+/**
+ * Determines what happens to the executions of a periodic scheduled command that were missed,
+ * for example while the dimension was unloaded, or if the world time jumped forward.
+ */
+public enum CatchUpPolicy
+{
+    /** The missed executions are skipped, and the command only runs again on its next regular execution time */
+    SKIP    ("skip"),
+    /** All the missed executions are coalesced into one execution */
+    ONCE    ("once"),
+    /** The missed executions are all run at once, up to the given maximum count */
+    BURST   ("burst");
+
+    private final String name;
+
+    CatchUpPolicy(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    @Nullable
+    public static CatchUpPolicy fromName(String name)
+    {
+        for (CatchUpPolicy policy : values())
+        {
+            if (policy.name.equals(name))
+            {
+                return policy;
+            }
+        }
+
+        return null;
+    }
+}
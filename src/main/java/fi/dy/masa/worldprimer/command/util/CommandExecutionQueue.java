@@ -0,0 +1,203 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import java.util.ArrayDeque;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.handler.ParsedCommand;
+import fi.dy.masa.worldprimer.command.parser.ExpressionParser;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.config.Configs;
+
+/**
+ * Limits the number of commands and the time spent executing them per server tick.
+ * The commands that don't fit into the current tick's budget are deferred to the following ticks,
+ * in their original order within each priority class.
+ * The deferred commands whose world has been unloaded, or whose player has logged out
+ * in the meantime, are dropped instead of being executed.
+ */
+public class CommandExecutionQueue
+{
+    public static final CommandExecutionQueue INSTANCE = new CommandExecutionQueue();
+
+    private static final CommandPriority[] PRIORITIES = CommandPriority.values();
+
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<DeferredCommand>[] queues = new ArrayDeque[PRIORITIES.length];
+    private int usedCommandCount;
+    private long usedNanos;
+    private int deferredThisTick;
+    private long totalDeferredCount;
+    private int droppedThisTick;
+    private long totalDroppedCount;
+    private int maxQueueDepth;
+
+    protected CommandExecutionQueue()
+    {
+        for (int i = 0; i < this.queues.length; ++i)
+        {
+            this.queues[i] = new ArrayDeque<>();
+        }
+    }
+
+    public void execute(ParsedCommand command, CommandContext ctx, ExpressionParser parser, CommandPriority priority)
+    {
+        if (priority.isDeferrable() && (this.hasQueuedCommands(priority) || this.isBudgetUsed()))
+        {
+            this.queues[priority.ordinal()].addLast(new DeferredCommand(command, ctx, parser));
+            ++this.deferredThisTick;
+            ++this.totalDeferredCount;
+            this.maxQueueDepth = Math.max(this.maxQueueDepth, this.getQueueDepth());
+            return;
+        }
+
+        this.executeAndCharge(command, ctx, parser);
+    }
+
+    /**
+     * Resets the budget for the new tick, and then runs the deferred commands
+     * from the previous ticks, for as long as the budget allows.
+     */
+    public void onTickStart()
+    {
+        this.usedCommandCount = 0;
+        this.usedNanos = 0;
+
+        CommandContext lastContext = null;
+
+        for (ArrayDeque<DeferredCommand> queue : this.queues)
+        {
+            while (queue.isEmpty() == false && this.isBudgetUsed() == false)
+            {
+                DeferredCommand deferred = queue.pollFirst();
+
+                if (deferred.ctx.isStillValid() == false)
+                {
+                    ++this.droppedThisTick;
+                    ++this.totalDroppedCount;
+                    continue;
+                }
+
+                // Don't use substitution values cached on some earlier tick
+                if (deferred.ctx != lastContext)
+                {
+                    deferred.ctx.clearSubstitutionCache();
+                    lastContext = deferred.ctx;
+                }
+
+                this.executeAndCharge(deferred.command, deferred.ctx, deferred.parser);
+            }
+        }
+    }
+
+    public void onTickEnd()
+    {
+        if (this.deferredThisTick > 0)
+        {
+            WorldPrimer.logInfo("Deferred {} commands to the next tick, queue depth: {}, total deferred commands: {}",
+                                this.deferredThisTick, this.getQueueDepth(), this.totalDeferredCount);
+            this.deferredThisTick = 0;
+        }
+
+        if (this.droppedThisTick > 0)
+        {
+            WorldPrimer.logInfo("Dropped {} deferred commands whose world or player is no longer valid, total dropped commands: {}",
+                                this.droppedThisTick, this.totalDroppedCount);
+            this.droppedThisTick = 0;
+        }
+    }
+
+    /**
+     * Drops all the deferred commands, for example when the server is stopping
+     */
+    public void clear()
+    {
+        for (ArrayDeque<DeferredCommand> queue : this.queues)
+        {
+            queue.clear();
+        }
+
+        this.deferredThisTick = 0;
+        this.droppedThisTick = 0;
+    }
+
+    public int getQueueDepth()
+    {
+        int depth = 0;
+
+        for (ArrayDeque<DeferredCommand> queue : this.queues)
+        {
+            depth += queue.size();
+        }
+
+        return depth;
+    }
+
+    public int getQueueDepth(CommandPriority priority)
+    {
+        return this.queues[priority.ordinal()].size();
+    }
+
+    public long getTotalDeferredCount()
+    {
+        return this.totalDeferredCount;
+    }
+
+    public long getTotalDroppedCount()
+    {
+        return this.totalDroppedCount;
+    }
+
+    public int getMaxQueueDepth()
+    {
+        return this.maxQueueDepth;
+    }
+
+    private boolean hasQueuedCommands(CommandPriority priority)
+    {
+        // The commands can't skip ahead of the deferred commands of the same or a higher priority
+        for (int i = 0; i <= priority.ordinal(); ++i)
+        {
+            if (this.queues[i].isEmpty() == false)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isBudgetUsed()
+    {
+        return (Configs.commandTickBudgetCount > 0 && this.usedCommandCount >= Configs.commandTickBudgetCount) ||
+               (Configs.commandTickBudgetMicros > 0 && this.usedNanos >= Configs.commandTickBudgetMicros * 1000L);
+    }
+
+    private void executeAndCharge(ParsedCommand command, CommandContext ctx, ExpressionParser parser)
+    {
+        if (Configs.commandTickBudgetMicros > 0)
+        {
+            long start = System.nanoTime();
+            command.execute(ctx, parser);
+            this.usedNanos += System.nanoTime() - start;
+        }
+        else
+        {
+            command.execute(ctx, parser);
+        }
+
+        ++this.usedCommandCount;
+    }
+
+    private static class DeferredCommand
+    {
+        private final ParsedCommand command;
+        private final CommandContext ctx;
+        private final ExpressionParser parser;
+
+        private DeferredCommand(ParsedCommand command, CommandContext ctx, ExpressionParser parser)
+        {
+            this.command = command;
+            this.ctx = ctx;
+            this.parser = parser;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package fi.dy.masa.worldprimer.command.util;
+
+/**
+ * The priority classes for the per-tick command execution budget.
+ * The deferred commands of a higher priority class always run before those of a lower priority class.
+ */
+public enum CommandPriority
+{
+    /**
+     * The world creation and loading commands, and the player quit and death commands, which are never deferred.
+     * The player entity is removed right after it quits or respawns, so its commands can't wait.
+     */
+    IMMEDIATE,
+    /** The player event commands */
+    HIGH,
+    /** The timed and scheduled commands */
+    LOW;
+
+    public boolean isDeferrable()
+    {
+        return this != IMMEDIATE;
+    }
+}
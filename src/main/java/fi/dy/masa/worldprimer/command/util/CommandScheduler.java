@@ -2,9 +2,10 @@ package fi.dy.masa.worldprimer.command.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import net.minecraft.world.World;
 import net.minecraftforge.common.DimensionManager;
@@ -13,17 +14,24 @@ import fi.dy.masa.worldprimer.command.CommandWorldPrimer;
 import fi.dy.masa.worldprimer.command.handler.CommandHandler;
 import fi.dy.masa.worldprimer.command.handler.ParsedCommand;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.config.Configs;
 
 public class CommandScheduler
 {
     public static final CommandScheduler INSTANCE = new CommandScheduler();
 
-    private final Map<Integer, List<ScheduledCommand>> scheduledCommands = new HashMap<>();
-    private long delayUntilNextCommand;
+    private final Map<Integer, ScheduledCommandQueue> scheduledCommands = new HashMap<>();
+    /** The queues of the currently loaded dimensions, which are the only ones checked on each tick */
+    private final List<ScheduledCommandQueue> activeQueues = new ArrayList<>();
+    private long nextSequence;
 
     public void setScheduledCommands(String[] rawCommands)
     {
         this.scheduledCommands.clear();
+        this.activeQueues.clear();
+
+        List<ScheduledCommandEntry> entries = new ArrayList<>();
+        List<WallClockCommand> wallClockCommands = new ArrayList<>();
 
         for (String cmdStr : rawCommands)
         {
@@ -38,10 +46,36 @@ public class CommandScheduler
             {
                 String timeStr = parts[1];
                 boolean isPeriodic = false;
+                boolean hasOffset = false;
                 long offset = 0;
+                CatchUpPolicy catchUpPolicy = CatchUpPolicy.SKIP;
+                int burstCap = 1;
 
                 try
                 {
+                    // Catch-up policy present (<time>:<policy>), ie. in the format %1200:once or %1200-80:burst=5
+                    int policyIndex = timeStr.indexOf(':');
+
+                    if (policyIndex != -1)
+                    {
+                        String policyStr = timeStr.substring(policyIndex + 1);
+                        timeStr = timeStr.substring(0, policyIndex);
+
+                        if (policyStr.startsWith("burst="))
+                        {
+                            burstCap = Integer.parseInt(policyStr.substring(6));
+                            policyStr = CatchUpPolicy.BURST.getName();
+                        }
+
+                        catchUpPolicy = CatchUpPolicy.fromName(policyStr);
+
+                        if (catchUpPolicy == null)
+                        {
+                            WorldPrimer.LOGGER.warn("Invalid catch-up policy '{}' in scheduled command '{}'", policyStr, cmdStr);
+                            continue;
+                        }
+                    }
+
                     // Periodic command
                     if (timeStr.length() > 1 && timeStr.charAt(0) == '%')
                     {
@@ -61,6 +95,7 @@ public class CommandScheduler
                     {
                         offset = Long.parseLong(timeStr.substring(index));
                         timeStr = timeStr.substring(0, index);
+                        hasOffset = true;
                     }
 
                     cmdStr = String.join(" ", CommandWorldPrimer.dropFirstStrings(parts, 3));
@@ -71,7 +106,8 @@ public class CommandScheduler
                         final long time = Long.parseLong(timeStr);
                         final int dimension = Integer.parseInt(parts[2]);
 
-                        this.addScheduleCommand(command, time, offset, isPeriodic, dimension);
+                        entries.add(new ScheduledCommandEntry(command, time, offset, hasOffset, isPeriodic,
+                                                              catchUpPolicy, burstCap, dimension));
                     }
                 }
                 catch (NumberFormatException e)
@@ -79,115 +115,294 @@ public class CommandScheduler
                     WorldPrimer.LOGGER.warn("Invalid time or dimension value in scheduled command '{}'", cmdStr);
                 }
             }
+            else if (parts[0].equals("worldprimer-cron-command"))
+            {
+                WallClockCommand command = this.parseWallClockCommand(cmdStr);
+
+                if (command != null)
+                {
+                    wallClockCommands.add(command);
+                }
+            }
             else
             {
                 WorldPrimer.LOGGER.warn("Invalid scheduled command '{}', ignoring...", cmdStr);
             }
         }
 
-        this.updateAllScheduledCommands(false);
+        WallClockScheduler.INSTANCE.setCommands(wallClockCommands);
+
+        if (Configs.staggerPeriodicScheduledCommands)
+        {
+            staggerPeriodicCommands(entries);
+        }
+
+        for (ScheduledCommandEntry entry : entries)
+        {
+            this.addScheduleCommand(new ScheduledCommand(entry.command, entry.dimension, entry.time, entry.offset, entry.isPeriodic,
+                                                         entry.catchUpPolicy, entry.burstCap, this.nextSequence++));
+        }
+
+        this.updateAllScheduledCommands();
     }
 
-    public void addScheduleCommand(ParsedCommand command, long time, long offset, boolean periodic, int dimension)
+    /**
+     * Parses a wall-clock command in the format:
+     * 'worldprimer-cron-command <minute> <hour> <day-of-month> <month> <day-of-week> <dimension> <command>'
+     */
+    @Nullable
+    private WallClockCommand parseWallClockCommand(String cmdStr)
     {
-        List<ScheduledCommand> list = this.scheduledCommands.computeIfAbsent(dimension, (dim) -> new ArrayList<>());
-        list.add(new ScheduledCommand(command, dimension, time, offset, periodic));
+        String[] parts = cmdStr.split("\\s+", 8);
+
+        if (parts.length < 8)
+        {
+            WorldPrimer.LOGGER.warn("Invalid wall-clock scheduled command '{}', ignoring...", cmdStr);
+            return null;
+        }
+
+        try
+        {
+            CronSchedule schedule = CronSchedule.parse(parts[1], parts[2], parts[3], parts[4], parts[5]);
+            final int dimension = Integer.parseInt(parts[6]);
+            ParsedCommand command = CommandHandler.INSTANCE.buildCommand("Wall-Clock Scheduled Command", parts[7]);
+
+            if (command != null)
+            {
+                return new WallClockCommand(schedule, command, dimension);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            WorldPrimer.LOGGER.warn("Invalid schedule or dimension value in wall-clock scheduled command '{}': {}", cmdStr, e.getMessage());
+        }
+
+        return null;
     }
 
-    public void updateAllScheduledCommands(boolean removeFromCurrentTick)
+    /**
+     * Spreads the periodic commands that share the same period, and that don't have an explicit offset,
+     * evenly across the period. The offsets only depend on the order of the commands in the config,
+     * so the execution times stay the same across server restarts.
+     */
+    private static void staggerPeriodicCommands(List<ScheduledCommandEntry> entries)
     {
-        this.delayUntilNextCommand = -1;
+        Map<Long, List<ScheduledCommandEntry>> commandsByPeriod = new LinkedHashMap<>();
+
+        for (ScheduledCommandEntry entry : entries)
+        {
+            if (entry.isPeriodic && entry.hasOffset == false && entry.time > 1)
+            {
+                commandsByPeriod.computeIfAbsent(entry.time, (period) -> new ArrayList<>()).add(entry);
+            }
+        }
 
-        if (this.scheduledCommands.size() > 0)
+        for (List<ScheduledCommandEntry> list : commandsByPeriod.values())
         {
-            this.scheduledCommands.entrySet().removeIf(entry -> this.updateScheduledCommandsForDimension(entry.getKey(), removeFromCurrentTick));
+            final int count = list.size();
+
+            for (int i = 1; i < count; ++i)
+            {
+                ScheduledCommandEntry entry = list.get(i);
+                entry.offset = entry.time * i / count;
+            }
         }
     }
 
-    public void updateScheduledCommandsForDimension(int dimension)
+    public void addScheduleCommand(ParsedCommand command, long time, long offset, boolean periodic, int dimension)
     {
-        if (this.updateScheduledCommandsForDimension(dimension, false))
+        this.addScheduleCommand(new ScheduledCommand(command, dimension, time, offset, periodic, this.nextSequence++));
+    }
+
+    private void addScheduleCommand(ScheduledCommand scheduledCommand)
+    {
+        ScheduledCommandQueue queue = this.getOrCreateQueue(scheduledCommand.getDimension());
+        World world = queue.getWorld();
+
+        if (world != null)
+        {
+            queue.add(scheduledCommand, world.getTotalWorldTime());
+        }
+        else
         {
-            this.scheduledCommands.remove(dimension);
+            queue.addUnscheduled(scheduledCommand);
         }
     }
 
-    private boolean updateScheduledCommandsForDimension(int dimension, boolean removeFromCurrentTick)
+    private ScheduledCommandQueue getOrCreateQueue(int dimension)
     {
-        World world = DimensionManager.getWorld(dimension);
-        List<ScheduledCommand> list = this.scheduledCommands.get(dimension);
+        ScheduledCommandQueue queue = this.scheduledCommands.get(dimension);
 
-        if (world != null && list != null)
+        if (queue == null)
         {
-            final long currentTime = world.getTotalWorldTime();
-            Iterator<ScheduledCommand> iterator = list.iterator();
-
-            while (iterator.hasNext())
-            {
-                ScheduledCommand command = iterator.next();
-                command.update(currentTime);
-                //System.out.printf("updated command: %s @ %d\n", command, currentTime);
+            queue = new ScheduledCommandQueue(dimension);
+            this.scheduledCommands.put(dimension, queue);
+            this.setQueueWorld(queue, DimensionManager.getWorld(dimension));
+        }
 
-                if (command.getNextExecution() < currentTime || (removeFromCurrentTick && command.getNextExecution() == currentTime))
-                {
-                    //System.out.printf("removing command: %s @ %d\n", command, currentTime);
-                    iterator.remove();
-                }
-            }
+        return queue;
+    }
 
-            if (list.isEmpty())
+    private void setQueueWorld(ScheduledCommandQueue queue, @Nullable World world)
+    {
+        if (world != null)
+        {
+            if (queue.getWorld() == null)
             {
-                //System.out.printf("removing list for dim %d @ %d\n", dimension, currentTime);
-                return true;
+                this.activeQueues.add(queue);
             }
 
-            list.sort(ScheduledCommand::compareTo);
-            long delay = list.get(0).getNextExecution() - currentTime;
+            queue.setWorld(world);
+            queue.update(world.getTotalWorldTime());
+        }
+        else if (queue.getWorld() != null)
+        {
+            queue.setWorld(null);
+            this.activeQueues.remove(queue);
+        }
+    }
 
-            if (this.delayUntilNextCommand < 0 || delay < this.delayUntilNextCommand)
-            {
-                this.delayUntilNextCommand = delay;
-            }
+    /**
+     * Re-checks which dimensions are currently loaded, and brings all the loaded dimensions' commands
+     * up to date with their world's current time.
+     */
+    public void updateAllScheduledCommands()
+    {
+        for (ScheduledCommandQueue queue : this.scheduledCommands.values())
+        {
+            this.setQueueWorld(queue, DimensionManager.getWorld(queue.getDimension()));
         }
 
-        return false;
+        this.removeEmptyQueues();
+    }
+
+    /**
+     * Resumes the scheduled commands of the dimension, using the world's current time.
+     * The periodic commands that were missed while the dimension was unloaded are moved
+     * to their next execution time, and the missed non-periodic commands are removed.
+     */
+    public void onWorldLoad(World world, int dimension)
+    {
+        ScheduledCommandQueue queue = this.scheduledCommands.get(dimension);
+
+        if (queue != null)
+        {
+            this.setQueueWorld(queue, world);
+        }
+    }
+
+    /**
+     * Pauses the scheduled commands of the dimension until it gets loaded again.
+     */
+    public void onWorldUnload(int dimension)
+    {
+        ScheduledCommandQueue queue = this.scheduledCommands.get(dimension);
+
+        if (queue != null)
+        {
+            this.setQueueWorld(queue, null);
+        }
     }
 
     public void runScheduledCommands()
     {
-        if (this.delayUntilNextCommand > 0 && --this.delayUntilNextCommand == 0)
+        boolean hasEmptyQueues = false;
+        // The executed commands may schedule new commands, possibly into new dimensions,
+        // those will be checked on the next tick.
+        final int count = this.activeQueues.size();
+
+        for (int i = 0; i < count && i < this.activeQueues.size(); ++i)
         {
-            for (Map.Entry<Integer, List<ScheduledCommand>> entry : this.scheduledCommands.entrySet())
-            {
-                int dimension = entry.getKey();
-                World world = DimensionManager.getWorld(dimension);
+            ScheduledCommandQueue queue = this.activeQueues.get(i);
+            World world = queue.getWorld();
 
-                if (world != null)
-                {
-                    this.runScheduledCommandsFromList(entry.getValue(), world, dimension);
-                }
+            if (world != null && queue.getNextExecution() <= world.getTotalWorldTime())
+            {
+                this.runScheduledCommandsFromQueue(queue, world, queue.getDimension());
+                hasEmptyQueues |= queue.isEmpty();
             }
+        }
 
-            this.updateAllScheduledCommands(true);
+        if (hasEmptyQueues)
+        {
+            this.removeEmptyQueues();
         }
     }
 
-    protected void runScheduledCommandsFromList(List<ScheduledCommand> commands, World world, int dimension)
+    public List<ScheduledCommand> getAllScheduledCommands()
+    {
+        List<ScheduledCommand> list = new ArrayList<>();
+
+        for (ScheduledCommandQueue queue : this.scheduledCommands.values())
+        {
+            list.addAll(queue.getAllCommands());
+        }
+
+        return list;
+    }
+
+    private void removeEmptyQueues()
+    {
+        this.scheduledCommands.values().removeIf(ScheduledCommandQueue::isEmpty);
+        this.activeQueues.removeIf(ScheduledCommandQueue::isEmpty);
+    }
+
+    protected void runScheduledCommandsFromQueue(ScheduledCommandQueue queue, World world, int dimension)
     {
-        CommandContext ctx = new CommandContext(world, null, 0, dimension);
         final long currentTime = world.getTotalWorldTime();
+        List<ScheduledCommand> commands = queue.pollDueCommands(currentTime);
+
+        if (commands.isEmpty())
+        {
+            return;
+        }
+
+        CommandContext ctx = new CommandContext(world, null, 0, dimension);
 
         for (ScheduledCommand command : commands)
         {
-            if (command.getNextExecution() <= currentTime)
+            final int count = command.getExecutionCount(currentTime);
+
+            if (count != 1)
             {
-                WorldPrimer.logInfo("Executing a scheduled command: tick: {}, dim: {}", currentTime, dimension);
-                CommandHandler.INSTANCE.executeCommand(command.getCommand(), ctx);
+                WorldPrimer.logInfo("Catching up on a scheduled command with the policy '{}': tick: {}, dim: {}, " +
+                                    "executions now: {}, missed: {}, coalesced: {}",
+                                    command.getCatchUpPolicy().getName(), currentTime, dimension, count,
+                                    command.getMissedCount(), command.getCoalescedCount());
             }
-            else if (command.getNextExecution() > currentTime)
+
+            for (int i = 0; i < count; ++i)
             {
-                break;
+                WorldPrimer.logInfo("Executing a scheduled command: tick: {}, dim: {}", currentTime, dimension);
+                CommandHandler.INSTANCE.executeCommand(command.getCommand(), ctx, CommandPriority.LOW);
             }
         }
+
+        queue.reschedule(commands, currentTime);
+    }
+
+    private static class ScheduledCommandEntry
+    {
+        private final ParsedCommand command;
+        private final long time;
+        private final boolean hasOffset;
+        private final boolean isPeriodic;
+        private final CatchUpPolicy catchUpPolicy;
+        private final int burstCap;
+        private final int dimension;
+        private long offset;
+
+        private ScheduledCommandEntry(ParsedCommand command, long time, long offset, boolean hasOffset, boolean isPeriodic,
+                                      CatchUpPolicy catchUpPolicy, int burstCap, int dimension)
+        {
+            this.command = command;
+            this.time = time;
+            this.offset = offset;
+            this.hasOffset = hasOffset;
+            this.isPeriodic = isPeriodic;
+            this.catchUpPolicy = catchUpPolicy;
+            this.burstCap = burstCap;
+            this.dimension = dimension;
+        }
     }
 }
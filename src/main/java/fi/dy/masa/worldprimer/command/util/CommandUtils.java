@@ -10,6 +10,7 @@ import fi.dy.masa.worldprimer.config.Configs;
 import fi.dy.masa.worldprimer.util.DataTracker;
 import fi.dy.masa.worldprimer.util.DataTracker.PlayerDataType;
 import fi.dy.masa.worldprimer.util.DataTracker.PlayerDimensionDataType;
+import fi.dy.masa.worldprimer.util.SpreadCandidatePool;
 
 public class CommandUtils
 {
@@ -54,7 +55,7 @@ public class CommandUtils
 
             if (Configs.enableTimedCommands)
             {
-                CommandScheduler.INSTANCE.updateScheduledCommandsForDimension(dimension);
+                CommandScheduler.INSTANCE.onWorldLoad(world, dimension);
             }
 
             // The creation commands are only run via this method when not using dimension load count tracking
@@ -76,9 +77,22 @@ public class CommandUtils
         }
     }
 
+    public static void onWorldUnload(World world)
+    {
+        if (world.isRemote == false)
+        {
+            final int dimension = getDimension(world);
+            WorldPrimer.logInfo("WorldEvent.Unload, DIM: {}", dimension);
+
+            CommandScheduler.INSTANCE.onWorldUnload(dimension);
+            SpreadCandidatePool.INSTANCE.onWorldUnload(dimension);
+        }
+    }
+
     public static void onPlayerJoin(EntityPlayer player)
     {
         WorldPrimer.logInfo("PlayerLoggedInEvent: running join commands for player {}", player);
+        DataTracker.INSTANCE.onPlayerLoggedIn(player);
         handlePlayerEvent(player, PlayerDataType.JOIN, Configs.enablePlayerJoinCommands);
 
         if (Configs.enablePlayerChangedDimensionEnterCommands &&
@@ -103,9 +117,12 @@ public class CommandUtils
             int dimension = getDimension(player);
             int currentCount = DataTracker.INSTANCE.incrementPlayerDimensionEventCount(player, dimension, PlayerDimensionDataType.LEAVE);
 
+            // The player is removed right after the logout event, so these can't be deferred to a later tick
             CommandContext ctx = new CommandContext(player.getEntityWorld(), player, currentCount);
-            CommandHandler.INSTANCE.executeCommands(CommandHandler.CommandType.PLAYER_DIM_LEAVE, ctx);
+            CommandHandler.INSTANCE.executeCommands(CommandHandler.CommandType.PLAYER_DIM_LEAVE, ctx, CommandPriority.IMMEDIATE);
         }
+
+        DataTracker.INSTANCE.onPlayerLoggedOut(player);
     }
 
     public static void onPlayerDeath(EntityPlayer player)
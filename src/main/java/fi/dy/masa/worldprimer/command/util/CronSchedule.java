@@ -0,0 +1,182 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A cron-like wall-clock schedule, with the five standard fields:
+ * <pre>
+ * minute (0-59) hour (0-23) day-of-month (1-31) month (1-12) day-of-week (0-7, both 0 and 7 are Sunday)
+ * </pre>
+ * Each field can be a '*', a single value, a range 'a-b', a step '*&#47;n' or 'a-b/n',
+ * or a comma separated list of those. As in cron, if both the day-of-month and the day-of-week
+ * are restricted, then the schedule matches when either one of them matches.
+ */
+public class CronSchedule
+{
+    private final long minutes;
+    private final long hours;
+    private final long daysOfMonth;
+    private final long months;
+    private final long daysOfWeek;
+    private final boolean daysOfMonthRestricted;
+    private final boolean daysOfWeekRestricted;
+
+    protected CronSchedule(long minutes, long hours, long daysOfMonth, long months, long daysOfWeek,
+                           boolean daysOfMonthRestricted, boolean daysOfWeekRestricted)
+    {
+        this.minutes = minutes;
+        this.hours = hours;
+        this.daysOfMonth = daysOfMonth;
+        this.months = months;
+        this.daysOfWeek = daysOfWeek;
+        this.daysOfMonthRestricted = daysOfMonthRestricted;
+        this.daysOfWeekRestricted = daysOfWeekRestricted;
+    }
+
+    /**
+     * Returns the first matching time strictly after the given time, or null if there is
+     * no matching time within the next few years (for example with February 30th).
+     */
+    @Nullable
+    public ZonedDateTime getNextFireTime(ZonedDateTime after)
+    {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(5);
+
+        while (time.isBefore(limit))
+        {
+            if (isSet(this.months, time.getMonthValue()) == false)
+            {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            }
+            else if (this.matchesDay(time) == false)
+            {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            }
+            else if (isSet(this.hours, time.getHour()) == false)
+            {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            }
+            else if (isSet(this.minutes, time.getMinute()) == false)
+            {
+                time = time.plusMinutes(1);
+            }
+            else
+            {
+                return time;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean matchesDay(ZonedDateTime time)
+    {
+        boolean dayOfMonth = isSet(this.daysOfMonth, time.getDayOfMonth());
+        // DayOfWeek values are 1-7 for Monday-Sunday, cron uses 0 for Sunday
+        boolean dayOfWeek = isSet(this.daysOfWeek, time.getDayOfWeek() == DayOfWeek.SUNDAY ? 0 : time.getDayOfWeek().getValue());
+
+        if (this.daysOfMonthRestricted && this.daysOfWeekRestricted)
+        {
+            return dayOfMonth || dayOfWeek;
+        }
+
+        return dayOfMonth && dayOfWeek;
+    }
+
+    private static boolean isSet(long mask, int value)
+    {
+        return (mask & (1L << value)) != 0;
+    }
+
+    /**
+     * Parses the schedule from the five cron fields.
+     * @throws IllegalArgumentException if any of the fields are invalid
+     */
+    public static CronSchedule parse(String minute, String hour, String dayOfMonth, String month, String dayOfWeek)
+    {
+        long daysOfWeek = parseField(dayOfWeek, 0, 7, "day-of-week");
+
+        // Both 0 and 7 are Sunday
+        if (isSet(daysOfWeek, 7))
+        {
+            daysOfWeek |= 1L;
+        }
+
+        return new CronSchedule(parseField(minute, 0, 59, "minute"),
+                                parseField(hour, 0, 23, "hour"),
+                                parseField(dayOfMonth, 1, 31, "day-of-month"),
+                                parseField(month, 1, 12, "month"),
+                                daysOfWeek,
+                                dayOfMonth.equals("*") == false,
+                                dayOfWeek.equals("*") == false);
+    }
+
+    private static long parseField(String field, int min, int max, String name)
+    {
+        long mask = 0;
+
+        for (String part : field.split(","))
+        {
+            int step = 1;
+            int slashIndex = part.indexOf('/');
+
+            if (slashIndex != -1)
+            {
+                step = parseValue(part.substring(slashIndex + 1), 1, max, name);
+                part = part.substring(0, slashIndex);
+            }
+
+            int start;
+            int end;
+            int dashIndex = part.indexOf('-');
+
+            if (part.equals("*"))
+            {
+                start = min;
+                end = max;
+            }
+            else if (dashIndex != -1)
+            {
+                start = parseValue(part.substring(0, dashIndex), min, max, name);
+                end = parseValue(part.substring(dashIndex + 1), min, max, name);
+            }
+            else
+            {
+                start = parseValue(part, min, max, name);
+                end = slashIndex != -1 ? max : start;
+            }
+
+            if (start > end)
+            {
+                throw new IllegalArgumentException("Invalid " + name + " range '" + part + "'");
+            }
+
+            for (int i = start; i <= end; i += step)
+            {
+                mask |= 1L << i;
+            }
+        }
+
+        return mask;
+    }
+
+    private static int parseValue(String str, int min, int max, String name)
+    {
+        try
+        {
+            int value = Integer.parseInt(str);
+
+            if (value >= min && value <= max)
+            {
+                return value;
+            }
+        }
+        catch (NumberFormatException ignore) {}
+
+        throw new IllegalArgumentException("Invalid " + name + " value '" + str + "' (must be " + min + " - " + max + ")");
+    }
+}
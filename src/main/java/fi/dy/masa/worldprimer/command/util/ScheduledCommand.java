@@ -9,15 +9,38 @@ public class ScheduledCommand implements Comparable<ScheduledCommand>
     private final boolean isPeriodic;
     private final long time;
     private final long offset;
+    private final long sequence;
+    private final CatchUpPolicy catchUpPolicy;
+    private final int burstCap;
     private long nextExecution;
+    private long missedCount;
+    private long coalescedCount;
 
-    public ScheduledCommand(ParsedCommand command, int dimension, long time, long offset, boolean isPeriodic)
+    /**
+     * @param sequence the order in which the commands were added, used to run the commands
+     *                 scheduled for the same tick in the order they were added
+     */
+    public ScheduledCommand(ParsedCommand command, int dimension, long time, long offset, boolean isPeriodic, long sequence)
+    {
+        this(command, dimension, time, offset, isPeriodic, CatchUpPolicy.SKIP, 1, sequence);
+    }
+
+    /**
+     * @param burstCap the maximum number of executions per tick with the BURST catch-up policy
+     * @param sequence the order in which the commands were added, used to run the commands
+     *                 scheduled for the same tick in the order they were added
+     */
+    public ScheduledCommand(ParsedCommand command, int dimension, long time, long offset, boolean isPeriodic,
+                            CatchUpPolicy catchUpPolicy, int burstCap, long sequence)
     {
         this.command = command;
         this.dimension = dimension;
         this.time = time;
         this.offset = offset;
         this.isPeriodic = isPeriodic;
+        this.catchUpPolicy = catchUpPolicy;
+        this.burstCap = Math.max(burstCap, 1);
+        this.sequence = sequence;
     }
 
     public ParsedCommand getCommand()
@@ -40,6 +63,62 @@ public class ScheduledCommand implements Comparable<ScheduledCommand>
         return this.nextExecution;
     }
 
+    public CatchUpPolicy getCatchUpPolicy()
+    {
+        return this.catchUpPolicy;
+    }
+
+    /**
+     * @return the number of executions that were skipped, or dropped over the burst cap
+     */
+    public long getMissedCount()
+    {
+        return this.missedCount;
+    }
+
+    /**
+     * @return the number of executions that were coalesced into some other execution
+     */
+    public long getCoalescedCount()
+    {
+        return this.coalescedCount;
+    }
+
+    /**
+     * Returns how many times the command should be executed now that it's due, based on how many
+     * of its executions have been missed and the catch-up policy, and updates the missed and coalesced counters.
+     */
+    public int getExecutionCount(final long currentTime)
+    {
+        if (this.isPeriodic == false || this.nextExecution >= currentTime)
+        {
+            return 1;
+        }
+
+        // The number of execution times from the missed one up to the current time
+        final long dueCount = (currentTime - this.nextExecution) / this.time + 1;
+        int count;
+
+        if (this.catchUpPolicy == CatchUpPolicy.ONCE)
+        {
+            count = 1;
+            this.coalescedCount += dueCount - 1;
+        }
+        else if (this.catchUpPolicy == CatchUpPolicy.BURST)
+        {
+            count = (int) Math.min(dueCount, this.burstCap);
+            this.missedCount += dueCount - count;
+        }
+        else
+        {
+            // Only the execution at the current time (if there is one) is not missed
+            count = Math.floorMod(currentTime - this.offset, this.time) == 0 ? 1 : 0;
+            this.missedCount += dueCount - count;
+        }
+
+        return count;
+    }
+
     public void update(final long currentTime)
     {
         if (this.isPeriodic)
@@ -68,13 +147,13 @@ public class ScheduledCommand implements Comparable<ScheduledCommand>
             return 1;
         }
 
-        return 0;
+        return Long.compare(this.sequence, other.sequence);
     }
 
     @Override
     public String toString()
     {
-        return String.format("ScheduledCommand{dimension=%d,time=%d,periodic=%s,nextExecution=%d,command=%s}",
-                             this.dimension, this.time, this.isPeriodic, this.nextExecution, this.command);
+        return String.format("ScheduledCommand{dimension=%d,time=%d,periodic=%s,nextExecution=%d,catchUpPolicy=%s,command=%s}",
+                             this.dimension, this.time, this.isPeriodic, this.nextExecution, this.catchUpPolicy, this.command);
     }
 }
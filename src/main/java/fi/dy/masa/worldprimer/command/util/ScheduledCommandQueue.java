@@ -0,0 +1,144 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import javax.annotation.Nullable;
+import net.minecraft.world.World;
+
+/**
+ * The scheduled commands of one dimension, ordered by their next execution time in absolute world ticks.
+ * The times are always compared against the dimension's own world time.
+ * Adding a command and taking the next due command are both O(log n).
+ */
+public class ScheduledCommandQueue
+{
+    private final PriorityQueue<ScheduledCommand> queue = new PriorityQueue<>();
+    private final List<ScheduledCommand> unscheduled = new ArrayList<>();
+    private final int dimension;
+    @Nullable private World world;
+
+    public ScheduledCommandQueue(int dimension)
+    {
+        this.dimension = dimension;
+    }
+
+    public int getDimension()
+    {
+        return this.dimension;
+    }
+
+    /**
+     * @return the world of this dimension, if it's currently loaded
+     */
+    @Nullable
+    public World getWorld()
+    {
+        return this.world;
+    }
+
+    public void setWorld(@Nullable World world)
+    {
+        this.world = world;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.queue.isEmpty() && this.unscheduled.isEmpty();
+    }
+
+    /**
+     * @return the next execution time of the first command in the queue, or Long.MAX_VALUE if the queue is empty
+     */
+    public long getNextExecution()
+    {
+        ScheduledCommand command = this.queue.peek();
+        return command != null ? command.getNextExecution() : Long.MAX_VALUE;
+    }
+
+    /**
+     * Adds the command to the queue, if it's not already in the past.
+     * @return true if the command was added
+     */
+    public boolean add(ScheduledCommand command, final long currentTime)
+    {
+        command.update(currentTime);
+
+        if (command.getNextExecution() < currentTime)
+        {
+            return false;
+        }
+
+        this.queue.add(command);
+
+        return true;
+    }
+
+    /**
+     * Adds a command whose next execution time can't be determined yet, because the world is not loaded.
+     * The command will be added to the queue on the next call to update().
+     */
+    public void addUnscheduled(ScheduledCommand command)
+    {
+        this.unscheduled.add(command);
+    }
+
+    /**
+     * Adds the unscheduled commands to the queue, and removes the missed non-periodic commands.
+     * The missed periodic commands are left in the queue, and they will be handled
+     * according to their catch-up policy when they are run.
+     */
+    public void update(final long currentTime)
+    {
+        for (ScheduledCommand command : this.unscheduled)
+        {
+            this.add(command, currentTime);
+        }
+
+        this.unscheduled.clear();
+        this.queue.removeIf((command) -> command.getIsPeriodic() == false && command.getNextExecution() < currentTime);
+    }
+
+    /**
+     * Removes and returns all the commands that are due at or before the given time, in execution order.
+     * The periodic commands should be added back via reschedule() after they have been executed.
+     */
+    public List<ScheduledCommand> pollDueCommands(final long currentTime)
+    {
+        if (this.getNextExecution() > currentTime)
+        {
+            return Collections.emptyList();
+        }
+
+        List<ScheduledCommand> list = new ArrayList<>();
+
+        while (this.queue.isEmpty() == false && this.queue.peek().getNextExecution() <= currentTime)
+        {
+            list.add(this.queue.poll());
+        }
+
+        return list;
+    }
+
+    public List<ScheduledCommand> getAllCommands()
+    {
+        List<ScheduledCommand> list = new ArrayList<>(this.queue);
+        list.addAll(this.unscheduled);
+        return list;
+    }
+
+    /**
+     * Adds the periodic commands from the given list back to the queue, at their next execution time.
+     */
+    public void reschedule(List<ScheduledCommand> commands, final long currentTime)
+    {
+        for (ScheduledCommand command : commands)
+        {
+            if (command.getIsPeriodic())
+            {
+                this.add(command, currentTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import fi.dy.masa.worldprimer.command.handler.ParsedCommand;
+
+public class WallClockCommand
+{
+    private final CronSchedule schedule;
+    private final ParsedCommand command;
+    private final int dimension;
+    private volatile boolean cancelled;
+    @Nullable private volatile ScheduledFuture<?> future;
+
+    public WallClockCommand(CronSchedule schedule, ParsedCommand command, int dimension)
+    {
+        this.schedule = schedule;
+        this.command = command;
+        this.dimension = dimension;
+    }
+
+    public ParsedCommand getCommand()
+    {
+        return this.command;
+    }
+
+    public int getDimension()
+    {
+        return this.dimension;
+    }
+
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    public void cancel()
+    {
+        this.cancelled = true;
+        ScheduledFuture<?> future = this.future;
+
+        if (future != null)
+        {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Schedules a timer task for the next fire time after the given time. When the task runs,
+     * it adds this command to the due queue, and then schedules itself again for the following fire time.
+     */
+    public void schedule(ScheduledExecutorService executor, Queue<WallClockCommand> dueQueue, ZonedDateTime after)
+    {
+        ZonedDateTime next = this.schedule.getNextFireTime(after);
+
+        if (this.cancelled || next == null)
+        {
+            return;
+        }
+
+        long delay = Math.max(Duration.between(ZonedDateTime.now(next.getZone()), next).toMillis(), 0);
+
+        try
+        {
+            this.future = executor.schedule(() -> {
+                dueQueue.add(this);
+
+                // Skip over any fire times that were missed, for example if the system was suspended
+                ZonedDateTime now = ZonedDateTime.now(next.getZone());
+                this.schedule(executor, dueQueue, now.isAfter(next) ? now : next);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException ignore) {}
+    }
+}
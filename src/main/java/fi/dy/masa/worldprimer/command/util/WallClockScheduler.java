@@ -0,0 +1,140 @@
+package fi.dy.masa.worldprimer.command.util;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
+import net.minecraft.world.World;
+import net.minecraftforge.common.DimensionManager;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.handler.CommandHandler;
+import fi.dy.masa.worldprimer.command.substitution.CommandContext;
+import fi.dy.masa.worldprimer.config.Configs;
+
+/**
+ * Runs commands on a cron-like wall-clock schedule, independently of the world time and the TPS.
+ * A background timer thread waits for the fire times, and hands the due commands over
+ * to the server thread via a lock-free queue, which is then drained on each server tick.
+ */
+public class WallClockScheduler
+{
+    public static final WallClockScheduler INSTANCE = new WallClockScheduler();
+
+    private final ConcurrentLinkedQueue<WallClockCommand> dueCommands = new ConcurrentLinkedQueue<>();
+    private List<WallClockCommand> commands = Collections.emptyList();
+    @Nullable private ScheduledExecutorService executor;
+    private boolean running;
+
+    public void setCommands(List<WallClockCommand> commands)
+    {
+        this.cancelAll();
+        this.commands = commands;
+
+        if (this.running)
+        {
+            this.startTimer();
+        }
+    }
+
+    /**
+     * Starts running the wall-clock commands, when the server has started
+     */
+    public void start()
+    {
+        this.running = true;
+        this.startTimer();
+    }
+
+    /**
+     * Starts the timer thread if there are any wall-clock commands, or re-schedules the commands
+     * if the thread is already running. Nothing is scheduled if the timed commands are disabled,
+     * as the due commands are then never run, and they would just pile up in the queue.
+     * The commands get re-set when the configs are reloaded, so toggling the option takes effect then.
+     */
+    private void startTimer()
+    {
+        if (Configs.enableTimedCommands == false)
+        {
+            this.dueCommands.clear();
+        }
+        else if (this.executor != null)
+        {
+            this.scheduleAll(this.executor);
+        }
+        else if (this.commands.isEmpty() == false)
+        {
+            this.executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, "WorldPrimer Wall-Clock Scheduler");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            this.scheduleAll(this.executor);
+        }
+    }
+
+    public void stop()
+    {
+        this.running = false;
+        this.cancelAll();
+
+        if (this.executor != null)
+        {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+
+        this.dueCommands.clear();
+    }
+
+    /**
+     * Runs the commands that the timer thread has marked as due. Called on the server thread.
+     */
+    public void runDueCommands()
+    {
+        WallClockCommand command;
+
+        while ((command = this.dueCommands.poll()) != null)
+        {
+            if (command.isCancelled())
+            {
+                continue;
+            }
+
+            final int dimension = command.getDimension();
+            World world = DimensionManager.getWorld(dimension);
+
+            if (world != null)
+            {
+                WorldPrimer.logInfo("Executing a wall-clock scheduled command in dim: {}", dimension);
+                CommandContext ctx = new CommandContext(world, null, 0, dimension);
+                CommandHandler.INSTANCE.executeCommand(command.getCommand(), ctx, CommandPriority.LOW);
+            }
+            else
+            {
+                WorldPrimer.logInfo("Skipping a wall-clock scheduled command, because dimension {} is not loaded", dimension);
+            }
+        }
+    }
+
+    private void scheduleAll(ScheduledExecutorService executor)
+    {
+        ZonedDateTime now = ZonedDateTime.now();
+
+        for (WallClockCommand command : this.commands)
+        {
+            command.schedule(executor, this.dueCommands, now);
+        }
+    }
+
+    private void cancelAll()
+    {
+        for (WallClockCommand command : this.commands)
+        {
+            command.cancel();
+        }
+    }
+}
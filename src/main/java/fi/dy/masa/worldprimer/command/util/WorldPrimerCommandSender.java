@@ -4,17 +4,27 @@ import javax.annotation.Nullable;
 import javax.annotation.ParametersAreNonnullByDefault;
 import org.apache.commons.lang3.StringUtils;
 import net.minecraft.command.CommandException;
+import net.minecraft.command.CommandResultStats;
 import net.minecraft.command.CommandResultStats.Type;
+import net.minecraft.command.EntitySelector;
+import net.minecraft.command.ICommand;
 import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
 import net.minecraft.entity.Entity;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+import net.minecraft.util.text.TextFormatting;
 import net.minecraft.world.World;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.CommandEvent;
 import net.minecraftforge.fml.common.FMLCommonHandler;
 import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.handler.BoundSubCommand;
+import fi.dy.masa.worldprimer.command.handler.CommandTemplate;
 import fi.dy.masa.worldprimer.command.handler.ParsedCommand;
 import fi.dy.masa.worldprimer.command.substitution.CommandContext;
 import fi.dy.masa.worldprimer.config.Configs;
@@ -82,6 +92,162 @@ public class WorldPrimerCommandSender implements ICommandSender
         }
     }
 
+    /**
+     * Executes a pre-split command directly, without going through the command manager's string parsing.
+     * @return true if the command was executed (or attempted to), false if the command
+     *         needs to be executed via the full command string instead
+     */
+    public boolean executeCommand(ParsedCommand command, CommandTemplate template, CommandContext ctx)
+    {
+        MinecraftServer server = this.getServer();
+        ICommand targetCommand = template.getCommand(server);
+
+        if (targetCommand == null)
+        {
+            return false;
+        }
+
+        String[] args = template.getArguments(ctx);
+
+        if (args == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            this.applyOverrides(command, ctx);
+
+            ICommandSender sender = this.getCommandSender();
+
+            // Let the command manager handle the player selectors that need to run the command for multiple players,
+            // and the permission failure messages.
+            if (this.hasMultiPlayerSelector(targetCommand, args) ||
+                targetCommand.checkPermission(server, sender) == false)
+            {
+                return false;
+            }
+
+            command.logDirectExecution(template.getCommandName(), args);
+
+            if (Configs.enableLoggingInfo)
+            {
+                World world = this.getExecutionWorld(sender);
+                String dimStr = world != null ? String.valueOf(world.provider.getDimension()) : "<none>";
+                WorldPrimer.logInfo("Running a (possibly substituted) pre-split command: '{} {}' in dimension {}",
+                                    template.getCommandName(), String.join(" ", args), dimStr);
+            }
+
+            CommandEvent event = new CommandEvent(targetCommand, sender, args);
+
+            if (MinecraftForge.EVENT_BUS.post(event))
+            {
+                if (event.getException() != null)
+                {
+                    WorldPrimer.LOGGER.warn("Failed to execute the command '{}'", template.getCommandName(), event.getException());
+                }
+
+                return true;
+            }
+
+            // Mirror CommandHandler#executeCommand() and CommandHandler#tryExecute() for the stats and the error messages
+            int successCount = 0;
+
+            try
+            {
+                targetCommand.execute(server, sender, event.getParameters());
+                successCount = 1;
+            }
+            catch (WrongUsageException e)
+            {
+                TextComponentTranslation message = new TextComponentTranslation("commands.generic.usage",
+                        new TextComponentTranslation(e.getMessage(), e.getErrorObjects()));
+                message.getStyle().setColor(TextFormatting.RED);
+                sender.sendMessage(message);
+            }
+            catch (CommandException e)
+            {
+                TextComponentTranslation message = new TextComponentTranslation(e.getMessage(), e.getErrorObjects());
+                message.getStyle().setColor(TextFormatting.RED);
+                sender.sendMessage(message);
+            }
+
+            sender.setCommandStat(CommandResultStats.Type.SUCCESS_COUNT, successCount);
+        }
+        catch (Exception e)
+        {
+            TextComponentTranslation message = new TextComponentTranslation("commands.generic.exception");
+            message.getStyle().setColor(TextFormatting.RED);
+            this.getCommandSender().sendMessage(message);
+            WorldPrimer.LOGGER.warn("Exception while executing the command '{}'", template.getCommandName(), e);
+        }
+        finally
+        {
+            this.clearOverrides();
+        }
+
+        return true;
+    }
+
+    /**
+     * Executes a /worldprimer sub command that was bound when the command was built.
+     * @return true if the command was executed (or attempted to), false if the command
+     *         needs to be executed via the full command string instead
+     */
+    public boolean executeSubCommand(ParsedCommand command, BoundSubCommand subCommand, CommandContext ctx)
+    {
+        String[] args = subCommand.getArguments(ctx);
+
+        if (args == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            this.applyOverrides(command, ctx);
+
+            MinecraftServer server = this.getServer();
+            ICommandSender sender = this.getCommandSender();
+
+            command.logDirectExecution("worldprimer " + subCommand.getName(), args);
+
+            if (Configs.enableLoggingInfo)
+            {
+                World world = this.getExecutionWorld(sender);
+                String dimStr = world != null ? String.valueOf(world.provider.getDimension()) : "<none>";
+                WorldPrimer.logInfo("Directly executing a (possibly substituted) /worldprimer {} command " +
+                                    "with the arguments '{}' in dimension {}",
+                                    subCommand.getName(), String.join(" ", args), dimStr);
+            }
+
+            subCommand.execute(server, sender, args);
+        }
+        catch (CommandException e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to execute the command '/worldprimer {}'", subCommand.getName(), e);
+        }
+        finally
+        {
+            this.clearOverrides();
+        }
+
+        return true;
+    }
+
+    private boolean hasMultiPlayerSelector(ICommand command, String[] args)
+    {
+        for (int i = 0; i < args.length; ++i)
+        {
+            if (command.isUsernameIndex(args, i) && EntitySelector.matchesMultiplePlayers(args[i]))
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     private void applyOverrides(ParsedCommand command, CommandContext ctx)
     {
         this.executionWorld = command.getExecutionWorld(ctx);
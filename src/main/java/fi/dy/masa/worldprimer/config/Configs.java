@@ -23,6 +23,15 @@ public class Configs
     public static boolean enableChiselsAndBitsCrossWorldFormat;
     public static boolean runDimensionChangeCommandsOnJoinQuit;
     public static String commandSenderName;
+    public static int commandTickBudgetCount;
+    public static int commandTickBudgetMicros;
+    public static boolean staggerPeriodicScheduledCommands;
+    public static int playerDataUnloadDelay;
+    public static int dataJournalCompactionSize;
+    public static int spreadCandidatePoolSize;
+    public static int spreadCandidatePoolMaxCount;
+    public static int spreadCandidatePoolExpireTime;
+    public static int spreadCandidatePoolTickBudgetMicros;
 
     public static boolean enableDimensionLoadingCommands;
     public static boolean enableEarlyWorldCreationCommands;
@@ -167,6 +176,26 @@ public class Configs
                         "Example command: worldprimer-dim-command-nth 1 123 worldprimer-command-sender \"Tooth Fairy\" say Test Foo Bar Baz in dimension {DIMENSION}");
         commandSenderName = prop.getString();
 
+        prop = conf.get(CATEGORY_GENERIC, "commandTickBudgetCount", 0).setRequiresMcRestart(false);
+        prop.setComment("The maximum number of player event and timed commands to execute per server tick.\n" +
+                        "The commands over the budget are deferred to the following ticks.\n" +
+                        "The world creation and loading commands are never deferred, but they still use up the budget.\n" +
+                        "0 = no limit");
+        commandTickBudgetCount = prop.getInt();
+
+        prop = conf.get(CATEGORY_GENERIC, "commandTickBudgetMicros", 0).setRequiresMcRestart(false);
+        prop.setComment("The maximum time in microseconds to spend executing player event and timed commands per server tick.\n" +
+                        "The commands over the budget are deferred to the following ticks.\n" +
+                        "0 = no limit");
+        commandTickBudgetMicros = prop.getInt();
+
+        prop = conf.get(CATEGORY_GENERIC, "staggerPeriodicScheduledCommands", false).setRequiresMcRestart(false);
+        prop.setComment("If enabled, then the periodic timed commands that have the same period\n" +
+                        "and no explicit offset are spread evenly across the period,\n" +
+                        "in the order they are in the config, instead of all running on the same tick.\n" +
+                        "The commands with an explicit offset, like '%1200-80', are not moved.");
+        staggerPeriodicScheduledCommands = prop.getBoolean();
+
         prop = conf.get(CATEGORY_GENERIC, "enableChiselsAndBitsCrossWorldFormat", true).setRequiresMcRestart(false);
         prop.setComment("Enables saving any Chisels & Bits blocks in the cross-world compatible format\nin the 'create-structure' command when using the Schematic format");
         enableChiselsAndBitsCrossWorldFormat = prop.getBoolean();
@@ -179,6 +208,43 @@ public class Configs
         prop.setComment("Enables tracking of dimension load counts, player join counts etc. by storing the counts in a file in worlddir/worldprimer/data_tracker.nbt");
         enableDataTracking = prop.getBoolean();
 
+        prop = conf.get(CATEGORY_GENERIC, "playerDataUnloadDelay", 300).setRequiresMcRestart(false);
+        prop.setComment("The delay in seconds after a player has logged out and their tracker data\n" +
+                        "was last used, before the data is unloaded from memory.\n" +
+                        "The player data is stored in shard files in worlddir/worldprimer/player_data/\n" +
+                        "and is loaded again on demand.");
+        playerDataUnloadDelay = prop.getInt();
+
+        prop = conf.get(CATEGORY_GENERIC, "dataJournalCompactionSize", 1024).setRequiresMcRestart(false);
+        prop.setComment("The size in kilobytes that the tracker data change journal can grow to,\n" +
+                        "before it gets compacted by writing full snapshots of the tracker data on the next world save.\n" +
+                        "Between the compactions only the journal is synced to disk on world saves.");
+        dataJournalCompactionSize = Math.max(prop.getInt(), 1);
+
+        prop = conf.get(CATEGORY_GENERIC, "spreadCandidatePoolSize", 8).setRequiresMcRestart(false);
+        prop.setComment("The number of ready, pre-validated positions to keep for the spread-player command,\n" +
+                        "for each dimension and radius/separation combination it has been used with.\n" +
+                        "The positions are found and their chunks generated ahead of time on the server tick,\n" +
+                        "so that the command doesn't need to generate the chunks when it runs.\n" +
+                        "0 = disabled");
+        spreadCandidatePoolSize = prop.getInt();
+
+        prop = conf.get(CATEGORY_GENERIC, "spreadCandidatePoolMaxCount", 4).setRequiresMcRestart(false);
+        prop.setComment("The maximum number of spread-player position pools to keep filling at a time.\n" +
+                        "When the command is used with a new dimension and radius/separation combination,\n" +
+                        "the least recently used pool is removed if there are already this many pools.");
+        spreadCandidatePoolMaxCount = Math.max(prop.getInt(), 1);
+
+        prop = conf.get(CATEGORY_GENERIC, "spreadCandidatePoolExpireTime", 600).setRequiresMcRestart(false);
+        prop.setComment("The time in seconds after a spread-player position pool was last used,\n" +
+                        "before it is removed and no more chunks are generated for it.");
+        spreadCandidatePoolExpireTime = prop.getInt();
+
+        prop = conf.get(CATEGORY_GENERIC, "spreadCandidatePoolTickBudgetMicros", 2000).setRequiresMcRestart(false);
+        prop.setComment("The maximum time in microseconds per server tick to spend on finding the spread-player positions\n" +
+                        "for the pools. At most one new chunk is generated per tick, which may exceed this time.");
+        spreadCandidatePoolTickBudgetMicros = prop.getInt();
+
         prop = conf.get(CATEGORY_GENERIC, "runDimensionChangeCommandsOnJoinQuit", false).setRequiresMcRestart(false);
         prop.setComment("If true, then the dimensionChangeEnter and dimensionChangeLeave commands\n" +
                         "are also run when the player disconnects or logs in again.\n" +
@@ -290,7 +356,18 @@ public class Configs
                         "With the periodic time, you can also use offsets, like so:\n" +
                         "worldprimer-timed-command %1200-80 0 say Something happens in 4 seconds!\n" +
                         "worldprimer-timed-command %1200 0 say Something happens now!\n" +
-                        "worldprimer-timed-command %1200+80 0 Say something happened 4 seconds ago!");
+                        "worldprimer-timed-command %1200+80 0 Say something happened 4 seconds ago!\n" +
+                        "The periodic commands can also be given a catch-up policy, which determines what happens\n" +
+                        "to the executions that were missed, for example while the dimension was unloaded:\n" +
+                        "'%1200:skip' skips the missed executions (the default),\n" +
+                        "'%1200:once' runs the command once for all the missed executions, and\n" +
+                        "'%1200-80:burst=5' runs all the missed executions at once, but at most 5 of them.\n" +
+                        "Commands can also be scheduled by the real-world clock, using a cron-like format:\n" +
+                        "'worldprimer-cron-command <minute> <hour> <day-of-month> <month> <day-of-week> <dimension> <command>'\n" +
+                        "Each time field can be '*', a value, a range 'a-b', a step '*/n' or 'a-b/n', or a comma separated list of those.\n" +
+                        "For example:\n" +
+                        "worldprimer-cron-command 55 3 * * * 0 say The server will restart in 5 minutes!\n" +
+                        "worldprimer-cron-command 0 * * * * 0 save-all");
         timedCommands = prop.getStringList();
         CommandScheduler.INSTANCE.setScheduledCommands(timedCommands);
 
@@ -13,10 +13,13 @@ import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraftforge.fml.common.gameevent.TickEvent.ServerTickEvent;
 import net.minecraftforge.fml.relauncher.Side;
 import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.command.util.CommandExecutionQueue;
 import fi.dy.masa.worldprimer.command.util.CommandUtils;
 import fi.dy.masa.worldprimer.command.util.CommandScheduler;
+import fi.dy.masa.worldprimer.command.util.WallClockScheduler;
 import fi.dy.masa.worldprimer.config.Configs;
 import fi.dy.masa.worldprimer.util.DataTracker;
+import fi.dy.masa.worldprimer.util.SpreadCandidatePool;
 
 public class EventHandler
 {
@@ -32,6 +35,12 @@ public class EventHandler
         CommandUtils.onWorldLoad(event.getWorld());
     }
 
+    @SubscribeEvent
+    public void onWorldUnload(WorldEvent.Unload event)
+    {
+        CommandUtils.onWorldUnload(event.getWorld());
+    }
+
     @SubscribeEvent
     public void onWorldSave(WorldEvent.Save event)
     {
@@ -41,9 +50,24 @@ public class EventHandler
     @SubscribeEvent
     public void onServerTick(ServerTickEvent event)
     {
-        if (Configs.enableTimedCommands && event.side == Side.SERVER && event.phase == TickEvent.Phase.END)
+        if (event.side == Side.SERVER)
         {
-            CommandScheduler.INSTANCE.runScheduledCommands();
+            if (event.phase == TickEvent.Phase.START)
+            {
+                CommandExecutionQueue.INSTANCE.onTickStart();
+            }
+            else if (event.phase == TickEvent.Phase.END)
+            {
+                if (Configs.enableTimedCommands)
+                {
+                    CommandScheduler.INSTANCE.runScheduledCommands();
+                    WallClockScheduler.INSTANCE.runDueCommands();
+                }
+
+                CommandExecutionQueue.INSTANCE.onTickEnd();
+                SpreadCandidatePool.INSTANCE.onServerTick();
+                DataTracker.INSTANCE.onServerTickEnd();
+            }
         }
     }
 
@@ -0,0 +1,166 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import fi.dy.masa.worldprimer.WorldPrimer;
+
+/**
+ * Writes compressed NBT files on a dedicated background thread.
+ * The NBT data given to this writer must be a snapshot that is not modified afterwards.
+ * If a new snapshot is submitted for a file before the previous one has been written,
+ * then the previous one is just replaced, so that only the latest data gets written.
+ * The files are first written to a temporary file, which is synced to the disk
+ * and then atomically moved over the old file, where supported.
+ */
+public class AsyncNbtWriter
+{
+    private final ConcurrentHashMap<File, NBTTagCompound> pendingWrites = new ConcurrentHashMap<>();
+    private final String threadName;
+    @Nullable private ExecutorService executor;
+    @Nullable private volatile File currentFile;
+    private volatile int failedWriteCount;
+
+    public AsyncNbtWriter(String threadName)
+    {
+        this.threadName = threadName;
+    }
+
+    /**
+     * Queues the given snapshot to be written to the given file.
+     * This is meant to be called from the server thread only.
+     */
+    public void submit(File file, NBTTagCompound nbt)
+    {
+        // If there was already a pending write for this file, then the task that
+        // was queued for it will write this newer snapshot instead
+        if (this.pendingWrites.put(file, nbt) == null)
+        {
+            this.getExecutor().execute(() -> this.writePending(file));
+        }
+    }
+
+    /**
+     * Runs the given task on the writer thread, after all the currently queued writes
+     */
+    public void execute(Runnable task)
+    {
+        this.getExecutor().execute(task);
+    }
+
+    /**
+     * @return true if there is a queued or currently running write for the given file
+     */
+    public boolean isWritePending(File file)
+    {
+        // The writer sets the current file before removing the pending entry,
+        // so checking in this order will not miss a write that is just starting
+        return this.pendingWrites.containsKey(file) || file.equals(this.currentFile);
+    }
+
+    /**
+     * @return the number of writes that have failed so far. This is only updated on the writer thread,
+     * so any task run via {@link #execute(Runnable)} sees the results of all the writes queued before it.
+     */
+    public int getFailedWriteCount()
+    {
+        return this.failedWriteCount;
+    }
+
+    /**
+     * Blocks until all the currently queued writes have finished, or the timeout elapses.
+     * @return true if all the queued writes finished
+     */
+    public boolean flush(long timeoutMillis)
+    {
+        if (this.executor == null)
+        {
+            return true;
+        }
+
+        try
+        {
+            this.executor.submit(() -> {}).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (Exception e)
+        {
+            WorldPrimer.LOGGER.warn("Timed out or interrupted while waiting for the data files to be written", e);
+            return false;
+        }
+    }
+
+    private ExecutorService getExecutor()
+    {
+        if (this.executor == null)
+        {
+            this.executor = Executors.newSingleThreadExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, this.threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return this.executor;
+    }
+
+    private void writePending(File file)
+    {
+        this.currentFile = file;
+        NBTTagCompound nbt = this.pendingWrites.remove(file);
+
+        try
+        {
+            if (nbt != null)
+            {
+                writeAtomically(file, nbt);
+            }
+        }
+        catch (Exception e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to write data to file '{}'", file.getAbsolutePath(), e);
+            ++this.failedWriteCount;
+        }
+        finally
+        {
+            this.currentFile = null;
+        }
+    }
+
+    public static void writeAtomically(File file, NBTTagCompound nbt) throws IOException
+    {
+        File fileTmp = new File(file.getParentFile(), file.getName() + ".tmp");
+
+        try (FileOutputStream os = new FileOutputStream(fileTmp))
+        {
+            GZIPOutputStream gzip = new GZIPOutputStream(os);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+            CompressedStreamTools.write(nbt, out);
+            out.flush();
+            gzip.finish();
+            os.getFD().sync();
+        }
+
+        try
+        {
+            Files.move(fileTmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(fileTmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import net.minecraft.util.math.BlockPos;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.util.DataTracker.PlayerDataType;
+import fi.dy.masa.worldprimer.util.DataTracker.PlayerDimensionDataType;
+
+/**
+ * An append-only journal of the changes to the tracker data.
+ * Each change is stored as a compact binary record with a sequence number,
+ * and the data snapshot files store the sequence number of the last change they include.
+ * When replaying the journal, the records already included in the snapshots are skipped.
+ * The records are collected into a buffer, which is written to the file channel
+ * at the end of each tick that had any changes, and synced to the disk on each world save.
+ * A new journal file is started whenever the journal is compacted into the snapshot files,
+ * and the old journal files are deleted once those snapshots have been written.
+ * If any snapshot write has failed since the journal was opened, then the old journal files
+ * are kept instead, so that they get replayed on the next open.
+ */
+public class DataJournal
+{
+    private static final int MAGIC = 0x57504A31; // "WPJ1"
+    private static final String FILE_PREFIX = "data_tracker.";
+    private static final String FILE_SUFFIX = ".journal";
+
+    private static final byte SERVER_START      = 1;
+    private static final byte DIM_LOAD          = 2;
+    private static final byte DIM_RESET         = 3;
+    private static final byte PLAYER_COUNT      = 4;
+    private static final byte PLAYER_DIM_EVENT  = 5;
+    private static final byte SPREAD_POSITION   = 6;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+    private final AsyncNbtWriter writer;
+    @Nullable private File dir;
+    @Nullable private FileChannel channel;
+    private int fileIndex;
+    private int failedWriteCountAtOpen;
+    private long lastSequence;
+    private long size;
+
+    public DataJournal(AsyncNbtWriter writer)
+    {
+        this.writer = writer;
+    }
+
+    public boolean isOpen()
+    {
+        return this.channel != null;
+    }
+
+    /**
+     * @return the sequence number of the last record added to the journal
+     */
+    public long getLastSequence()
+    {
+        return this.lastSequence;
+    }
+
+    /**
+     * @return the number of bytes written to the current journal file, including the buffered records
+     */
+    public long getSize()
+    {
+        return this.size + this.buffer.position();
+    }
+
+    /**
+     * Replays all the existing journal files in the given directory into the tracker,
+     * and then starts a new journal file, continuing the sequence from the replayed records.
+     * @param snapshotSequence the sequence number stored in the main data snapshot
+     */
+    public void open(File dir, DataTracker tracker, long snapshotSequence)
+    {
+        this.close();
+        this.dir = dir;
+        this.lastSequence = snapshotSequence;
+        this.fileIndex = 0;
+        this.failedWriteCountAtOpen = this.writer.getFailedWriteCount();
+
+        for (File file : this.getJournalFiles())
+        {
+            this.fileIndex = Math.max(this.fileIndex, getFileIndex(file));
+            this.replayFile(file, tracker);
+        }
+
+        this.openNewFile(this.fileIndex + 1);
+    }
+
+    public void close()
+    {
+        this.closeChannel(false);
+        this.dir = null;
+    }
+
+    public void addServerStart()
+    {
+        this.startRecord(SERVER_START, 0);
+    }
+
+    public void addDimensionLoad(int dimension)
+    {
+        if (this.startRecord(DIM_LOAD, 4))
+        {
+            this.buffer.putInt(dimension);
+        }
+    }
+
+    public void addDimensionReset(int dimension)
+    {
+        if (this.startRecord(DIM_RESET, 4))
+        {
+            this.buffer.putInt(dimension);
+        }
+    }
+
+    public void addPlayerCount(UUID uuid, PlayerDataType type)
+    {
+        if (this.startRecord(PLAYER_COUNT, 17))
+        {
+            this.putUUID(uuid);
+            this.buffer.put((byte) type.ordinal());
+        }
+    }
+
+    public void addPlayerDimensionEvent(UUID uuid, int dimension, PlayerDimensionDataType type)
+    {
+        if (this.startRecord(PLAYER_DIM_EVENT, 21))
+        {
+            this.putUUID(uuid);
+            this.buffer.putInt(dimension);
+            this.buffer.put((byte) type.ordinal());
+        }
+    }
+
+    public void addSpreadPosition(int dimension, UUID uuid, BlockPos pos)
+    {
+        if (this.startRecord(SPREAD_POSITION, 32))
+        {
+            this.putUUID(uuid);
+            this.buffer.putInt(dimension);
+            this.buffer.putInt(pos.getX());
+            this.buffer.putInt(pos.getY());
+            this.buffer.putInt(pos.getZ());
+        }
+    }
+
+    /**
+     * Writes the buffered records to the journal file, without syncing
+     */
+    public void flush()
+    {
+        if (this.channel != null && this.buffer.position() > 0)
+        {
+            try
+            {
+                this.buffer.flip();
+
+                while (this.buffer.hasRemaining())
+                {
+                    this.size += this.channel.write(this.buffer);
+                }
+            }
+            catch (IOException e)
+            {
+                WorldPrimer.LOGGER.warn("Failed to write to the data journal, falling back to full snapshots", e);
+                // Drop the partially written records first, so that closing the channel doesn't try to write them again
+                this.buffer.clear();
+                this.closeChannel(false);
+            }
+            finally
+            {
+                this.buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered records to the journal file, and queues a sync of the file
+     * to the disk on the writer thread. Any snapshot writes queued after this call
+     * will only happen after the journal has been synced.
+     */
+    public void sync()
+    {
+        this.flush();
+
+        final FileChannel channel = this.channel;
+
+        if (channel != null)
+        {
+            this.writer.execute(() -> forceChannel(channel, false));
+        }
+    }
+
+    /**
+     * Starts a new journal file, and queues the old journal files to be deleted
+     * once all the currently queued snapshot writes have finished.
+     * The old files are only deleted if none of the snapshot writes since the journal was opened have failed.
+     * This must be called right after queuing the snapshots that include all
+     * the records up to the current sequence number.
+     */
+    public void rotate()
+    {
+        if (this.channel == null || this.dir == null)
+        {
+            return;
+        }
+
+        final int oldIndex = this.fileIndex;
+        final int failedWriteCount = this.failedWriteCountAtOpen;
+        final File dir = this.dir;
+
+        this.closeChannel(true);
+        this.openNewFile(oldIndex + 1);
+
+        this.writer.execute(() -> {
+            // A snapshot that failed to be written may be missing some of the records in the old journal files
+            if (this.writer.getFailedWriteCount() != failedWriteCount)
+            {
+                WorldPrimer.LOGGER.warn("Keeping the old data journal files, because some of the data files failed to be written");
+                return;
+            }
+
+            for (File file : getJournalFiles(dir))
+            {
+                if (getFileIndex(file) <= oldIndex && file.delete() == false)
+                {
+                    WorldPrimer.LOGGER.warn("Failed to delete the old data journal file '{}'", file.getPath());
+                }
+            }
+        });
+    }
+
+    private boolean startRecord(byte type, int payloadSize)
+    {
+        if (this.channel == null)
+        {
+            return false;
+        }
+
+        if (this.buffer.remaining() < 9 + payloadSize)
+        {
+            this.flush();
+
+            if (this.channel == null)
+            {
+                return false;
+            }
+        }
+
+        this.buffer.put(type);
+        this.buffer.putLong(++this.lastSequence);
+
+        return true;
+    }
+
+    private void putUUID(UUID uuid)
+    {
+        this.buffer.putLong(uuid.getMostSignificantBits());
+        this.buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private void openNewFile(int index)
+    {
+        File file = new File(this.dir, FILE_PREFIX + index + FILE_SUFFIX);
+
+        try
+        {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            this.fileIndex = index;
+            this.size = 0;
+            this.buffer.clear();
+            this.buffer.putInt(MAGIC);
+        }
+        catch (IOException e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to open the data journal file '{}', falling back to full snapshots", file.getPath(), e);
+            this.channel = null;
+        }
+    }
+
+    /**
+     * Flushes and closes the current journal file. The closing is done on the writer thread
+     * after any already queued sync, if async is true.
+     */
+    private void closeChannel(boolean async)
+    {
+        this.flush();
+
+        final FileChannel channel = this.channel;
+        this.channel = null;
+
+        if (channel != null)
+        {
+            if (async)
+            {
+                this.writer.execute(() -> forceChannel(channel, true));
+            }
+            else
+            {
+                forceChannel(channel, true);
+            }
+        }
+    }
+
+    private static void forceChannel(FileChannel channel, boolean close)
+    {
+        try
+        {
+            if (channel.isOpen())
+            {
+                channel.force(false);
+            }
+
+            if (close)
+            {
+                channel.close();
+            }
+        }
+        catch (IOException e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to sync the data journal file", e);
+        }
+    }
+
+    private void replayFile(File file, DataTracker tracker)
+    {
+        int count = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC)
+            {
+                WorldPrimer.LOGGER.warn("Invalid data journal file '{}'", file.getPath());
+                return;
+            }
+
+            while (true)
+            {
+                byte type = in.readByte();
+                long sequence = in.readLong();
+
+                if (this.replayRecord(type, sequence, in, tracker) == false)
+                {
+                    WorldPrimer.LOGGER.warn("Invalid record type {} in the data journal file '{}'", type, file.getPath());
+                    break;
+                }
+
+                this.lastSequence = Math.max(this.lastSequence, sequence);
+                ++count;
+            }
+        }
+        catch (EOFException e)
+        {
+            // End of the journal, or a partially written last record after a crash
+        }
+        catch (IOException e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to read the data journal file '{}'", file.getPath(), e);
+        }
+
+        WorldPrimer.logInfo("Replayed {} records from the data journal file '{}'", count, file.getName());
+    }
+
+    private boolean replayRecord(byte type, long sequence, DataInputStream in, DataTracker tracker) throws IOException
+    {
+        if (type == SERVER_START)
+        {
+            tracker.replayServerStart(sequence);
+        }
+        else if (type == DIM_LOAD)
+        {
+            tracker.replayDimensionLoad(sequence, in.readInt());
+        }
+        else if (type == DIM_RESET)
+        {
+            tracker.replayDimensionReset(sequence, in.readInt());
+        }
+        else if (type == PLAYER_COUNT)
+        {
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            int typeIndex = in.readByte();
+
+            if (typeIndex < 0 || typeIndex >= PlayerDataType.values().length)
+            {
+                return false;
+            }
+
+            tracker.replayPlayerCount(sequence, uuid, PlayerDataType.values()[typeIndex]);
+        }
+        else if (type == PLAYER_DIM_EVENT)
+        {
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            int dimension = in.readInt();
+            int typeIndex = in.readByte();
+
+            if (typeIndex < 0 || typeIndex >= PlayerDimensionDataType.values().length)
+            {
+                return false;
+            }
+
+            tracker.replayPlayerDimensionEvent(sequence, uuid, dimension, PlayerDimensionDataType.values()[typeIndex]);
+        }
+        else if (type == SPREAD_POSITION)
+        {
+            UUID uuid = new UUID(in.readLong(), in.readLong());
+            int dimension = in.readInt();
+            BlockPos pos = new BlockPos(in.readInt(), in.readInt(), in.readInt());
+            tracker.replaySpreadPosition(sequence, dimension, uuid, pos);
+        }
+        else
+        {
+            return false;
+        }
+
+        return true;
+    }
+
+    private List<File> getJournalFiles()
+    {
+        return this.dir != null ? getJournalFiles(this.dir) : new ArrayList<>();
+    }
+
+    private static List<File> getJournalFiles(File dir)
+    {
+        List<File> list = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                if (getFileIndex(file) > 0)
+                {
+                    list.add(file);
+                }
+            }
+        }
+
+        list.sort((f1, f2) -> Integer.compare(getFileIndex(f1), getFileIndex(f2)));
+
+        return list;
+    }
+
+    private static int getFileIndex(File file)
+    {
+        String name = file.getName();
+
+        try
+        {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+}
@@ -2,13 +2,11 @@ package fi.dy.masa.worldprimer.util;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
 import javax.annotation.Nonnull;
@@ -23,22 +21,35 @@ import fi.dy.masa.worldprimer.WorldPrimer;
 import fi.dy.masa.worldprimer.command.handler.CommandHandler;
 import fi.dy.masa.worldprimer.config.Configs;
 import fi.dy.masa.worldprimer.reference.Reference;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
 
 public class DataTracker
 {
     public static final DataTracker INSTANCE = new DataTracker();
+    private static final long WRITE_FLUSH_TIMEOUT_MS = 30000L;
 
+    private final AsyncNbtWriter writer = new AsyncNbtWriter("WorldPrimer Data Writer");
     private final Int2IntOpenHashMap dimensionLoadCounts = new Int2IntOpenHashMap();
-    private final Map<UUID, PlayerData> playerData = new HashMap<>();
-    private final Map<Integer, Map<UUID, BlockPos>> playerSpreadPositions = new HashMap<>();
+    private final Int2IntOpenHashMap dimensionResetGenerations = new Int2IntOpenHashMap();
+    private final PlayerDataStorage playerData = new PlayerDataStorage(this.dimensionResetGenerations, this.writer);
+    private final DataJournal journal = new DataJournal(this.writer);
+    private final Int2ObjectOpenHashMap<UUIDLongOpenHashMap> playerSpreadPositions = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<List<SpatialGrid>> playerSpreadPositionGrids = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<List<GridOccupancy>> spreadGridOccupancies = new Int2ObjectOpenHashMap<>();
     private File worldDir = new File(".");
+    private long snapshotSequence;
+    private boolean importedLegacyPlayerData;
     private int serverStarts;
     private boolean dirty;
 
     public DataTracker()
     {
         this.dimensionLoadCounts.defaultReturnValue(0);
+        this.dimensionResetGenerations.defaultReturnValue(0);
     }
 
     public int getServerStartCount()
@@ -53,32 +64,113 @@ public class DataTracker
 
     public int getPlayerDataCount(EntityPlayer player, PlayerDataType type)
     {
-        return this.getOrCreatePlayerData(player).getCount(type);
+        PlayerData data = this.playerData.getPlayerData(player.getUniqueID());
+        return data != null ? data.getCount(type) : 0;
     }
 
     public int getPlayerDimensionEventCount(EntityPlayer player, int dimension, PlayerDimensionDataType type)
     {
-        return this.getOrCreatePlayerData(player).getDimensionEventCount(dimension, type);
+        PlayerData data = this.playerData.getPlayerData(player.getUniqueID());
+        return data != null ? data.getDimensionEventCount(dimension, type) : 0;
     }
 
-    public Collection<BlockPos> getPlayerSpreadPositions(int dimension)
+    /**
+     * Passes all the stored spread positions in the given dimension to the consumer,
+     * as positions packed by BlockPos#toLong()
+     */
+    public void forEachPlayerSpreadPosition(int dimension, LongConsumer consumer)
     {
-        Map<UUID, BlockPos> map = this.playerSpreadPositions.get(dimension);
-        return map != null ? map.values() : Collections.emptyList();
+        UUIDLongOpenHashMap map = this.playerSpreadPositions.get(dimension);
+
+        if (map != null)
+        {
+            map.forEachValue(consumer);
+        }
+    }
+
+    /**
+     * @return a spatial grid of all the stored spread positions in the given dimension, using the given cell size.
+     * The grid is built from the existing spread positions when a cell size is first used in a dimension,
+     * and after that it is kept up to date as spread positions are added.
+     */
+    public SpatialGrid getPlayerSpreadPositionGrid(int dimension, int cellSize)
+    {
+        List<SpatialGrid> list = this.playerSpreadPositionGrids.get(dimension);
+
+        if (list == null)
+        {
+            list = new ArrayList<>();
+            this.playerSpreadPositionGrids.put(dimension, list);
+        }
+
+        cellSize = Math.max(cellSize, 1);
+
+        for (SpatialGrid grid : list)
+        {
+            if (grid.getCellSize() == cellSize)
+            {
+                return grid;
+            }
+        }
+
+        SpatialGrid grid = new SpatialGrid(cellSize);
+        this.forEachPlayerSpreadPosition(dimension, grid::add);
+        list.add(grid);
+
+        return grid;
+    }
+
+    /**
+     * @return the occupancy of the spread-player grid layout with the given grid size in the given dimension.
+     * The occupancy is built from the existing spread positions when a grid size is first used,
+     * and after that it is kept up to date as spread positions are added, and saved with the rest of the data.
+     */
+    public GridOccupancy getSpreadGridOccupancy(int dimension, int gridSize)
+    {
+        List<GridOccupancy> list = this.spreadGridOccupancies.get(dimension);
+
+        if (list == null)
+        {
+            list = new ArrayList<>();
+            this.spreadGridOccupancies.put(dimension, list);
+        }
+
+        for (GridOccupancy occupancy : list)
+        {
+            if (occupancy.getGridSize() == gridSize)
+            {
+                return occupancy;
+            }
+        }
+
+        final GridOccupancy occupancy = new GridOccupancy(gridSize);
+        this.forEachPlayerSpreadPosition(dimension, (pos) -> occupancy.setOccupied(PositionUtils.getPackedX(pos), PositionUtils.getPackedZ(pos), true));
+        list.add(occupancy);
+        this.dirty = true;
+
+        return occupancy;
     }
 
     @Nullable
     public BlockPos getLastPlayerSpreadPosition(EntityPlayer player)
     {
         int dimension = player.getEntityWorld().provider.getDimension();
-        Map<UUID, BlockPos> map = this.playerSpreadPositions.get(dimension);
-        return map != null ? map.get(player.getUniqueID()) : null;
+        UUIDLongOpenHashMap map = this.playerSpreadPositions.get(dimension);
+        UUID uuid = player.getUniqueID();
+
+        if (map != null && map.containsKey(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()))
+        {
+            return BlockPos.fromLong(map.get(uuid));
+        }
+
+        return null;
     }
 
     public void incrementServerStartCount()
     {
         this.serverStarts++;
         this.dirty = true;
+        this.journal.addServerStart();
     }
 
     public int incrementDimensionLoadCount(int dimension)
@@ -86,6 +178,7 @@ public class DataTracker
         int count = this.dimensionLoadCounts.get(dimension) + 1;
         this.dimensionLoadCounts.put(dimension, count);
         this.dirty = true;
+        this.journal.addDimensionLoad(dimension);
 
         return count;
     }
@@ -93,20 +186,18 @@ public class DataTracker
     public void resetDimensionLoadCountFor(int dimension)
     {
         this.dimensionLoadCounts.remove(dimension);
-
-        for (PlayerData data : this.playerData.values())
-        {
-            data.resetDimensionEventCountsFor(dimension);
-        }
-
+        this.dimensionResetGenerations.put(dimension, this.dimensionResetGenerations.get(dimension) + 1);
+        this.playerData.applyDimensionResets();
         this.dirty = true;
+        this.journal.addDimensionReset(dimension);
     }
 
     public int incrementPlayerDataCount(EntityPlayer player, PlayerDataType type)
     {
         PlayerData data = this.getOrCreatePlayerData(player);
         int newValue = data.incrementCount(type);
-        this.dirty = true;
+        this.playerData.markDirty(player.getUniqueID());
+        this.journal.addPlayerCount(player.getUniqueID(), type);
         return newValue;
     }
 
@@ -114,7 +205,8 @@ public class DataTracker
     {
         PlayerData data = this.getOrCreatePlayerData(player);
         int newValue = data.incrementDimensionEventCount(dimension, type);
-        this.dirty = true;
+        this.playerData.markDirty(player.getUniqueID());
+        this.journal.addPlayerDimensionEvent(player.getUniqueID(), dimension, type);
         return newValue;
     }
 
@@ -126,23 +218,124 @@ public class DataTracker
 
     public void addPlayerSpreadPosition(int dimension, UUID uuid, BlockPos pos)
     {
-        Map<UUID, BlockPos> map = this.playerSpreadPositions.computeIfAbsent(dimension, k -> new HashMap<>());
-        map.put(uuid, pos);
+        UUIDLongOpenHashMap map = this.playerSpreadPositions.get(dimension);
+
+        if (map == null)
+        {
+            map = new UUIDLongOpenHashMap();
+            this.playerSpreadPositions.put(dimension, map);
+        }
+
+        final long most = uuid.getMostSignificantBits();
+        final long least = uuid.getLeastSignificantBits();
+        final long packedPos = pos.toLong();
+        final boolean hasOldPos = map.containsKey(most, least);
+        final long oldPos = hasOldPos ? map.get(most, least) : 0L;
+        List<SpatialGrid> grids = this.playerSpreadPositionGrids.get(dimension);
+        List<GridOccupancy> occupancies = this.spreadGridOccupancies.get(dimension);
+
+        if (grids != null)
+        {
+            for (SpatialGrid grid : grids)
+            {
+                if (hasOldPos)
+                {
+                    grid.remove(oldPos);
+                }
+
+                grid.add(packedPos);
+            }
+        }
+
+        if (occupancies != null)
+        {
+            for (GridOccupancy occupancy : occupancies)
+            {
+                if (hasOldPos)
+                {
+                    occupancy.setOccupied(PositionUtils.getPackedX(oldPos), PositionUtils.getPackedZ(oldPos), false);
+                    occupancy.clearSeparationBlockedNodes();
+                }
+
+                occupancy.setOccupied(pos.getX(), pos.getZ(), true);
+            }
+        }
+
+        map.put(most, least, packedPos);
         this.dirty = true;
+        this.journal.addSpreadPosition(dimension, uuid, pos);
     }
 
-    private PlayerData getOrCreatePlayerData(EntityPlayer player)
+    void replayServerStart(long sequence)
+    {
+        if (sequence > this.snapshotSequence)
+        {
+            this.serverStarts++;
+            this.dirty = true;
+        }
+    }
+
+    void replayDimensionLoad(long sequence, int dimension)
     {
-        PlayerData data = this.playerData.get(player.getUniqueID());
+        if (sequence > this.snapshotSequence)
+        {
+            this.dimensionLoadCounts.put(dimension, this.dimensionLoadCounts.get(dimension) + 1);
+            this.dirty = true;
+        }
+    }
 
-        if (data == null)
+    void replayDimensionReset(long sequence, int dimension)
+    {
+        if (sequence > this.snapshotSequence)
         {
-            data = new PlayerData();
-            this.playerData.put(player.getUniqueID(), data);
+            this.dimensionLoadCounts.remove(dimension);
+            this.dimensionResetGenerations.put(dimension, this.dimensionResetGenerations.get(dimension) + 1);
+            this.playerData.applyDimensionResets();
             this.dirty = true;
         }
+    }
+
+    void replayPlayerCount(long sequence, UUID uuid, PlayerDataType type)
+    {
+        PlayerData data = this.playerData.getPlayerDataForReplay(uuid, sequence);
+
+        if (data != null)
+        {
+            data.incrementCount(type);
+        }
+    }
+
+    void replayPlayerDimensionEvent(long sequence, UUID uuid, int dimension, PlayerDimensionDataType type)
+    {
+        PlayerData data = this.playerData.getPlayerDataForReplay(uuid, sequence);
+
+        if (data != null)
+        {
+            data.incrementDimensionEventCount(dimension, type);
+        }
+    }
+
+    void replaySpreadPosition(long sequence, int dimension, UUID uuid, BlockPos pos)
+    {
+        if (sequence > this.snapshotSequence)
+        {
+            this.addPlayerSpreadPosition(dimension, uuid, pos);
+        }
+    }
+
+    public void onPlayerLoggedIn(EntityPlayer player)
+    {
+        this.playerData.onPlayerLoggedIn(player.getUniqueID());
+    }
 
-        return data;
+    public void onPlayerLoggedOut(EntityPlayer player)
+    {
+        this.playerData.onPlayerLoggedOut(player.getUniqueID());
+    }
+
+    private PlayerData getOrCreatePlayerData(EntityPlayer player)
+    {
+        return this.playerData.getOrCreatePlayerData(player.getUniqueID());
     }
 
     private void readFromNBT(NBTTagCompound nbt)
@@ -161,6 +354,17 @@ public class DataTracker
             this.dimensionLoadCounts.put(tag.getInteger("Dim"), tag.getInteger("Count"));
         }
 
+        tagList = nbt.getTagList("DimResetGenerations", Constants.NBT.TAG_COMPOUND);
+        tagCount = tagList.tagCount();
+
+        for (int i = 0; i < tagCount; i++)
+        {
+            NBTTagCompound tag = tagList.getCompoundTagAt(i);
+            this.dimensionResetGenerations.put(tag.getInteger("Dim"), tag.getInteger("Generation"));
+        }
+
+        // Compatibility for the old format where all the player data was stored in this same file.
+        // The player data gets moved to the shard files right after the data has been read.
         tagList = nbt.getTagList("PlayerData", Constants.NBT.TAG_COMPOUND);
         tagCount = tagList.tagCount();
 
@@ -170,7 +374,35 @@ public class DataTracker
             UUID uuid = new UUID(tag.getLong("UUIDM"), tag.getLong("UUIDL"));
             PlayerData data = new PlayerData();
             data.readFromNBT(tag);
-            this.playerData.put(uuid, data);
+            this.playerData.importPlayerData(uuid, data);
+            this.dirty = true;
+            this.importedLegacyPlayerData = true;
+        }
+
+        // Read the grid occupancies before the spread positions, so that they are kept up to date by them
+        tagList = nbt.getTagList("SpreadGridOccupancies", Constants.NBT.TAG_COMPOUND);
+        tagCount = tagList.tagCount();
+
+        for (int i = 0; i < tagCount; i++)
+        {
+            NBTTagCompound tag = tagList.getCompoundTagAt(i);
+            int gridSize = tag.getInteger("GridSize");
+
+            if (gridSize > 0)
+            {
+                GridOccupancy occupancy = new GridOccupancy(gridSize);
+                occupancy.readFromNBT(tag);
+
+                List<GridOccupancy> list = this.spreadGridOccupancies.get(tag.getInteger("Dim"));
+
+                if (list == null)
+                {
+                    list = new ArrayList<>();
+                    this.spreadGridOccupancies.put(tag.getInteger("Dim"), list);
+                }
+
+                list.add(occupancy);
+            }
         }
 
         tagList = nbt.getTagList("PlayerSpreadPositions", Constants.NBT.TAG_COMPOUND);
@@ -190,6 +422,7 @@ public class DataTracker
         }
 
         this.serverStarts = nbt.getInteger("ServerStarts");
+        this.snapshotSequence = nbt.getLong("JournalSequence");
     }
 
     private NBTTagCompound writeToNBT(@Nonnull NBTTagCompound nbt)
@@ -197,46 +430,70 @@ public class DataTracker
         NBTTagList tagList = new NBTTagList();
         nbt.setTag("DimLoadCounts", tagList);
 
-        for (Map.Entry<Integer, Integer> entry : this.dimensionLoadCounts.entrySet())
+        ObjectIterator<Int2IntMap.Entry> iter = this.dimensionLoadCounts.int2IntEntrySet().fastIterator();
+
+        while (iter.hasNext())
         {
+            Int2IntMap.Entry entry = iter.next();
             NBTTagCompound tag = new NBTTagCompound();
-            tag.setInteger("Dim", entry.getKey());
-            tag.setInteger("Count", entry.getValue());
+            tag.setInteger("Dim", entry.getIntKey());
+            tag.setInteger("Count", entry.getIntValue());
             tagList.appendTag(tag);
         }
 
         tagList = new NBTTagList();
-        nbt.setTag("PlayerData", tagList);
+        nbt.setTag("DimResetGenerations", tagList);
+
+        iter = this.dimensionResetGenerations.int2IntEntrySet().fastIterator();
 
-        for (Map.Entry<UUID, PlayerData> entry : this.playerData.entrySet())
+        while (iter.hasNext())
         {
+            Int2IntMap.Entry entry = iter.next();
             NBTTagCompound tag = new NBTTagCompound();
-            tag.setLong("UUIDM", entry.getKey().getMostSignificantBits());
-            tag.setLong("UUIDL", entry.getKey().getLeastSignificantBits());
-            entry.getValue().writeToNBT(tag);
+            tag.setInteger("Dim", entry.getIntKey());
+            tag.setInteger("Generation", entry.getIntValue());
             tagList.appendTag(tag);
         }
 
-        tagList = new NBTTagList();
-        nbt.setTag("PlayerSpreadPositions", tagList);
+        final NBTTagList posTagList = new NBTTagList();
+        nbt.setTag("PlayerSpreadPositions", posTagList);
+        ObjectIterator<Int2ObjectMap.Entry<UUIDLongOpenHashMap>> posIter = this.playerSpreadPositions.int2ObjectEntrySet().fastIterator();
 
-        for (Map.Entry<Integer, Map<UUID, BlockPos>> entry : this.playerSpreadPositions.entrySet())
+        while (posIter.hasNext())
         {
-            Map<UUID, BlockPos> map = entry.getValue();
-            int dimension = entry.getKey();
+            Int2ObjectMap.Entry<UUIDLongOpenHashMap> entry = posIter.next();
+            final int dimension = entry.getIntKey();
 
-            for (Map.Entry<UUID, BlockPos> posEntry : map.entrySet())
-            {
+            entry.getValue().forEach((most, least, packedPos) -> {
                 NBTTagCompound tag = new NBTTagCompound();
-                tag.setLong("UUIDM", posEntry.getKey().getMostSignificantBits());
-                tag.setLong("UUIDL", posEntry.getKey().getLeastSignificantBits());
+                tag.setLong("UUIDM", most);
+                tag.setLong("UUIDL", least);
                 tag.setInteger("dim", dimension);
-                NbtUtils.writeBlockPosToTag(posEntry.getValue(), tag);
+                tag.setInteger("x", PositionUtils.getPackedX(packedPos));
+                tag.setInteger("y", PositionUtils.getPackedY(packedPos));
+                tag.setInteger("z", PositionUtils.getPackedZ(packedPos));
+                posTagList.appendTag(tag);
+            });
+        }
+
+        tagList = new NBTTagList();
+        nbt.setTag("SpreadGridOccupancies", tagList);
+        ObjectIterator<Int2ObjectMap.Entry<List<GridOccupancy>>> occupancyIter = this.spreadGridOccupancies.int2ObjectEntrySet().fastIterator();
+
+        while (occupancyIter.hasNext())
+        {
+            Int2ObjectMap.Entry<List<GridOccupancy>> entry = occupancyIter.next();
+
+            for (GridOccupancy occupancy : entry.getValue())
+            {
+                NBTTagCompound tag = occupancy.writeToNBT(new NBTTagCompound());
+                tag.setInteger("Dim", entry.getIntKey());
                 tagList.appendTag(tag);
             }
         }
 
         nbt.setInteger("ServerStarts", this.serverStarts);
+        nbt.setLong("JournalSequence", this.journal.getLastSequence());
 
         return nbt;
     }
@@ -263,6 +520,28 @@ public class DataTracker
         return null;
     }
 
+    @Nullable
+    private File getPlayerDataDir()
+    {
+        File dataDir = this.getDataDir();
+
+        if (dataDir != null)
+        {
+            File playerDir = new File(dataDir, "player_data");
+
+            if (playerDir.exists() == false && playerDir.mkdirs() == false)
+            {
+                WorldPrimer.LOGGER.warn("Failed to create a directory for storing the player data files '{}'",
+                                        playerDir.getPath());
+                return null;
+            }
+
+            return playerDir;
+        }
+
+        return null;
+    }
+
     public void readFromDisk(File worldDir)
     {
         if (Configs.enableDataTracking == false)
@@ -270,13 +549,22 @@ public class DataTracker
             return;
         }
 
+        // Make sure that the data of a previously loaded world has been fully written,
+        // in case the same world is being re-opened
+        this.writer.flush(WRITE_FLUSH_TIMEOUT_MS);
+
         // Clear old data regardless of whether there is a data file
         this.dimensionLoadCounts.clear();
-        this.playerData.clear();
+        this.dimensionResetGenerations.clear();
         this.playerSpreadPositions.clear();
+        this.playerSpreadPositionGrids.clear();
+        this.spreadGridOccupancies.clear();
+        this.snapshotSequence = 0;
         this.serverStarts = 0;
+        this.importedLegacyPlayerData = false;
 
         this.worldDir = worldDir;
+        this.playerData.reset(this.getPlayerDataDir());
         File file = new File(new File(worldDir, Reference.MOD_ID), "data_tracker.nbt");
 
         // Compatibility for reading from the old file - remove at some point
@@ -298,39 +586,59 @@ public class DataTracker
         {
             WorldPrimer.LOGGER.warn("Failed to read tracker data from file '{}'", file.getPath());
         }
+
+        File dataDir = this.getDataDir();
+
+        if (dataDir != null)
+        {
+            this.journal.open(dataDir, this, this.snapshotSequence);
+
+            // Write the main file without the old player data, and all the player data shards, right away.
+            // Otherwise the stale old player data would get imported again over newer shards after a crash.
+            if (this.importedLegacyPlayerData)
+            {
+                this.compact();
+                this.importedLegacyPlayerData = false;
+            }
+        }
     }
 
+    /**
+     * Called on each world save. The save event fires once per dimension,
+     * but the later calls in the same save cycle have little to do.
+     * Normally only the change journal is synced to disk, and the player data shards
+     * that are about to be unloaded are written. Once the journal grows over the configured size,
+     * the data is compacted, by writing snapshots of the main data and all the modified
+     * player data shards and then starting a new journal.
+     * The snapshots are taken on the server thread, but written on the background writer thread.
+     */
     public void writeToDisk()
     {
-        if (this.dirty == false || Configs.enableDataTracking == false)
+        if (Configs.enableDataTracking == false)
         {
             return;
         }
 
         try
         {
-            File saveDir = this.getDataDir();
-
-            if (saveDir != null)
+            if (this.journal.isOpen())
             {
-                File fileTmp  = new File(saveDir, "data_tracker.nbt.tmp");
-                File fileReal = new File(saveDir, "data_tracker.nbt");
-                FileOutputStream os = new FileOutputStream(fileTmp);
-                CompressedStreamTools.writeCompressed(this.writeToNBT(new NBTTagCompound()), os);
-                os.close();
+                this.journal.sync();
 
-                if (fileReal.exists() && fileReal.delete() == false)
+                if (this.journal.getSize() >= Configs.dataJournalCompactionSize * 1024L)
                 {
-                    WorldPrimer.LOGGER.warn("Failed to remove old data file '{}'", fileReal.getAbsolutePath());
+                    this.compact();
                 }
-
-                if (fileTmp.renameTo(fileReal) == false)
+                else
                 {
-                    WorldPrimer.LOGGER.warn("Failed to rename data file '{}' to '{}'",
-                                            fileTmp.getAbsolutePath(), fileReal.getAbsolutePath());
+                    this.playerData.writeToDisk(this.journal.getLastSequence(), false);
                 }
-
-                this.dirty = false;
+            }
+            // Without a journal, fall back to writing full snapshots of all the modified data
+            else
+            {
+                this.writeMainData();
+                this.playerData.writeToDisk(this.journal.getLastSequence(), true);
             }
         }
         catch (Exception e)
@@ -339,10 +647,59 @@ public class DataTracker
         }
     }
 
+    /**
+     * Writes snapshots of all the data, and starts a new journal file.
+     * The old journal files get deleted after the snapshots have been written.
+     */
+    private void compact()
+    {
+        // The main data is always written, so that it holds the latest journal sequence number
+        this.dirty = true;
+        this.writeMainData();
+        this.playerData.writeToDisk(this.journal.getLastSequence(), true);
+        this.journal.rotate();
+    }
+
+    private void writeMainData()
+    {
+        File saveDir = this.getDataDir();
+
+        if (saveDir != null && this.dirty)
+        {
+            NBTTagCompound nbt = this.writeToNBT(new NBTTagCompound());
+            this.writer.submit(new File(saveDir, "data_tracker.nbt"), nbt);
+            this.dirty = false;
+        }
+    }
+
+    /**
+     * Writes the journal records of this tick to the journal file
+     */
+    public void onServerTickEnd()
+    {
+        this.journal.flush();
+    }
+
+    /**
+     * Compacts the journal and closes it, and then blocks until all the queued data writes have finished.
+     * Called when the server has stopped, after the final world saves.
+     */
+    public void onServerStopped()
+    {
+        if (this.journal.isOpen())
+        {
+            this.compact();
+            this.journal.close();
+        }
+
+        this.writer.flush(WRITE_FLUSH_TIMEOUT_MS);
+    }
+
     public static class PlayerData
     {
         private final Int2IntOpenHashMap dimensionEnterCounts = new Int2IntOpenHashMap();
         private final Int2IntOpenHashMap dimensionLeaveCounts = new Int2IntOpenHashMap();
+        private final Int2IntOpenHashMap dimensionResetGenerations = new Int2IntOpenHashMap();
         private int joinCount;
         private int quitCount;
         private int deathCount;
@@ -352,6 +709,7 @@ public class DataTracker
         {
             this.dimensionEnterCounts.defaultReturnValue(-1);
             this.dimensionLeaveCounts.defaultReturnValue(-1);
+            this.dimensionResetGenerations.defaultReturnValue(0);
         }
 
         public int getCount(PlayerDataType type)
@@ -388,6 +746,36 @@ public class DataTracker
             this.dimensionLeaveCounts.remove(dimension);
         }
 
+        /**
+         * Resets the event counts of any dimensions that have been reset since
+         * this player's data was last updated, based on the dimensions' reset generations.
+         * The stored generations are never lowered. While replaying the journal, the current generations
+         * can be behind those of a shard that was written after the reset, and that shard already includes the reset.
+         * @return true if anything was changed
+         */
+        public boolean applyDimensionResets(Int2IntOpenHashMap currentGenerations)
+        {
+            boolean changed = false;
+
+            ObjectIterator<Int2IntMap.Entry> iter = currentGenerations.int2IntEntrySet().fastIterator();
+
+            while (iter.hasNext())
+            {
+                Int2IntMap.Entry entry = iter.next();
+                final int dimension = entry.getIntKey();
+                final int generation = entry.getIntValue();
+
+                if (this.dimensionResetGenerations.get(dimension) < generation)
+                {
+                    this.resetDimensionEventCountsFor(dimension);
+                    this.dimensionResetGenerations.put(dimension, generation);
+                    changed = true;
+                }
+            }
+
+            return changed;
+        }
+
         public void readFromNBT(NBTTagCompound nbt)
         {
             this.joinCount = nbt.getInteger("JoinCount");
@@ -397,9 +785,10 @@ public class DataTracker
 
             this.readDimensionEventData(nbt, "DimEnter", this.dimensionEnterCounts);
             this.readDimensionEventData(nbt, "DimLeave", this.dimensionLeaveCounts);
+            this.readDimensionEventData(nbt, "DimResetGen", this.dimensionResetGenerations);
         }
 
-        private void readDimensionEventData(NBTTagCompound nbt, String key, Map<Integer, Integer> map)
+        private void readDimensionEventData(NBTTagCompound nbt, String key, Int2IntOpenHashMap map)
         {
             map.clear();
 
@@ -425,19 +814,22 @@ public class DataTracker
 
             this.writeDimensionEventData(nbt, "DimEnter", this.dimensionEnterCounts);
             this.writeDimensionEventData(nbt, "DimLeave", this.dimensionLeaveCounts);
+            this.writeDimensionEventData(nbt, "DimResetGen", this.dimensionResetGenerations);
 
             return nbt;
         }
 
-        private void writeDimensionEventData(NBTTagCompound nbt, String key, Map<Integer, Integer> map)
+        private void writeDimensionEventData(NBTTagCompound nbt, String key, Int2IntOpenHashMap map)
         {
             NBTTagList tagList = new NBTTagList();
+            ObjectIterator<Int2IntMap.Entry> iter = map.int2IntEntrySet().fastIterator();
 
-            for (Map.Entry<Integer, Integer> entry : map.entrySet())
+            while (iter.hasNext())
             {
+                Int2IntMap.Entry entry = iter.next();
                 NBTTagCompound tag = new NBTTagCompound();
-                tag.setInteger("Dim", entry.getKey());
-                tag.setInteger("Count", entry.getValue());
+                tag.setInteger("Dim", entry.getIntKey());
+                tag.setInteger("Count", entry.getIntValue());
                 tagList.appendTag(tag);
             }
 
@@ -0,0 +1,251 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import net.minecraft.nbt.NBTTagCompound;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Tracks which nodes of a spread-player grid layout have a spread position on them.
+ * The nodes are numbered in the order of the square spiral used by the grid mode,
+ * starting from the ring at distance 1 around the origin. Ring r has 8 * r nodes,
+ * and starts at the index 4 * r * (r - 1). This way a densely used layout is
+ * a contiguous run of set bits from the start, which stays compact both in memory and on disk.
+ * The cursor is the first free node, so that a search doesn't need to start from the center each time.
+ * The free nodes that a search has rejected are also remembered, so that they don't need to be re-checked.
+ * A node too close to a spread position stays rejected until a spread position gets moved away.
+ * A node rejected by a biome filter stays rejected for good. These are not saved.
+ */
+public class GridOccupancy
+{
+    /** The largest ring whose node indices still fit in an int */
+    public static final int MAX_RING = 23169;
+
+    private final int gridSize;
+    private BitSet occupied = new BitSet();
+    private int cursor;
+    private final Int2ObjectOpenHashMap<BitSet> separationBlockedNodes = new Int2ObjectOpenHashMap<>();
+    private final Map<SpreadPositionFilter, BitSet> filterRejectedNodes = new HashMap<>();
+
+    public GridOccupancy(int gridSize)
+    {
+        this.gridSize = gridSize;
+    }
+
+    public int getGridSize()
+    {
+        return this.gridSize;
+    }
+
+    /**
+     * @return the index of the first free node at or after the given index
+     */
+    public int getNextFreeIndex(int index)
+    {
+        return this.occupied.nextClearBit(Math.max(index, this.cursor));
+    }
+
+    /**
+     * @return the index of the first free node
+     */
+    public int getCursor()
+    {
+        return this.cursor;
+    }
+
+    /**
+     * @return the set of the nodes that have been found to be too close to a spread position
+     * with the given minimum separation. The caller adds the nodes it rejects to the set.
+     */
+    public BitSet getSeparationBlockedNodes(int minSeparation)
+    {
+        BitSet nodes = this.separationBlockedNodes.get(minSeparation);
+
+        if (nodes == null)
+        {
+            nodes = new BitSet();
+            this.separationBlockedNodes.put(minSeparation, nodes);
+        }
+
+        return nodes;
+    }
+
+    /**
+     * @return the set of the nodes that have been rejected by the given filter.
+     * The caller adds the nodes it rejects to the set.
+     */
+    public BitSet getFilterRejectedNodes(SpreadPositionFilter filter)
+    {
+        return this.filterRejectedNodes.computeIfAbsent(filter, (f) -> new BitSet());
+    }
+
+    /**
+     * Forgets all the nodes blocked by the separation checks. This needs to be called when a spread position
+     * is moved away from its old position, whether or not that position was on a node of this grid.
+     */
+    public void clearSeparationBlockedNodes()
+    {
+        this.separationBlockedNodes.clear();
+    }
+
+    /**
+     * Updates the occupancy of the node at the given block position, if the position is on a node of this grid.
+     * @return true if the occupancy changed
+     */
+    public boolean setOccupied(int x, int z, boolean occupied)
+    {
+        if (x % this.gridSize != 0 || z % this.gridSize != 0)
+        {
+            return false;
+        }
+
+        int gridX = x / this.gridSize;
+        int gridZ = z / this.gridSize;
+
+        if ((gridX == 0 && gridZ == 0) || Math.max(Math.abs(gridX), Math.abs(gridZ)) > MAX_RING)
+        {
+            return false;
+        }
+
+        int index = getIndex(gridX, gridZ);
+
+        if (this.occupied.get(index) == occupied)
+        {
+            return false;
+        }
+
+        this.occupied.set(index, occupied);
+
+        if (occupied == false)
+        {
+            this.cursor = Math.min(this.cursor, index);
+        }
+        else if (index == this.cursor)
+        {
+            this.cursor = this.occupied.nextClearBit(index);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the number of nodes in all the rings up to and including the given ring
+     */
+    public static int getNodeCountUpToRing(int ring)
+    {
+        ring = Math.min(ring, MAX_RING);
+        return ring > 0 ? 4 * ring * (ring + 1) : 0;
+    }
+
+    /**
+     * @return the spiral index of the given grid node, which must not be the origin
+     */
+    public static int getIndex(int gridX, int gridZ)
+    {
+        final int r = Math.max(Math.abs(gridX), Math.abs(gridZ));
+        final int ringStart = 4 * r * (r - 1);
+
+        if (gridX == -r)
+        {
+            return ringStart + gridZ + r;
+        }
+        else if (gridZ == r)
+        {
+            return ringStart + 3 * r + gridX;
+        }
+        else if (gridX == r)
+        {
+            return ringStart + 5 * r - gridZ;
+        }
+        else
+        {
+            return ringStart + 7 * r - gridX;
+        }
+    }
+
+    /**
+     * @return the grid node x-coordinate of the given spiral index
+     */
+    public static int getNodeX(int index)
+    {
+        final int r = getRing(index);
+        final int offset = index - 4 * r * (r - 1);
+
+        if (offset <= 2 * r)
+        {
+            return -r;
+        }
+        else if (offset <= 4 * r)
+        {
+            return offset - 3 * r;
+        }
+        else if (offset <= 6 * r)
+        {
+            return r;
+        }
+        else
+        {
+            return 7 * r - offset;
+        }
+    }
+
+    /**
+     * @return the grid node z-coordinate of the given spiral index
+     */
+    public static int getNodeZ(int index)
+    {
+        final int r = getRing(index);
+        final int offset = index - 4 * r * (r - 1);
+
+        if (offset <= 2 * r)
+        {
+            return offset - r;
+        }
+        else if (offset <= 4 * r)
+        {
+            return r;
+        }
+        else if (offset <= 6 * r)
+        {
+            return 5 * r - offset;
+        }
+        else
+        {
+            return -r;
+        }
+    }
+
+    private static int getRing(int index)
+    {
+        // The ring r starts at the index 4 * r * (r - 1), ie. where (2r - 1)^2 <= index + 1
+        int r = (int) ((Math.sqrt(index + 1.0) + 1.0) / 2.0);
+
+        while (r > 1 && 4L * r * (r - 1) > index)
+        {
+            --r;
+        }
+
+        while (4L * (r + 1) * r <= index)
+        {
+            ++r;
+        }
+
+        return r;
+    }
+
+    public void readFromNBT(NBTTagCompound nbt)
+    {
+        this.occupied = BitSet.valueOf(nbt.getByteArray("Occupied"));
+        this.cursor = this.occupied.nextClearBit(Math.max(nbt.getInteger("Cursor"), 0));
+    }
+
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt)
+    {
+        nbt.setInteger("GridSize", this.gridSize);
+        nbt.setInteger("Cursor", this.cursor);
+        nbt.setByteArray("Occupied", this.occupied.toByteArray());
+
+        return nbt;
+    }
+}
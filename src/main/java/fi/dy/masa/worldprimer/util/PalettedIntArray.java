@@ -0,0 +1,230 @@
+package fi.dy.masa.worldprimer.util;
+
+import javax.annotation.Nullable;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * A fixed size array of int values, stored as bit-packed indices into a palette of the distinct values,
+ * using as few bits per entry as the palette size allows. The entries don't span across the longs.
+ * Like in the vanilla palettes, small palettes are searched linearly, and larger ones via a hash map.
+ * The array starts out with all the entries being zero, and the zero value is always the first palette entry.
+ * Optionally the values that are no longer used by any entry are dropped from the palette
+ * before the palette would grow, for uses where most of the values are short-lived.
+ */
+public class PalettedIntArray
+{
+    private static final int MAX_LINEAR_PALETTE_SIZE = 16;
+
+    private final int size;
+    private final boolean compactBeforeGrowing;
+    private int[] palette = new int[] { 0, 0 };
+    @Nullable private Int2IntOpenHashMap paletteIds;
+    private int paletteSize = 1;
+    private int bitsPerEntry = 1;
+    private int entriesPerLong = 64;
+    private long mask = 1L;
+    private long[] data;
+    private int lastValue;
+    private int lastValueId;
+
+    /**
+     * @param size the number of entries
+     * @param compactBeforeGrowing if true, then the unused values are removed from the palette before it would grow
+     */
+    public PalettedIntArray(int size, boolean compactBeforeGrowing)
+    {
+        this.size = size;
+        this.compactBeforeGrowing = compactBeforeGrowing;
+        this.data = new long[(size + 63) / 64];
+    }
+
+    public int get(int index)
+    {
+        return this.palette[this.getId(index)];
+    }
+
+    public void set(int index, int value)
+    {
+        this.setId(index, this.getOrAddPaletteId(value));
+    }
+
+    private int getId(int index)
+    {
+        long value = this.data[index / this.entriesPerLong];
+        return (int) ((value >>> ((index % this.entriesPerLong) * this.bitsPerEntry)) & this.mask);
+    }
+
+    private void setId(int index, int id)
+    {
+        int longIndex = index / this.entriesPerLong;
+        int shift = (index % this.entriesPerLong) * this.bitsPerEntry;
+
+        this.data[longIndex] = (this.data[longIndex] & ~(this.mask << shift)) | ((long) id << shift);
+    }
+
+    private int getOrAddPaletteId(int value)
+    {
+        // Runs of the same value are very common
+        if (value == this.lastValue)
+        {
+            return this.lastValueId;
+        }
+
+        int id = this.findPaletteId(value);
+
+        if (id == -1)
+        {
+            id = this.addPaletteValue(value);
+        }
+
+        this.lastValue = value;
+        this.lastValueId = id;
+
+        return id;
+    }
+
+    private int findPaletteId(int value)
+    {
+        if (this.paletteIds != null)
+        {
+            return this.paletteIds.get(value);
+        }
+
+        for (int i = 0; i < this.paletteSize; ++i)
+        {
+            if (this.palette[i] == value)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int addPaletteValue(int value)
+    {
+        if (this.paletteSize > this.mask)
+        {
+            if (this.compactBeforeGrowing)
+            {
+                // The palette is also grown if it would stay nearly full, so that it doesn't get compacted on every add
+                this.compactPalette();
+
+                if (this.paletteSize * 4L > (this.mask + 1L) * 3L)
+                {
+                    this.resize(this.bitsPerEntry + 1);
+                }
+            }
+            else
+            {
+                this.resize(this.bitsPerEntry + 1);
+            }
+        }
+
+        int id = this.paletteSize;
+
+        if (id >= this.palette.length)
+        {
+            int[] newPalette = new int[this.palette.length * 2];
+            System.arraycopy(this.palette, 0, newPalette, 0, this.paletteSize);
+            this.palette = newPalette;
+        }
+
+        this.palette[id] = value;
+        ++this.paletteSize;
+
+        if (this.paletteIds != null)
+        {
+            this.paletteIds.put(value, id);
+        }
+        else if (this.paletteSize > MAX_LINEAR_PALETTE_SIZE)
+        {
+            this.createPaletteIdMap();
+        }
+
+        return id;
+    }
+
+    private void createPaletteIdMap()
+    {
+        this.paletteIds = new Int2IntOpenHashMap(this.paletteSize * 2);
+        this.paletteIds.defaultReturnValue(-1);
+
+        for (int i = 0; i < this.paletteSize; ++i)
+        {
+            this.paletteIds.put(this.palette[i], i);
+        }
+    }
+
+    /**
+     * Removes the values from the palette that are no longer used by any entry.
+     * The zero value is always kept as the first entry.
+     */
+    private void compactPalette()
+    {
+        final boolean[] used = new boolean[this.paletteSize];
+        used[0] = true;
+
+        for (int i = 0; i < this.size; ++i)
+        {
+            used[this.getId(i)] = true;
+        }
+
+        final int[] newIds = new int[this.paletteSize];
+        int newSize = 0;
+
+        for (int id = 0; id < this.paletteSize; ++id)
+        {
+            if (used[id])
+            {
+                this.palette[newSize] = this.palette[id];
+                newIds[id] = newSize++;
+            }
+        }
+
+        if (newSize == this.paletteSize)
+        {
+            return;
+        }
+
+        for (int i = 0; i < this.size; ++i)
+        {
+            this.setId(i, newIds[this.getId(i)]);
+        }
+
+        if (used[this.lastValueId])
+        {
+            this.lastValueId = newIds[this.lastValueId];
+        }
+        else
+        {
+            this.lastValue = 0;
+            this.lastValueId = 0;
+        }
+
+        this.paletteSize = newSize;
+        this.paletteIds = null;
+
+        if (newSize > MAX_LINEAR_PALETTE_SIZE)
+        {
+            this.createPaletteIdMap();
+        }
+    }
+
+    private void resize(int newBitsPerEntry)
+    {
+        final int newEntriesPerLong = 64 / newBitsPerEntry;
+        final long[] newData = new long[(this.size + newEntriesPerLong - 1) / newEntriesPerLong];
+
+        for (int i = 0; i < this.size; ++i)
+        {
+            long id = this.getId(i);
+            newData[i / newEntriesPerLong] |= id << ((i % newEntriesPerLong) * newBitsPerEntry);
+        }
+
+        this.data = newData;
+        this.bitsPerEntry = newBitsPerEntry;
+        this.entriesPerLong = newEntriesPerLong;
+        this.mask = (1L << newBitsPerEntry) - 1L;
+    }
+}
@@ -0,0 +1,308 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Iterator;
+import java.util.UUID;
+import javax.annotation.Nullable;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+import fi.dy.masa.worldprimer.WorldPrimer;
+import fi.dy.masa.worldprimer.config.Configs;
+import fi.dy.masa.worldprimer.util.DataTracker.PlayerData;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * Stores the per-player tracker data in shard files, bucketed by the highest bits of the player UUID.
+ * The shards are loaded lazily when any of the players in them is first accessed,
+ * and they are unloaded again once none of their players have been online
+ * or accessed for the configured delay. Only the modified shards are written on save.
+ */
+public class PlayerDataStorage
+{
+    private static final int SHARD_BITS = 12;
+
+    private final Int2ObjectOpenHashMap<PlayerDataShard> loadedShards = new Int2ObjectOpenHashMap<>();
+    private final Int2IntOpenHashMap dimensionResetGenerations;
+    private final AsyncNbtWriter writer;
+    @Nullable private File dataDir;
+
+    public PlayerDataStorage(Int2IntOpenHashMap dimensionResetGenerations, AsyncNbtWriter writer)
+    {
+        this.dimensionResetGenerations = dimensionResetGenerations;
+        this.writer = writer;
+    }
+
+    /**
+     * Clears all the loaded data, and sets the directory where the shard files are stored.
+     * If the directory is null, then the data is only kept in memory.
+     */
+    public void reset(@Nullable File dataDir)
+    {
+        this.loadedShards.clear();
+        this.dataDir = dataDir;
+    }
+
+    /**
+     * @return the data of the given player, or null if there is no data for the player yet.
+     * This doesn't create any new data or mark anything as modified, but it will load the player's
+     * shard file, if it isn't loaded yet.
+     */
+    @Nullable
+    public PlayerData getPlayerData(UUID uuid)
+    {
+        return this.getShard(uuid).players.get(uuid);
+    }
+
+    public PlayerData getOrCreatePlayerData(UUID uuid)
+    {
+        PlayerDataShard shard = this.getShard(uuid);
+        PlayerData data = shard.players.get(uuid);
+
+        if (data == null)
+        {
+            data = new PlayerData();
+            data.applyDimensionResets(this.dimensionResetGenerations);
+            shard.players.put(uuid, data);
+            shard.dirty = true;
+        }
+
+        return data;
+    }
+
+    /**
+     * @return the data of the given player for replaying a journal record with the given sequence number,
+     * or null if the player's shard file already includes that record
+     */
+    @Nullable
+    public PlayerData getPlayerDataForReplay(UUID uuid, long sequence)
+    {
+        PlayerDataShard shard = this.getShard(uuid);
+
+        if (sequence <= shard.snapshotSequence)
+        {
+            return null;
+        }
+
+        shard.dirty = true;
+
+        return this.getOrCreatePlayerData(uuid);
+    }
+
+    public void markDirty(UUID uuid)
+    {
+        this.getShard(uuid).dirty = true;
+    }
+
+    /**
+     * Adds an already existing player's data, for example from the old single-file format.
+     * If the player's shard file already has data for the player, then that is kept instead,
+     * as the shard files are always newer than the old format data.
+     */
+    public void importPlayerData(UUID uuid, PlayerData data)
+    {
+        PlayerDataShard shard = this.getShard(uuid);
+
+        if (shard.players.get(uuid) != null)
+        {
+            return;
+        }
+
+        data.applyDimensionResets(this.dimensionResetGenerations);
+        shard.players.put(uuid, data);
+        shard.dirty = true;
+    }
+
+    public void onPlayerLoggedIn(UUID uuid)
+    {
+        this.getShard(uuid).onlineCount++;
+    }
+
+    public void onPlayerLoggedOut(UUID uuid)
+    {
+        PlayerDataShard shard = this.getShard(uuid);
+        shard.onlineCount = Math.max(shard.onlineCount - 1, 0);
+    }
+
+    /**
+     * Resets the dimension event counts of all the currently loaded players,
+     * for any dimensions whose reset generation has changed.
+     * The players in the shards that are not currently loaded will get reset when their shard gets loaded,
+     * based on the dimension's reset generation that they have stored.
+     */
+    public void applyDimensionResets()
+    {
+        for (PlayerDataShard shard : this.loadedShards.values())
+        {
+            shard.players.forEachValue((data) -> {
+                if (data.applyDimensionResets(this.dimensionResetGenerations))
+                {
+                    shard.dirty = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues the modified shards to be written to disk, and then unloads
+     * any shards that have not been used within the configured unload delay.
+     * @param sequence the sequence number of the last journal record, which the snapshots will include
+     * @param allDirty if true, then all the modified shards are written, otherwise only
+     * the ones that are about to be unloaded, as the journal holds the changes of the others
+     */
+    public void writeToDisk(long sequence, boolean allDirty)
+    {
+        if (this.dataDir == null)
+        {
+            return;
+        }
+
+        final long unloadTime = System.currentTimeMillis() - Configs.playerDataUnloadDelay * 1000L;
+
+        for (PlayerDataShard shard : this.loadedShards.values())
+        {
+            if (shard.dirty && (allDirty || shard.canUnload(unloadTime)))
+            {
+                this.writer.submit(this.getShardFile(shard.id), shard.writeToNBT(new NBTTagCompound(), sequence));
+                shard.snapshotSequence = sequence;
+                shard.dirty = false;
+            }
+        }
+
+        this.unloadUnusedShards(unloadTime);
+    }
+
+    private void unloadUnusedShards(long unloadTime)
+    {
+        Iterator<PlayerDataShard> iter = this.loadedShards.values().iterator();
+
+        while (iter.hasNext())
+        {
+            PlayerDataShard shard = iter.next();
+
+            // A shard with a write still pending must stay loaded, as it could otherwise get re-read from a stale file
+            if (shard.dirty == false && shard.canUnload(unloadTime) &&
+                this.writer.isWritePending(this.getShardFile(shard.id)) == false)
+            {
+                iter.remove();
+            }
+        }
+    }
+
+    private PlayerDataShard getShard(UUID uuid)
+    {
+        final int id = (int) (uuid.getMostSignificantBits() >>> (64 - SHARD_BITS));
+        PlayerDataShard shard = this.loadedShards.get(id);
+
+        if (shard == null)
+        {
+            shard = this.readShard(id);
+            this.loadedShards.put(id, shard);
+        }
+
+        shard.lastAccessTime = System.currentTimeMillis();
+
+        return shard;
+    }
+
+    private PlayerDataShard readShard(int id)
+    {
+        PlayerDataShard shard = new PlayerDataShard(id);
+
+        if (this.dataDir == null)
+        {
+            return shard;
+        }
+
+        File file = this.getShardFile(id);
+
+        try
+        {
+            if (file.exists() && file.isFile() && file.canRead())
+            {
+                FileInputStream is = new FileInputStream(file);
+                NBTTagCompound nbt = CompressedStreamTools.readCompressed(is);
+                is.close();
+
+                if (nbt != null)
+                {
+                    shard.readFromNBT(nbt, this.dimensionResetGenerations);
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            WorldPrimer.LOGGER.warn("Failed to read player data from file '{}'", file.getPath());
+        }
+
+        return shard;
+    }
+
+    private File getShardFile(int id)
+    {
+        return new File(this.dataDir, String.format("%03x.nbt", id));
+    }
+
+    private static class PlayerDataShard
+    {
+        private final int id;
+        private final UUIDObjectOpenHashMap<PlayerData> players = new UUIDObjectOpenHashMap<>();
+        private long lastAccessTime;
+        private long snapshotSequence;
+        private int onlineCount;
+        private boolean dirty;
+
+        private PlayerDataShard(int id)
+        {
+            this.id = id;
+        }
+
+        private boolean canUnload(long unloadTime)
+        {
+            return this.onlineCount == 0 && this.lastAccessTime <= unloadTime;
+        }
+
+        private void readFromNBT(NBTTagCompound nbt, Int2IntOpenHashMap dimensionResetGenerations)
+        {
+            this.snapshotSequence = nbt.getLong("JournalSequence");
+            NBTTagList tagList = nbt.getTagList("PlayerData", Constants.NBT.TAG_COMPOUND);
+            final int tagCount = tagList.tagCount();
+
+            for (int i = 0; i < tagCount; i++)
+            {
+                NBTTagCompound tag = tagList.getCompoundTagAt(i);
+                PlayerData data = new PlayerData();
+                data.readFromNBT(tag);
+
+                // Apply any dimension resets that happened while this shard was not loaded
+                if (data.applyDimensionResets(dimensionResetGenerations))
+                {
+                    this.dirty = true;
+                }
+
+                this.players.put(tag.getLong("UUIDM"), tag.getLong("UUIDL"), data);
+            }
+        }
+
+        private NBTTagCompound writeToNBT(NBTTagCompound nbt, long sequence)
+        {
+            NBTTagList tagList = new NBTTagList();
+
+            this.players.forEach((most, least, data) -> {
+                NBTTagCompound tag = new NBTTagCompound();
+                tag.setLong("UUIDM", most);
+                tag.setLong("UUIDL", least);
+                data.writeToNBT(tag);
+                tagList.appendTag(tag);
+            });
+
+            nbt.setTag("PlayerData", tagList);
+            nbt.setLong("JournalSequence", sequence);
+
+            return nbt;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.Random;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Generates well separated random positions on the XZ-plane using Bridson's Poisson-disk sampling.
+ * New points are generated in the annulus between the minimum separation and twice that
+ * around the already accepted "active" points, so that the area fills up in one pass,
+ * instead of the rejection sampling of independent random points getting slower
+ * and slower as the area fills up.
+ */
+public class PoissonDiskSampler
+{
+    private static final int CANDIDATES_PER_POINT = 30;
+    private static final int RESEED_ATTEMPTS = 1000;
+
+    /**
+     * Samples up to maxCount new positions within the square area [-maxRadius, maxRadius] on both axes,
+     * so that they are at least minSeparation apart from each other and accepted by the filter.
+     * @param seedPositions existing positions (packed by BlockPos#toLong()) to grow the sampling from,
+     * the ones outside the area are ignored. These will not be included in the results.
+     * @param filter checks the candidate positions against any existing positions
+     * @return the sampled positions, packed by BlockPos#toLong() with a y-coordinate of 64.
+     * There are fewer than maxCount positions only if no more free positions could be found,
+     * which in practice means that the area is full.
+     */
+    public static LongArrayList sample(int maxCount, int minSeparation, int maxRadius, Random rand,
+                                       LongArrayList seedPositions, IPositionFilter filter)
+    {
+        final int separation = Math.max(minSeparation, 1);
+        final int radius = Math.max(maxRadius, 1);
+        SpatialGrid sampleGrid = new SpatialGrid(separation);
+        LongArrayList samples = new LongArrayList(maxCount);
+        LongArrayList active = new LongArrayList();
+
+        for (int i = 0; i < seedPositions.size(); ++i)
+        {
+            long pos = seedPositions.getLong(i);
+            int x = PositionUtils.getPackedX(pos);
+            int z = PositionUtils.getPackedZ(pos);
+
+            if (isInside(x, z, radius))
+            {
+                active.add(pack(x, z));
+            }
+        }
+
+        while (samples.size() < maxCount)
+        {
+            if (active.isEmpty())
+            {
+                // Start a new region, for example on the first round or if the previous
+                // region got enclosed by the existing positions
+                long seed = findRandomSeed(radius, separation, rand, sampleGrid, filter);
+
+                if (seed == Long.MIN_VALUE)
+                {
+                    break;
+                }
+
+                addSample(seed, samples, active, sampleGrid);
+                continue;
+            }
+
+            int activeIndex = rand.nextInt(active.size());
+            long point = active.getLong(activeIndex);
+            int px = (int) (point >> 32);
+            int pz = (int) point;
+            boolean found = false;
+
+            for (int i = 0; i < CANDIDATES_PER_POINT; ++i)
+            {
+                double angle = rand.nextDouble() * Math.PI * 2.0;
+                double distance = separation * (1.0 + rand.nextDouble());
+                int x = px + (int) Math.round(Math.cos(angle) * distance);
+                int z = pz + (int) Math.round(Math.sin(angle) * distance);
+
+                if (isInside(x, z, radius) && sampleGrid.isClearOf(x, z, separation) && filter.isValid(x, z))
+                {
+                    addSample(pack(x, z), samples, active, sampleGrid);
+                    found = true;
+                    break;
+                }
+            }
+
+            if (found == false)
+            {
+                // Swap-remove the exhausted point
+                active.set(activeIndex, active.getLong(active.size() - 1));
+                active.removeLong(active.size() - 1);
+            }
+        }
+
+        return samples;
+    }
+
+    private static long findRandomSeed(int radius, int separation, Random rand, SpatialGrid sampleGrid, IPositionFilter filter)
+    {
+        for (int i = 0; i < RESEED_ATTEMPTS; ++i)
+        {
+            int x = rand.nextInt(radius * 2 + 1) - radius;
+            int z = rand.nextInt(radius * 2 + 1) - radius;
+
+            if (sampleGrid.isClearOf(x, z, separation) && filter.isValid(x, z))
+            {
+                return pack(x, z);
+            }
+        }
+
+        return Long.MIN_VALUE;
+    }
+
+    private static void addSample(long point, LongArrayList samples, LongArrayList active, SpatialGrid sampleGrid)
+    {
+        long packedPos = PositionUtils.packPos((int) (point >> 32), 64, (int) point);
+        samples.add(packedPos);
+        sampleGrid.add(packedPos);
+        active.add(point);
+    }
+
+    private static boolean isInside(int x, int z, int radius)
+    {
+        return x >= -radius && x <= radius && z >= -radius && z <= radius;
+    }
+
+    private static long pack(int x, int z)
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public interface IPositionFilter
+    {
+        boolean isValid(int x, int z);
+    }
+}
@@ -7,6 +7,38 @@ import net.minecraft.util.math.Vec3d;
 
 public class PositionUtils
 {
+    /**
+     * @return the position packed the same way as by BlockPos#toLong()
+     */
+    public static long packPos(int x, int y, int z)
+    {
+        return ((x & 0x3FFFFFFL) << 38) | ((y & 0xFFFL) << 26) | (z & 0x3FFFFFFL);
+    }
+
+    /**
+     * @return the x-coordinate from a position packed by BlockPos#toLong()
+     */
+    public static int getPackedX(long packedPos)
+    {
+        return (int) (packedPos >> 38);
+    }
+
+    /**
+     * @return the y-coordinate from a position packed by BlockPos#toLong()
+     */
+    public static int getPackedY(long packedPos)
+    {
+        return (int) (packedPos << 26 >> 52);
+    }
+
+    /**
+     * @return the z-coordinate from a position packed by BlockPos#toLong()
+     */
+    public static int getPackedZ(long packedPos)
+    {
+        return (int) (packedPos << 38 >> 38);
+    }
+
     public static BlockPos getMinCorner(BlockPos pos1, BlockPos pos2)
     {
         return new BlockPos(Math.min(pos1.getX(), pos2.getX()), Math.min(pos1.getY(), pos2.getY()), Math.min(pos1.getZ(), pos2.getZ()));
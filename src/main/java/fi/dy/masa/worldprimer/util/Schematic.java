@@ -38,12 +38,13 @@ import net.minecraft.world.gen.structure.template.Template;
 import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fml.common.registry.ForgeRegistries;
 import fi.dy.masa.worldprimer.WorldPrimer;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
 public class Schematic
 {
     public static ChiselsAndBitsHandler chiselsAndBitsHandler = new ChiselsAndBitsHandler();
     private BlockPos size = BlockPos.ORIGIN;
-    private IBlockState[] blocks;
+    private SectionedBlockStorage blocks;
     private Block[] palette;
     private Map<BlockPos, NBTTagCompound> tiles = new HashMap<>();
     private List<NBTTagCompound> entities = new ArrayList<>();
@@ -63,21 +64,20 @@ public class Schematic
         final int width = this.size.getX();
         final int height = this.size.getY();
         final int length = this.size.getZ();
-        final int numBlocks = width * height * length;
+        final long numBlocks = (long) width * (long) height * (long) length;
 
-        if (this.blocks != null && this.blocks.length == numBlocks && numBlocks > 0)
+        if (this.blocks != null && this.blocks.getVolume() == numBlocks && numBlocks > 0)
         {
             Block ignoredBlock = placement.getReplacedBlock();
-            int index = 0;
 
             // Place blocks and read any TileEntity data
             for (int y = 0; y < height; ++y)
             {
                 for (int z = 0; z < length; ++z)
                 {
-                    for (int x = 0; x < width; ++x, index++)
+                    for (int x = 0; x < width; ++x)
                     {
-                        IBlockState state = this.blocks[index];
+                        IBlockState state = this.blocks.get(x, y, z);
 
                         if (ignoredBlock != null && state.getBlock() == ignoredBlock)
                         {
@@ -246,15 +246,13 @@ public class Schematic
         final int width = size.getX();
         final int height = size.getY();
         final int length = size.getZ();
-        final int numBlocks = width * height * length;
         final int startX = posStart.getX();
         final int startY = posStart.getY();
         final int startZ = posStart.getZ();
         final int endX = startX + size.getX();
         final int endY = startY + size.getY();
         final int endZ = startZ + size.getZ();
-        int index = 0;
-        this.blocks = new IBlockState[numBlocks];
+        this.blocks = new SectionedBlockStorage(width, height, length);
         BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos(0, 0, 0);
         this.tiles.clear();
 
@@ -262,10 +260,11 @@ public class Schematic
         {
             for (int z = startZ; z < endZ; ++z)
             {
-                for (int x = startX; x < endX; ++x, ++index)
+                for (int x = startX; x < endX; ++x)
                 {
                     posMutable.setPos(x, y, z);
-                    this.blocks[index] = world.getBlockState(posMutable);
+                    IBlockState state = world.getBlockState(posMutable);
+                    this.blocks.set(x - startX, y - startY, z - startZ, state);
 
                     TileEntity te = world.getTileEntity(posMutable);
 
@@ -297,7 +296,7 @@ public class Schematic
                         catch (Exception e)
                         {
                             WorldPrimer.LOGGER.warn("Exception while trying to store TileEntity data for block '{}' at {}",
-                                                    this.blocks[index], posMutable.toString(), e);
+                                                    state, posMutable.toString(), e);
                         }
                     }
                 }
@@ -350,34 +349,65 @@ public class Schematic
         return null;
     }
 
-    @SuppressWarnings("deprecation")
     public boolean readFromNBT(NBTTagCompound nbt)
+    {
+        if (nbt.hasKey("Blocks", Constants.NBT.TAG_BYTE_ARRAY) &&
+            nbt.hasKey("Data", Constants.NBT.TAG_BYTE_ARRAY))
+        {
+            SchematicRawBlocks rawBlocks = new SchematicRawBlocks();
+            byte[] arr = nbt.getByteArray("Blocks");
+            rawBlocks.setBlocksLength(arr.length);
+            rawBlocks.addBlockIds(arr, arr.length, 0);
+
+            arr = nbt.getByteArray("Data");
+            rawBlocks.setDataLength(arr.length);
+            rawBlocks.addMetadata(arr, arr.length, 0);
+
+            if (nbt.hasKey("AddBlocks", Constants.NBT.TAG_BYTE_ARRAY))
+            {
+                arr = nbt.getByteArray("AddBlocks");
+                rawBlocks.setAddLength(arr.length);
+                rawBlocks.addAddBlocks(arr, arr.length, 0);
+            }
+
+            return this.readFromNBT(nbt, rawBlocks);
+        }
+        else
+        {
+            WorldPrimer.LOGGER.error("Schematic: Missing block data in the schematic '{}'", this.fileName);
+        }
+
+        return false;
+    }
+
+    /**
+     * Reads the schematic from the given NBT data, with the block arrays already decoded into rawBlocks
+     */
+    @SuppressWarnings("deprecation")
+    private boolean readFromNBT(NBTTagCompound nbt, SchematicRawBlocks rawBlocks)
     {
         // This method was implemented based on
         // https://minecraft.gamepedia.com/Schematic_file_format
         // as it was on 2018-04-18.
-        if (nbt.hasKey("Blocks", Constants.NBT.TAG_BYTE_ARRAY) &&
-            nbt.hasKey("Data", Constants.NBT.TAG_BYTE_ARRAY))
+        if (rawBlocks.getBlocksLength() >= 0 && rawBlocks.getDataLength() >= 0)
         {
             int width = nbt.getShort("Width");
             int height = nbt.getShort("Height");
             int length = nbt.getShort("Length");
-            byte[] blockIdsByte = nbt.getByteArray("Blocks");
-            byte[] metaArr = nbt.getByteArray("Data");
-            final int numBlocks = blockIdsByte.length;
+            final int numBlocks = rawBlocks.getBlocksLength();
 
             this.size = new BlockPos(width, height, length);
 
-            if (numBlocks != (width * height * length))
+            if (numBlocks != (long) width * (long) height * (long) length)
             {
                 WorldPrimer.LOGGER.error("Schematic: Mismatched block array size compared to the width/height/length, blocks: {}, W x H x L: {} x {} x {}",
                                          numBlocks, width, height, length);
                 return false;
             }
 
-            if (numBlocks != metaArr.length)
+            if (numBlocks != rawBlocks.getDataLength())
             {
-                WorldPrimer.LOGGER.error("Schematic: Mismatched block ID and metadata array sizes, blocks: {}, meta: {}", numBlocks, metaArr.length);
+                WorldPrimer.LOGGER.error("Schematic: Mismatched block ID and metadata array sizes, blocks: {}, meta: {}", numBlocks, rawBlocks.getDataLength());
                 return false;
             }
 
@@ -387,58 +417,16 @@ public class Schematic
                 return false;
             }
 
-            this.blocks = new IBlockState[numBlocks];
-
-            if (nbt.hasKey("AddBlocks", Constants.NBT.TAG_BYTE_ARRAY))
+            if (rawBlocks.getAddLength() >= 0)
             {
-                byte[] add = nbt.getByteArray("AddBlocks");
-                final int expectedAddLength = (int) Math.ceil((double) blockIdsByte.length / 2D);
+                final int expectedAddLength = (int) Math.ceil((double) numBlocks / 2D);
 
-                if (add.length != expectedAddLength)
+                if (rawBlocks.getAddLength() != expectedAddLength)
                 {
                     WorldPrimer.LOGGER.error("Schematic: Add array size mismatch, blocks: {}, add: {}, expected add: {}",
-                                             numBlocks, add.length, expectedAddLength);
+                                             numBlocks, rawBlocks.getAddLength(), expectedAddLength);
                     return false;
                 }
-
-                final int loopMax;
-
-                // Even number of blocks, we can handle two position (meaning one full add byte) at a time
-                if ((numBlocks % 2) == 0)
-                {
-                    loopMax = numBlocks - 1;
-                }
-                else
-                {
-                    loopMax = numBlocks - 2;
-                }
-
-                Block block;
-                int byteId;
-                int bi, ai;
-
-                // Handle two positions per iteration, ie. one full byte of the add array
-                for (bi = 0, ai = 0; bi < loopMax; bi += 2, ai++)
-                {
-                    final int addValue = ((int) add[ai]) & 0xFF;
-
-                    byteId = ((int) blockIdsByte[bi    ]) & 0xFF;
-                    block = this.palette[(addValue & 0xF0) << 4 | byteId];
-                    this.blocks[bi    ] = block.getStateFromMeta(metaArr[bi    ]);
-
-                    byteId = ((int) blockIdsByte[bi + 1]) & 0xFF;
-                    block = this.palette[(addValue & 0x0F) << 8 | byteId];
-                    this.blocks[bi + 1] = block.getStateFromMeta(metaArr[bi + 1]);
-                }
-
-                // Odd number of blocks, handle the last position
-                if ((numBlocks % 2) != 0)
-                {
-                    final int addValue = ((int) add[ai]) & 0xFF;
-                    byteId = ((int) blockIdsByte[bi    ]) & 0xFF;
-                    block = this.palette[(addValue & 0xF0) << 4 | byteId];
-                    this.blocks[bi    ] = block.getStateFromMeta(metaArr[bi    ]);
-                }
             }
             // Old Schematica format
             else if (nbt.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY))
@@ -447,13 +435,32 @@ public class Schematic
                 WorldPrimer.LOGGER.error("Schematic: Old Schematica format detected, not currently implemented...");
                 return false;
             }
-            // No palette, use the registry IDs directly
-            else
+
+            Int2ObjectOpenHashMap<IBlockState> stateCache = new Int2ObjectOpenHashMap<>();
+            this.blocks = new SectionedBlockStorage(width, height, length);
+            int index = 0;
+
+            for (int y = 0; y < height; ++y)
             {
-                for (int i = 0; i < numBlocks; i++)
+                for (int z = 0; z < length; ++z)
                 {
-                    Block block = this.palette[((int) blockIdsByte[i]) & 0xFF];
-                    this.blocks[i] = block.getStateFromMeta(metaArr[i]);
+                    for (int x = 0; x < width; ++x, ++index)
+                    {
+                        // The raw value is the 12-bit block ID and the 4-bit metadata
+                        final int raw = rawBlocks.get(index);
+                        IBlockState state = stateCache.get(raw);
+
+                        if (state == null)
+                        {
+                            state = this.palette[raw >>> 4].getStateFromMeta(raw & 0xF);
+                            stateCache.put(raw, state);
+                        }
+
+                        this.blocks.set(x, y, z, state);
+                    }
+
+                    // Free the raw values as soon as they have been decoded, to not hold two full copies of the blocks
+                    rawBlocks.releaseBefore(index);
                 }
             }
 
@@ -599,11 +606,16 @@ public class Schematic
 
             try
             {
-                FileInputStream is = new FileInputStream(file);
-                NBTTagCompound nbt = CompressedStreamTools.readCompressed(is);
-                is.close();
+                // Read the block arrays straight into the compact storage, instead of reading the full NBT tree first
+                SchematicRawBlocks rawBlocks = new SchematicRawBlocks();
+                NBTTagCompound nbt;
+
+                try (FileInputStream is = new FileInputStream(file))
+                {
+                    nbt = SchematicStreamReader.read(is, rawBlocks);
+                }
 
-                return this.readFromNBT(nbt);
+                return this.readFromNBT(nbt, rawBlocks);
             }
             catch (IOException e)
             {
@@ -619,21 +631,19 @@ public class Schematic
         if (this.palette == null)
         {
             this.palette = new Block[4096];
-            final int numBlocks = this.blocks.length;
 
-            for (int i = 0; i < numBlocks; ++i)
-            {
-                Block block = this.blocks[i].getBlock();
+            this.blocks.forEachPaletteState((state) -> {
+                Block block = state.getBlock();
                 int id = Block.getIdFromBlock(block);
 
                 if (id >= this.palette.length)
                 {
                     throw new IllegalArgumentException(String.format("Block id %d for block '%s' is out of range, max allowed = %d!",
-                            id, this.blocks[i].toString(), this.palette.length - 1));
+                            id, state.toString(), this.palette.length - 1));
                 }
 
                 this.palette[id] = block;
-            }
+            });
         }
     }
 
@@ -666,50 +676,38 @@ public class Schematic
         nbt.setShort("Length", (short) this.size.getZ());
         nbt.setString("Materials", "Alpha");
 
-        final int numBlocks = this.blocks.length;
-        final int loopMax = (int) Math.floor((double) numBlocks / 2D);
+        final int width = this.size.getX();
+        final int height = this.size.getY();
+        final int length = this.size.getZ();
+        final int numBlocks = (int) this.blocks.getVolume();
         final int addSize = (int) Math.ceil((double) numBlocks / 2D);
         final byte[] blockIdsArr = new byte[numBlocks];
         final byte[] metaArr = new byte[numBlocks];
         final byte[] addArr = new byte[addSize];
         int numAdd = 0;
-        int bi, ai;
+        int index = 0;
 
-        for (bi = 0, ai = 0; ai < loopMax; ++ai, bi += 2)
+        for (int y = 0; y < height; ++y)
         {
-            IBlockState state1 = this.blocks[bi    ];
-            IBlockState state2 = this.blocks[bi + 1];
-            int id1 = Block.getIdFromBlock(state1.getBlock());
-            int id2 = Block.getIdFromBlock(state2.getBlock());
-            int add = ((id1 >>> 4) & 0xF0) | ((id2 >>> 8) & 0x0F);
-            blockIdsArr[bi    ] = (byte) (id1 & 0xFF);
-            blockIdsArr[bi + 1] = (byte) (id2 & 0xFF);
-
-            if (add != 0)
+            for (int z = 0; z < length; ++z)
             {
-                addArr[ai] = (byte) add;
-                numAdd++;
-            }
-
-            metaArr[bi    ] = (byte) state1.getBlock().getMetaFromState(state1);
-            metaArr[bi + 1] = (byte) state2.getBlock().getMetaFromState(state2);
-        }
+                for (int x = 0; x < width; ++x, ++index)
+                {
+                    IBlockState state = this.blocks.get(x, y, z);
+                    int id = Block.getIdFromBlock(state.getBlock());
+                    // The add array has the high nibble first, for the even indices
+                    int add = (index & 0x1) == 0 ? (id >>> 4) & 0xF0 : (id >>> 8) & 0x0F;
+                    blockIdsArr[index] = (byte) (id & 0xFF);
 
-        // Odd number of blocks, handle the last position
-        if ((numBlocks % 2) != 0)
-        {
-            IBlockState state = this.blocks[bi];
-            int id = Block.getIdFromBlock(state.getBlock());
-            int add = (id >>> 4) & 0xF0;
-            blockIdsArr[bi] = (byte) (id & 0xFF);
+                    if (add != 0)
+                    {
+                        addArr[index >> 1] |= (byte) add;
+                        numAdd++;
+                    }
 
-            if (add != 0)
-            {
-                addArr[ai] = (byte) add;
-                numAdd++;
+                    metaArr[index] = (byte) state.getBlock().getMetaFromState(state);
+                }
             }
-
-            metaArr[bi] = (byte) state.getBlock().getMetaFromState(state);
         }
 
         nbt.setByteArray("Blocks", blockIdsArr);
@@ -748,14 +746,32 @@ public class Schematic
         return nbt;
     }
 
+    /**
+     * @return true if the area fits in the Schematic format, ie. in the short dimensions and the int-indexed block arrays
+     */
+    private boolean isSizeValidForSchematic()
+    {
+        return this.blocks.getVolume() <= Integer.MAX_VALUE - 8 &&
+               this.size.getX() <= Short.MAX_VALUE &&
+               this.size.getY() <= Short.MAX_VALUE &&
+               this.size.getZ() <= Short.MAX_VALUE;
+    }
+
     public boolean writeToFile(File file)
     {
-        try
+        if (this.isSizeValidForSchematic() == false)
         {
-            FileOutputStream os = new FileOutputStream(file);
-            CompressedStreamTools.writeCompressed(this.writeToNBT(), os);
-            os.close();
+            WorldPrimer.LOGGER.error("Schematic: The area {} x {} x {} is too large for the Schematic format, not writing the file '{}'",
+                                     this.size.getX(), this.size.getY(), this.size.getZ(), file.getAbsolutePath());
+            return false;
+        }
 
+        // Build the data before opening the file, so that nothing gets truncated if that fails
+        NBTTagCompound nbt = this.writeToNBT();
+
+        try (FileOutputStream os = new FileOutputStream(file))
+        {
+            CompressedStreamTools.writeCompressed(nbt, os);
             return true;
         }
         catch (IOException e)
@@ -0,0 +1,176 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Collects the Blocks, Data and AddBlocks arrays of a .schematic file, in any order and in any size pieces,
+ * into one combined 16-bit raw value per position: the 12-bit block ID in the upper bits and the metadata in the lowest 4 bits.
+ * The values are stored in chunks of 4096 consecutive positions, each being a PalettedIntArray,
+ * and all-zero (ie. air) chunks are not stored at all.
+ * The intermediate values of the positions that have only received some of the arrays so far
+ * are dropped from the palettes once they are no longer used, before a palette would grow.
+ * This way the arrays never need to be held in memory in full, and the positions can be decoded
+ * only once the dimensions and the block palette are known, as those may come after the arrays in the file.
+ * The chunks can be released while decoding, so that the raw values and the decoded blocks
+ * don't both need to be held in memory in full.
+ */
+public class SchematicRawBlocks
+{
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    private final List<PalettedIntArray> chunks = new ArrayList<>();
+    private int blocksLength = -1;
+    private int dataLength = -1;
+    private int addLength = -1;
+    private int releasedChunkCount;
+
+    /**
+     * @return the length of the Blocks array, or -1 if it hasn't been added
+     */
+    public int getBlocksLength()
+    {
+        return this.blocksLength;
+    }
+
+    /**
+     * @return the length of the Data array, or -1 if it hasn't been added
+     */
+    public int getDataLength()
+    {
+        return this.dataLength;
+    }
+
+    /**
+     * @return the length of the AddBlocks array, or -1 if it hasn't been added
+     */
+    public int getAddLength()
+    {
+        return this.addLength;
+    }
+
+    public void setBlocksLength(int length)
+    {
+        this.blocksLength = length;
+    }
+
+    public void setDataLength(int length)
+    {
+        this.dataLength = length;
+    }
+
+    public void setAddLength(int length)
+    {
+        this.addLength = length;
+    }
+
+    /**
+     * Adds the lower 8 bits of the block IDs from the Blocks array
+     * @param startIndex the index of the first value in the full array
+     */
+    public void addBlockIds(byte[] buf, int length, int startIndex)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            this.or(startIndex + i, (buf[i] & 0xFF) << 4);
+        }
+    }
+
+    /**
+     * Adds the metadata values from the Data array
+     * @param startIndex the index of the first value in the full array
+     */
+    public void addMetadata(byte[] buf, int length, int startIndex)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            this.or(startIndex + i, buf[i] & 0xF);
+        }
+    }
+
+    /**
+     * Adds the upper 4 bits of the block IDs from the AddBlocks array.
+     * Each byte holds the values of two positions, the high nibble being for the even position.
+     * @param startIndex the index of the first byte in the full AddBlocks array
+     */
+    public void addAddBlocks(byte[] buf, int length, int startIndex)
+    {
+        for (int i = 0; i < length; ++i)
+        {
+            final int addValue = buf[i] & 0xFF;
+            final int index = (startIndex + i) * 2;
+
+            this.or(index    , (addValue & 0xF0) << 8);
+            this.or(index + 1, (addValue & 0x0F) << 12);
+        }
+    }
+
+    /**
+     * @return the 12-bit block ID and the 4-bit metadata at the given index, as (id << 4) | meta
+     */
+    public int get(int index)
+    {
+        PalettedIntArray chunk = this.getChunk(index >>> CHUNK_SHIFT, false);
+        return chunk != null ? chunk.get(index & (CHUNK_SIZE - 1)) : 0;
+    }
+
+    /**
+     * Releases the chunks that only contain indices below the given index.
+     * The values of those indices read as zero afterwards.
+     */
+    public void releaseBefore(int index)
+    {
+        final int end = Math.min(index >>> CHUNK_SHIFT, this.chunks.size());
+
+        for (int i = this.releasedChunkCount; i < end; ++i)
+        {
+            this.chunks.set(i, null);
+        }
+
+        this.releasedChunkCount = Math.max(this.releasedChunkCount, end);
+    }
+
+    private void or(int index, int bits)
+    {
+        // Skip the zero bits, so that chunks of air never get created
+        if (bits != 0)
+        {
+            PalettedIntArray chunk = this.getChunk(index >>> CHUNK_SHIFT, true);
+            int i = index & (CHUNK_SIZE - 1);
+            chunk.set(i, chunk.get(i) | bits);
+        }
+    }
+
+    @Nullable
+    private PalettedIntArray getChunk(int chunkIndex, boolean create)
+    {
+        if (chunkIndex < this.chunks.size())
+        {
+            PalettedIntArray chunk = this.chunks.get(chunkIndex);
+
+            if (chunk == null && create)
+            {
+                chunk = new PalettedIntArray(CHUNK_SIZE, true);
+                this.chunks.set(chunkIndex, chunk);
+            }
+
+            return chunk;
+        }
+        else if (create)
+        {
+            while (this.chunks.size() < chunkIndex)
+            {
+                this.chunks.add(null);
+            }
+
+            PalettedIntArray chunk = new PalettedIntArray(CHUNK_SIZE, true);
+            this.chunks.add(chunk);
+
+            return chunk;
+        }
+
+        return null;
+    }
+}
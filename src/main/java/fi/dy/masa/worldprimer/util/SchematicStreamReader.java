@@ -0,0 +1,231 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagLongArray;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+/**
+ * Reads a gzipped .schematic file as a stream, without building the full NBT tree.
+ * The Blocks, Data and AddBlocks byte arrays of the root compound are decoded into the given
+ * SchematicRawBlocks piece by piece as they are read, and only all the other, small tags
+ * (the dimensions, the palette, the TileEntities and the Entities etc.) are read into an NBTTagCompound.
+ */
+public class SchematicStreamReader
+{
+    private static final int MAX_DEPTH = 512;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final DataInputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private SchematicStreamReader(DataInputStream input)
+    {
+        this.input = input;
+    }
+
+    /**
+     * Reads and closes the given stream.
+     * @return the root compound tag, without the block arrays, which are instead decoded into rawBlocks
+     */
+    public static NBTTagCompound read(InputStream is, SchematicRawBlocks rawBlocks) throws IOException
+    {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(is), BUFFER_SIZE)))
+        {
+            SchematicStreamReader reader = new SchematicStreamReader(input);
+
+            if (input.readByte() != Constants.NBT.TAG_COMPOUND)
+            {
+                throw new IOException("Root tag must be a named compound tag");
+            }
+
+            input.readUTF();
+
+            return reader.readRootCompound(rawBlocks);
+        }
+    }
+
+    private NBTTagCompound readRootCompound(SchematicRawBlocks rawBlocks) throws IOException
+    {
+        NBTTagCompound nbt = new NBTTagCompound();
+        byte type;
+
+        while ((type = this.input.readByte()) != Constants.NBT.TAG_END)
+        {
+            String key = this.input.readUTF();
+
+            if (type == Constants.NBT.TAG_BYTE_ARRAY &&
+                (key.equals("Blocks") || key.equals("Data") || key.equals("AddBlocks")))
+            {
+                this.readBlockArray(key, rawBlocks);
+            }
+            else
+            {
+                nbt.setTag(key, this.readTag(type, 1));
+            }
+        }
+
+        return nbt;
+    }
+
+    private void readBlockArray(String key, SchematicRawBlocks rawBlocks) throws IOException
+    {
+        final int length = this.input.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException("Invalid length " + length + " for the byte array '" + key + "'");
+        }
+
+        if (key.equals("Blocks"))
+        {
+            rawBlocks.setBlocksLength(length);
+        }
+        else if (key.equals("Data"))
+        {
+            rawBlocks.setDataLength(length);
+        }
+        else
+        {
+            rawBlocks.setAddLength(length);
+        }
+
+        int index = 0;
+
+        while (index < length)
+        {
+            final int count = Math.min(BUFFER_SIZE, length - index);
+            this.input.readFully(this.buffer, 0, count);
+
+            if (key.equals("Blocks"))
+            {
+                rawBlocks.addBlockIds(this.buffer, count, index);
+            }
+            else if (key.equals("Data"))
+            {
+                rawBlocks.addMetadata(this.buffer, count, index);
+            }
+            else
+            {
+                rawBlocks.addAddBlocks(this.buffer, count, index);
+            }
+
+            index += count;
+        }
+    }
+
+    private NBTBase readTag(byte type, int depth) throws IOException
+    {
+        if (depth > MAX_DEPTH)
+        {
+            throw new IOException("Tried to read NBT tag with too high complexity, depth > " + MAX_DEPTH);
+        }
+
+        switch (type)
+        {
+            case Constants.NBT.TAG_BYTE:
+                return new NBTTagByte(this.input.readByte());
+            case Constants.NBT.TAG_SHORT:
+                return new NBTTagShort(this.input.readShort());
+            case Constants.NBT.TAG_INT:
+                return new NBTTagInt(this.input.readInt());
+            case Constants.NBT.TAG_LONG:
+                return new NBTTagLong(this.input.readLong());
+            case Constants.NBT.TAG_FLOAT:
+                return new NBTTagFloat(this.input.readFloat());
+            case Constants.NBT.TAG_DOUBLE:
+                return new NBTTagDouble(this.input.readDouble());
+            case Constants.NBT.TAG_STRING:
+                return new NBTTagString(this.input.readUTF());
+
+            case Constants.NBT.TAG_BYTE_ARRAY:
+            {
+                byte[] arr = new byte[this.readArrayLength()];
+                this.input.readFully(arr);
+                return new NBTTagByteArray(arr);
+            }
+
+            case Constants.NBT.TAG_INT_ARRAY:
+            {
+                int[] arr = new int[this.readArrayLength()];
+
+                for (int i = 0; i < arr.length; ++i)
+                {
+                    arr[i] = this.input.readInt();
+                }
+
+                return new NBTTagIntArray(arr);
+            }
+
+            case Constants.NBT.TAG_LONG_ARRAY:
+            {
+                long[] arr = new long[this.readArrayLength()];
+
+                for (int i = 0; i < arr.length; ++i)
+                {
+                    arr[i] = this.input.readLong();
+                }
+
+                return new NBTTagLongArray(arr);
+            }
+
+            case Constants.NBT.TAG_LIST:
+            {
+                NBTTagList list = new NBTTagList();
+                byte elementType = this.input.readByte();
+                int count = this.readArrayLength();
+
+                for (int i = 0; i < count; ++i)
+                {
+                    list.appendTag(this.readTag(elementType, depth + 1));
+                }
+
+                return list;
+            }
+
+            case Constants.NBT.TAG_COMPOUND:
+            {
+                NBTTagCompound tag = new NBTTagCompound();
+                byte elementType;
+
+                while ((elementType = this.input.readByte()) != Constants.NBT.TAG_END)
+                {
+                    String key = this.input.readUTF();
+                    tag.setTag(key, this.readTag(elementType, depth + 1));
+                }
+
+                return tag;
+            }
+
+            default:
+                throw new IOException("Invalid NBT tag type " + type);
+        }
+    }
+
+    private int readArrayLength() throws IOException
+    {
+        int length = this.input.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException("Invalid NBT array length " + length);
+        }
+
+        return length;
+    }
+}
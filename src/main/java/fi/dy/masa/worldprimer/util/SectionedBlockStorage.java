@@ -0,0 +1,162 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+
+/**
+ * Block storage for large areas, split into 16x16x16 sections similarly to the vanilla chunk sections.
+ * The distinct block states are mapped to int IDs, and each section stores those IDs
+ * in a PalettedIntArray, ie. with its own palette and bit-packed palette indices.
+ * Sections that only contain air are not stored at all, so the memory use is proportional
+ * to the number of distinct states and the number of non-empty sections, not to the volume.
+ * The sections are stored by their packed section coordinates, so the volume is not limited to the int range.
+ */
+public class SectionedBlockStorage
+{
+    private static final IBlockState AIR = Blocks.AIR.getDefaultState();
+    private static final int SECTION_SIZE = 4096;
+
+    private final Long2ObjectOpenHashMap<PalettedIntArray> sections = new Long2ObjectOpenHashMap<>();
+    /** The IDs of the states, air being ID 0, which is also the initial value in the sections */
+    private final Reference2IntOpenHashMap<IBlockState> stateIds = new Reference2IntOpenHashMap<>();
+    private final List<IBlockState> states = new ArrayList<>();
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    @Nullable private PalettedIntArray lastSection;
+    private long lastSectionKey = Long.MIN_VALUE;
+    private IBlockState lastState = AIR;
+    private int lastStateId;
+
+    public SectionedBlockStorage(int sizeX, int sizeY, int sizeZ)
+    {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+
+        this.stateIds.defaultReturnValue(-1);
+        this.stateIds.put(AIR, 0);
+        this.states.add(AIR);
+    }
+
+    public long getVolume()
+    {
+        return (long) this.sizeX * (long) this.sizeY * (long) this.sizeZ;
+    }
+
+    public int getNonEmptySectionCount()
+    {
+        return this.sections.size();
+    }
+
+    public boolean isInside(int x, int y, int z)
+    {
+        return x >= 0 && y >= 0 && z >= 0 && x < this.sizeX && y < this.sizeY && z < this.sizeZ;
+    }
+
+    /**
+     * @return the block state at the given relative position, or air if the position is outside the area
+     */
+    public IBlockState get(int x, int y, int z)
+    {
+        if (this.isInside(x, y, z) == false)
+        {
+            return AIR;
+        }
+
+        PalettedIntArray section = this.getSection(getSectionKey(x >> 4, y >> 4, z >> 4), false);
+
+        return section != null ? this.states.get(section.get(getIndexInSection(x, y, z))) : AIR;
+    }
+
+    public void set(int x, int y, int z, IBlockState state)
+    {
+        if (this.isInside(x, y, z) == false)
+        {
+            return;
+        }
+
+        // Don't create new sections just to store air in them
+        PalettedIntArray section = this.getSection(getSectionKey(x >> 4, y >> 4, z >> 4), state != AIR);
+
+        if (section != null)
+        {
+            section.set(getIndexInSection(x, y, z), this.getStateId(state));
+        }
+    }
+
+    /**
+     * Passes each distinct block state to the consumer once.
+     * Air is always included, as any missing sections are all air.
+     * This may also include states that are no longer used, if they have been overwritten.
+     */
+    public void forEachPaletteState(Consumer<IBlockState> consumer)
+    {
+        this.states.forEach(consumer);
+    }
+
+    private int getStateId(IBlockState state)
+    {
+        // Runs of the same state are very common
+        if (state == this.lastState)
+        {
+            return this.lastStateId;
+        }
+
+        int id = this.stateIds.getInt(state);
+
+        if (id == -1)
+        {
+            id = this.states.size();
+            this.states.add(state);
+            this.stateIds.put(state, id);
+        }
+
+        this.lastState = state;
+        this.lastStateId = id;
+
+        return id;
+    }
+
+    @Nullable
+    private PalettedIntArray getSection(long key, boolean create)
+    {
+        // Consecutive accesses are very likely to be within the same section
+        if (key == this.lastSectionKey && this.lastSection != null)
+        {
+            return this.lastSection;
+        }
+
+        PalettedIntArray section = this.sections.get(key);
+
+        if (section == null && create)
+        {
+            section = new PalettedIntArray(SECTION_SIZE, false);
+            this.sections.put(key, section);
+        }
+
+        if (section != null)
+        {
+            this.lastSection = section;
+            this.lastSectionKey = key;
+        }
+
+        return section;
+    }
+
+    private static long getSectionKey(int sectionX, int sectionY, int sectionZ)
+    {
+        return ((long) (sectionX & 0x1FFFFF) << 42) | ((long) (sectionY & 0x1FFFFF) << 21) | (long) (sectionZ & 0x1FFFFF);
+    }
+
+    private static int getIndexInSection(int x, int y, int z)
+    {
+        return ((y & 0xF) << 8) | ((z & 0xF) << 4) | (x & 0xF);
+    }
+}
@@ -0,0 +1,109 @@
+package fi.dy.masa.worldprimer.util;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * A uniform grid spatial hash of positions on the XZ-plane.
+ * The positions are stored packed by BlockPos#toLong(), in square cells of the given size.
+ * When the cell size is at least the separation distance being checked,
+ * then only the 3x3 cells around a position need to be checked.
+ */
+public class SpatialGrid
+{
+    private final Long2ObjectOpenHashMap<LongArrayList> cells = new Long2ObjectOpenHashMap<>();
+    private final int cellSize;
+
+    public SpatialGrid(int cellSize)
+    {
+        this.cellSize = Math.max(cellSize, 1);
+    }
+
+    public int getCellSize()
+    {
+        return this.cellSize;
+    }
+
+    public void add(long packedPos)
+    {
+        long key = this.getCellKey(PositionUtils.getPackedX(packedPos), PositionUtils.getPackedZ(packedPos));
+        LongArrayList list = this.cells.get(key);
+
+        if (list == null)
+        {
+            list = new LongArrayList(4);
+            this.cells.put(key, list);
+        }
+
+        list.add(packedPos);
+    }
+
+    public void remove(long packedPos)
+    {
+        long key = this.getCellKey(PositionUtils.getPackedX(packedPos), PositionUtils.getPackedZ(packedPos));
+        LongArrayList list = this.cells.get(key);
+
+        if (list != null && list.rem(packedPos) && list.isEmpty())
+        {
+            this.cells.remove(key);
+        }
+    }
+
+    public void clear()
+    {
+        this.cells.clear();
+    }
+
+    /**
+     * @return true if there are no positions closer than minSeparation to the given position on the XZ-plane.
+     * The minSeparation must not be larger than the cell size of this grid.
+     */
+    public boolean isClearOf(int x, int z, int minSeparation)
+    {
+        if (minSeparation <= 0)
+        {
+            return true;
+        }
+
+        final long minSeparationSq = (long) minSeparation * minSeparation;
+        final int cellX = Math.floorDiv(x, this.cellSize);
+        final int cellZ = Math.floorDiv(z, this.cellSize);
+
+        for (int cz = cellZ - 1; cz <= cellZ + 1; ++cz)
+        {
+            for (int cx = cellX - 1; cx <= cellX + 1; ++cx)
+            {
+                LongArrayList list = this.cells.get(getCellKeyForCell(cx, cz));
+
+                if (list != null)
+                {
+                    final int size = list.size();
+
+                    for (int i = 0; i < size; ++i)
+                    {
+                        long pos = list.getLong(i);
+                        long xDiff = x - PositionUtils.getPackedX(pos);
+                        long zDiff = z - PositionUtils.getPackedZ(pos);
+
+                        if (xDiff * xDiff + zDiff * zDiff < minSeparationSq)
+                        {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private long getCellKey(int x, int z)
+    {
+        return getCellKeyForCell(Math.floorDiv(x, this.cellSize), Math.floorDiv(z, this.cellSize));
+    }
+
+    private static long getCellKeyForCell(int cellX, int cellZ)
+    {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+}
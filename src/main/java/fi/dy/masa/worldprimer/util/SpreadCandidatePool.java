@@ -0,0 +1,203 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import javax.annotation.Nullable;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraftforge.common.DimensionManager;
+import fi.dy.masa.worldprimer.config.Configs;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Keeps pools of pre-validated spread-player positions, so that the spread-player command
+ * can use a ready position instantly, instead of having to generate the chunk on demand.
+ * A pool is created for each dimension and radius/separation combination when
+ * the spread-player command is first used with them. The pools are then filled on the server tick,
+ * within a time budget. The surface height is read directly from the chunks that already exist,
+ * and at most one missing chunk is generated per tick. Any biome filter is checked before
+ * the chunk existence, so that rejected candidates never cause any chunk generation.
+ * The pools that haven't been used for the configured expire time are removed, and the number
+ * of pools is capped, so that varying command options don't keep generating chunks indefinitely.
+ */
+public class SpreadCandidatePool
+{
+    public static final SpreadCandidatePool INSTANCE = new SpreadCandidatePool();
+
+    private static final int MAX_ATTEMPTS_PER_TICK = 200;
+
+    private final List<CandidatePool> pools = new ArrayList<>();
+    private final Random rand = new Random();
+    private int nextPoolIndex;
+
+    /**
+     * Takes a ready position from the pool matching the given dimension and options, re-validating it
+     * against the current positions. Also starts filling a pool for these options, if there wasn't one yet.
+     * @return a position with the y-coordinate of the surface, or null if there were no valid positions ready
+     */
+    @Nullable
+    public BlockPos pollCandidate(int dimension, int maxRadius, int minSeparation, @Nullable SpreadPositionFilter filter,
+                                  SpatialGrid spreadPositions, SpatialGrid playerPositions)
+    {
+        if (Configs.spreadCandidatePoolSize <= 0)
+        {
+            return null;
+        }
+
+        CandidatePool pool = this.getOrCreatePool(dimension, maxRadius, minSeparation, filter);
+        pool.lastUsedTime = System.currentTimeMillis();
+
+        while (pool.candidates.isEmpty() == false)
+        {
+            long packedPos = pool.candidates.removeLong(pool.candidates.size() - 1);
+            int x = PositionUtils.getPackedX(packedPos);
+            int z = PositionUtils.getPackedZ(packedPos);
+            pool.grid.remove(packedPos);
+
+            // New spread positions may have been added, or players may have moved, since this candidate was found
+            if (spreadPositions.isClearOf(x, z, minSeparation) && playerPositions.isClearOf(x, z, minSeparation))
+            {
+                return BlockPos.fromLong(packedPos);
+            }
+        }
+
+        return null;
+    }
+
+    public void onServerTick()
+    {
+        final int targetSize = Configs.spreadCandidatePoolSize;
+
+        if (targetSize <= 0 || this.pools.isEmpty())
+        {
+            return;
+        }
+
+        final long expireTime = System.currentTimeMillis() - Configs.spreadCandidatePoolExpireTime * 1000L;
+        this.pools.removeIf((pool) -> pool.lastUsedTime < expireTime);
+
+        final long deadline = System.nanoTime() + Configs.spreadCandidatePoolTickBudgetMicros * 1000L;
+        boolean generatedChunk = false;
+
+        for (int i = 0; i < this.pools.size() && System.nanoTime() < deadline; ++i)
+        {
+            CandidatePool pool = this.pools.get(this.nextPoolIndex++ % this.pools.size());
+            World world = DimensionManager.getWorld(pool.dimension);
+
+            if (world == null || pool.candidates.size() >= targetSize)
+            {
+                continue;
+            }
+
+            SpatialGrid spreadPositions = DataTracker.INSTANCE.getPlayerSpreadPositionGrid(pool.dimension, pool.minSeparation);
+            IChunkProvider chunkProvider = world.getChunkProvider();
+
+            for (int attempt = 0; attempt < MAX_ATTEMPTS_PER_TICK &&
+                                  pool.candidates.size() < targetSize &&
+                                  System.nanoTime() < deadline; ++attempt)
+            {
+                int x = this.rand.nextInt(pool.maxRadius) - this.rand.nextInt(pool.maxRadius);
+                int z = this.rand.nextInt(pool.maxRadius) - this.rand.nextInt(pool.maxRadius);
+
+                if (spreadPositions.isClearOf(x, z, pool.minSeparation) == false ||
+                    pool.grid.isClearOf(x, z, pool.minSeparation) == false ||
+                    (pool.filter != null && pool.filter.isValid(world, x, z) == false))
+                {
+                    continue;
+                }
+
+                boolean exists = chunkProvider.getLoadedChunk(x >> 4, z >> 4) != null ||
+                                 chunkProvider.isChunkGeneratedAt(x >> 4, z >> 4);
+
+                // Only generate one new chunk per tick, as that is the expensive part
+                if (exists == false)
+                {
+                    if (generatedChunk)
+                    {
+                        continue;
+                    }
+
+                    generatedChunk = true;
+                }
+
+                BlockPos surfacePos = world.getTopSolidOrLiquidBlock(new BlockPos(x, 64, z));
+
+                // The biome filter can't catch lakes, but the chunk exists at this point
+                if (pool.filter != null && pool.filter.isSurfaceValid(world, surfacePos) == false)
+                {
+                    continue;
+                }
+
+                long packedPos = PositionUtils.packPos(x, surfacePos.getY(), z);
+                pool.candidates.add(packedPos);
+                pool.grid.add(packedPos);
+            }
+        }
+    }
+
+    public void onWorldUnload(int dimension)
+    {
+        this.pools.removeIf((pool) -> pool.dimension == dimension);
+    }
+
+    public void clear()
+    {
+        this.pools.clear();
+    }
+
+    private CandidatePool getOrCreatePool(int dimension, int maxRadius, int minSeparation, @Nullable SpreadPositionFilter filter)
+    {
+        for (CandidatePool pool : this.pools)
+        {
+            if (pool.dimension == dimension && pool.maxRadius == maxRadius && pool.minSeparation == minSeparation &&
+                Objects.equals(pool.filter, filter))
+            {
+                return pool;
+            }
+        }
+
+        // Make room by removing the least recently used pools
+        while (this.pools.size() >= Configs.spreadCandidatePoolMaxCount && this.pools.isEmpty() == false)
+        {
+            CandidatePool oldest = this.pools.get(0);
+
+            for (CandidatePool pool : this.pools)
+            {
+                if (pool.lastUsedTime < oldest.lastUsedTime)
+                {
+                    oldest = pool;
+                }
+            }
+
+            this.pools.remove(oldest);
+        }
+
+        CandidatePool pool = new CandidatePool(dimension, maxRadius, minSeparation, filter);
+        this.pools.add(pool);
+
+        return pool;
+    }
+
+    private static class CandidatePool
+    {
+        private final int dimension;
+        private final int maxRadius;
+        private final int minSeparation;
+        @Nullable private final SpreadPositionFilter filter;
+        private final LongArrayList candidates = new LongArrayList();
+        private final SpatialGrid grid;
+        private long lastUsedTime = System.currentTimeMillis();
+
+        private CandidatePool(int dimension, int maxRadius, int minSeparation, @Nullable SpreadPositionFilter filter)
+        {
+            this.dimension = dimension;
+            this.maxRadius = Math.max(maxRadius, 1);
+            this.minSeparation = minSeparation;
+            this.filter = filter;
+            this.grid = new SpatialGrid(minSeparation);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.Set;
+import javax.annotation.Nullable;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.common.BiomeDictionary;
+
+/**
+ * Filters the spread-player candidate positions by the biomes around them.
+ * The biomes are queried from the world's BiomeProvider, which only runs the biome generation layers,
+ * so the candidates can be rejected before any chunks get generated for them.
+ * All the biomes within CHECK_RADIUS blocks of the position on the XZ-plane must pass the filter.
+ */
+public class SpreadPositionFilter
+{
+    private static final int CHECK_RADIUS = 4;
+    private static final int CHECK_SIZE = CHECK_RADIUS * 2 + 1;
+
+    @Nullable private final Set<Biome> allowedBiomes;
+    private final boolean avoidLiquid;
+    private Biome[] biomeCache = new Biome[CHECK_SIZE * CHECK_SIZE];
+
+    /**
+     * @param allowedBiomes the biomes the positions must be in, or null to allow all biomes
+     * @param avoidLiquid if true, then positions in or next to ocean or river biomes are rejected
+     */
+    public SpreadPositionFilter(@Nullable Set<Biome> allowedBiomes, boolean avoidLiquid)
+    {
+        this.allowedBiomes = allowedBiomes;
+        this.avoidLiquid = avoidLiquid;
+    }
+
+    /**
+     * Checks the biomes around the given position. This does not need the chunk to exist.
+     */
+    public boolean isValid(World world, int x, int z)
+    {
+        this.biomeCache = world.getBiomeProvider().getBiomes(this.biomeCache, x - CHECK_RADIUS, z - CHECK_RADIUS,
+                                                             CHECK_SIZE, CHECK_SIZE, false);
+
+        for (Biome biome : this.biomeCache)
+        {
+            if (this.allowedBiomes != null && this.allowedBiomes.contains(biome) == false)
+            {
+                return false;
+            }
+
+            if (this.avoidLiquid && isWaterBiome(biome))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the actual surface block under a position returned by World#getTopSolidOrLiquidBlock().
+     * Only use this when the chunk already exists, as this will otherwise generate it.
+     */
+    public boolean isSurfaceValid(World world, BlockPos surfacePos)
+    {
+        return this.avoidLiquid == false || world.getBlockState(surfacePos.down()).getMaterial().isLiquid() == false;
+    }
+
+    private static boolean isWaterBiome(Biome biome)
+    {
+        return BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN) ||
+               BiomeDictionary.hasType(biome, BiomeDictionary.Type.RIVER);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * (this.allowedBiomes != null ? this.allowedBiomes.hashCode() : 0) + (this.avoidLiquid ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+        else if (obj == null || this.getClass() != obj.getClass())
+        {
+            return false;
+        }
+
+        SpreadPositionFilter other = (SpreadPositionFilter) obj;
+
+        if (this.avoidLiquid != other.avoidLiquid)
+        {
+            return false;
+        }
+
+        return this.allowedBiomes != null ? this.allowedBiomes.equals(other.allowedBiomes) : other.allowedBiomes == null;
+    }
+}
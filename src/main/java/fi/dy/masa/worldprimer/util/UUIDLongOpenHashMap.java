@@ -0,0 +1,206 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+
+/**
+ * An open addressing hash map from UUIDs to primitive longs, which stores the keys
+ * as their two long halves, so that the lookups don't need to hash or keep any UUID objects.
+ * The entries can't be removed individually, as the tracker data never removes any entries.
+ */
+public class UUIDLongOpenHashMap
+{
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private long[] keysMost;
+    private long[] keysLeast;
+    private long[] values;
+    private boolean[] used;
+    private long defaultReturnValue;
+    private int mask;
+    private int size;
+
+    public UUIDLongOpenHashMap()
+    {
+        this(16);
+    }
+
+    public UUIDLongOpenHashMap(int expectedSize)
+    {
+        this.allocate(getCapacityFor(expectedSize));
+    }
+
+    public void defaultReturnValue(long value)
+    {
+        this.defaultReturnValue = value;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(long most, long least)
+    {
+        return this.getIndex(most, least) >= 0;
+    }
+
+    public long get(UUID uuid)
+    {
+        return this.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    public long get(long most, long least)
+    {
+        int index = this.getIndex(most, least);
+        return index >= 0 ? this.values[index] : this.defaultReturnValue;
+    }
+
+    /**
+     * @return the previous value, or the default return value if there was no previous value
+     */
+    public long put(long most, long least, long value)
+    {
+        int index = this.getIndex(most, least);
+
+        if (index >= 0)
+        {
+            long oldValue = this.values[index];
+            this.values[index] = value;
+            return oldValue;
+        }
+
+        index = -index - 1;
+        this.keysMost[index] = most;
+        this.keysLeast[index] = least;
+        this.values[index] = value;
+        this.used[index] = true;
+
+        if (++this.size > getMaxFill(this.values.length))
+        {
+            this.rehash(this.values.length * 2);
+        }
+
+        return this.defaultReturnValue;
+    }
+
+    public void clear()
+    {
+        if (this.size > 0)
+        {
+            Arrays.fill(this.used, false);
+            this.size = 0;
+        }
+    }
+
+    public void forEach(EntryConsumer consumer)
+    {
+        for (int i = 0; i < this.values.length; ++i)
+        {
+            if (this.used[i])
+            {
+                consumer.accept(this.keysMost[i], this.keysLeast[i], this.values[i]);
+            }
+        }
+    }
+
+    public void forEachValue(LongConsumer consumer)
+    {
+        for (int i = 0; i < this.values.length; ++i)
+        {
+            if (this.used[i])
+            {
+                consumer.accept(this.values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the index of the key, or (-insertionIndex - 1) if the key is not in the map
+     */
+    private int getIndex(long most, long least)
+    {
+        int index = hash(most, least) & this.mask;
+
+        while (this.used[index])
+        {
+            if (this.keysMost[index] == most && this.keysLeast[index] == least)
+            {
+                return index;
+            }
+
+            index = (index + 1) & this.mask;
+        }
+
+        return -index - 1;
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keysMost = new long[capacity];
+        this.keysLeast = new long[capacity];
+        this.values = new long[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity)
+    {
+        long[] oldMost = this.keysMost;
+        long[] oldLeast = this.keysLeast;
+        long[] oldValues = this.values;
+        boolean[] oldUsed = this.used;
+
+        this.allocate(newCapacity);
+
+        for (int i = 0; i < oldValues.length; ++i)
+        {
+            if (oldUsed[i])
+            {
+                int index = -this.getIndex(oldMost[i], oldLeast[i]) - 1;
+                this.keysMost[index] = oldMost[i];
+                this.keysLeast[index] = oldLeast[i];
+                this.values[index] = oldValues[i];
+                this.used[index] = true;
+            }
+        }
+    }
+
+    static int hash(long most, long least)
+    {
+        // The random UUIDs are already well distributed, but mix the bits anyway,
+        // in case of any non-random UUIDs, like the offline mode name based ones
+        long h = most * 0x9E3779B97F4A7C15L ^ least;
+        h ^= h >>> 32;
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 29));
+    }
+
+    static int getCapacityFor(int expectedSize)
+    {
+        int capacity = 16;
+
+        while (capacity * LOAD_FACTOR < expectedSize)
+        {
+            capacity *= 2;
+        }
+
+        return capacity;
+    }
+
+    static int getMaxFill(int capacity)
+    {
+        return (int) (capacity * LOAD_FACTOR);
+    }
+
+    public interface EntryConsumer
+    {
+        void accept(long most, long least, long value);
+    }
+}
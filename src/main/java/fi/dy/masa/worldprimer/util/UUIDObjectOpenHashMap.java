@@ -0,0 +1,167 @@
+package fi.dy.masa.worldprimer.util;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+
+/**
+ * An open addressing hash map from UUIDs to non-null objects, which stores the keys
+ * as their two long halves, so that the lookups don't need to hash or keep any UUID objects.
+ * The entries can't be removed individually, as the tracker data never removes any entries.
+ */
+public class UUIDObjectOpenHashMap<V>
+{
+    private long[] keysMost;
+    private long[] keysLeast;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public UUIDObjectOpenHashMap()
+    {
+        this(16);
+    }
+
+    public UUIDObjectOpenHashMap(int expectedSize)
+    {
+        this.allocate(UUIDLongOpenHashMap.getCapacityFor(expectedSize));
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    @Nullable
+    public V get(UUID uuid)
+    {
+        return this.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    public V get(long most, long least)
+    {
+        int index = UUIDLongOpenHashMap.hash(most, least) & this.mask;
+
+        while (this.values[index] != null)
+        {
+            if (this.keysMost[index] == most && this.keysLeast[index] == least)
+            {
+                return (V) this.values[index];
+            }
+
+            index = (index + 1) & this.mask;
+        }
+
+        return null;
+    }
+
+    public void put(UUID uuid, V value)
+    {
+        this.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+    }
+
+    public void put(long most, long least, V value)
+    {
+        int index = UUIDLongOpenHashMap.hash(most, least) & this.mask;
+
+        while (this.values[index] != null)
+        {
+            if (this.keysMost[index] == most && this.keysLeast[index] == least)
+            {
+                this.values[index] = value;
+                return;
+            }
+
+            index = (index + 1) & this.mask;
+        }
+
+        this.keysMost[index] = most;
+        this.keysLeast[index] = least;
+        this.values[index] = value;
+
+        if (++this.size > UUIDLongOpenHashMap.getMaxFill(this.values.length))
+        {
+            this.rehash(this.values.length * 2);
+        }
+    }
+
+    public void clear()
+    {
+        if (this.size > 0)
+        {
+            Arrays.fill(this.values, null);
+            this.size = 0;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer)
+    {
+        for (int i = 0; i < this.values.length; ++i)
+        {
+            if (this.values[i] != null)
+            {
+                consumer.accept(this.keysMost[i], this.keysLeast[i], (V) this.values[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<V> consumer)
+    {
+        for (Object value : this.values)
+        {
+            if (value != null)
+            {
+                consumer.accept((V) value);
+            }
+        }
+    }
+
+    private void allocate(int capacity)
+    {
+        this.keysMost = new long[capacity];
+        this.keysLeast = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity)
+    {
+        long[] oldMost = this.keysMost;
+        long[] oldLeast = this.keysLeast;
+        Object[] oldValues = this.values;
+
+        this.allocate(newCapacity);
+
+        for (int i = 0; i < oldValues.length; ++i)
+        {
+            if (oldValues[i] != null)
+            {
+                int index = UUIDLongOpenHashMap.hash(oldMost[i], oldLeast[i]) & this.mask;
+
+                while (this.values[index] != null)
+                {
+                    index = (index + 1) & this.mask;
+                }
+
+                this.keysMost[index] = oldMost[i];
+                this.keysLeast[index] = oldLeast[i];
+                this.values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public interface EntryConsumer<V>
+    {
+        void accept(long most, long least, V value);
+    }
+}